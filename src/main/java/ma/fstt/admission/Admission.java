@@ -0,0 +1,33 @@
+package ma.fstt.admission;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Réponse du contrôle d'admission pour un produit très demandé
+ */
+@Getter
+@AllArgsConstructor
+public class Admission {
+
+    public enum Decision {
+        ADMIS,       // Le client peut ajouter le produit et commander
+        EN_ATTENTE,  // Le client est dans la file (position > 0)
+        REFUSE       // Demande attendue supérieure au stock restant, ou file pleine
+    }
+
+    // Réponse partagée pour les produits sans file d'attente (cas courant, aucune allocation)
+    static final Admission LIBRE = new Admission(Decision.ADMIS, 0, 0);
+
+    private final Decision decision;
+    private final int position;     // Rang dans la file (1 = prochain admis)
+    private final int devant;       // Clients admis ou placés devant
+
+    public boolean estAdmis() {
+        return decision == Decision.ADMIS;
+    }
+
+    public boolean estEnAttente() {
+        return decision == Decision.EN_ATTENTE;
+    }
+}
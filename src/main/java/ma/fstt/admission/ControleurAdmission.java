@@ -0,0 +1,130 @@
+package ma.fstt.admission;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import ma.fstt.config.Parametres;
+import ma.fstt.model.Produit;
+import ma.fstt.service.CatalogueService;
+
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Contrôle d'admission des produits très demandés (ventes flash)
+ * Un produit devient "chaud" quand il reçoit plus de admission.seuil demandes d'ajout par seconde :
+ * ses acheteurs passent alors par une file d'attente équitable (FileAttente) et seuls quelques-uns
+ * à la fois (admission.jetons) peuvent ajouter au panier et commander. Le pool de connexions
+ * n'est donc pas saturé par un seul produit, et le reste du catalogue reste fluide.
+ * Les produits non chauds ne coûtent qu'une lecture de table et un compteur.
+ */
+@ApplicationScoped
+public class ControleurAdmission {
+
+    private static final int SEUIL_PAR_SECONDE = (int) Parametres.nombre("admission.seuil", 20);
+    private static final int JETONS = (int) Parametres.nombre("admission.jetons", 20);
+    private static final int CAPACITE_FILE = (int) Parametres.nombre("admission.file.capacite", 5000);
+    private static final long DUREE_JETON = Parametres.nombre("admission.jeton.minutes", 5) * 60_000;
+    private static final long DUREE_CHAUDE = Parametres.nombre("admission.chaud.minutes", 10) * 60_000;
+    // Sans actualisation de la salle d'attente pendant ce délai, la place est perdue
+    private static final long DUREE_SIGNAL = 30_000;
+    // Intervalle entre deux retraits des compteurs de produits qui ne sont plus demandés
+    private static final long INTERVALLE_NETTOYAGE = 60_000;
+
+    @Inject
+    private CatalogueService catalogueService;
+
+    private final ConcurrentHashMap<Long, Compteur> compteurs = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Long, FileAttente> files = new ConcurrentHashMap<>();
+    private final AtomicLong dernierNettoyage = new AtomicLong(System.currentTimeMillis());
+
+    /**
+     * Demande d'accès à un produit (ajout au panier ou actualisation de la salle d'attente)
+     */
+    public Admission demander(Long internauteId, Long produitId) {
+        long maintenant = System.currentTimeMillis();
+        nettoyer(maintenant);
+        boolean depasse = compteurs.computeIfAbsent(produitId, id -> new Compteur()).compter(maintenant);
+        FileAttente file = files.get(produitId);
+        if (file == null) {
+            if (!depasse) {
+                return Admission.LIBRE;
+            }
+            file = files.computeIfAbsent(produitId, id -> new FileAttente(CAPACITE_FILE, JETONS, DUREE_JETON, DUREE_SIGNAL));
+        }
+        if (depasse) {
+            file.prolonger(maintenant + DUREE_CHAUDE);
+        }
+        if (file.estInactive(maintenant)) {
+            files.remove(produitId, file);
+            return Admission.LIBRE;
+        }
+        Produit produit = catalogueService.getSnapshot().getProduit(produitId);
+        return file.demander(internauteId, produit != null ? produit.getStock() : 0, maintenant);
+    }
+
+    /**
+     * Vrai si le client peut commander ce produit (produit non chaud, ou jeton valide)
+     * Une file refroidie et vide est retirée comme dans demander : sans nouvel ajout au panier,
+     * elle refuserait sinon les clients qui avaient ajouté le produit avant la vente.
+     */
+    public boolean peutCommander(Long internauteId, Long produitId) {
+        long maintenant = System.currentTimeMillis();
+        FileAttente file = files.get(produitId);
+        if (file == null) {
+            return true;
+        }
+        if (file.estInactive(maintenant)) {
+            files.remove(produitId, file);
+            return true;
+        }
+        return file.estAdmis(internauteId, maintenant);
+    }
+
+    public void liberer(Long internauteId, Collection<Long> produitIds) {
+        for (Long produitId : produitIds) {
+            FileAttente file = files.get(produitId);
+            if (file != null) {
+                file.liberer(internauteId);
+            }
+        }
+    }
+
+    public boolean estChaud(Long produitId) {
+        return files.containsKey(produitId);
+    }
+
+    /**
+     * Retire, au plus une fois par minute, les compteurs sans demande depuis la dernière minute :
+     * la table ne garde que les produits demandés récemment, pas tout le catalogue
+     */
+    private void nettoyer(long maintenant) {
+        long dernier = dernierNettoyage.get();
+        if (maintenant - dernier < INTERVALLE_NETTOYAGE || !dernierNettoyage.compareAndSet(dernier, maintenant)) {
+            return;
+        }
+        long limite = (maintenant - INTERVALLE_NETTOYAGE) / 1000;
+        compteurs.values().removeIf(compteur -> compteur.estInactif(limite));
+    }
+
+    /**
+     * Nombre de demandes par fenêtre d'une seconde
+     */
+    private static final class Compteur {
+        private long seconde;
+        private int nombre;
+
+        private synchronized boolean compter(long maintenant) {
+            long courante = maintenant / 1000;
+            if (courante != seconde) {
+                seconde = courante;
+                nombre = 0;
+            }
+            return ++nombre > SEUIL_PAR_SECONDE;
+        }
+
+        private synchronized boolean estInactif(long secondeLimite) {
+            return seconde < secondeLimite;
+        }
+    }
+}
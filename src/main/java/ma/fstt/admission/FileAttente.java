@@ -0,0 +1,139 @@
+package ma.fstt.admission;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * File d'attente d'un produit très demandé
+ * Les clients entrent dans l'ordre d'arrivée et reçoivent un jeton quand une place se libère
+ * (nombre de jetons borné). Un jeton expire s'il n'est pas utilisé ; une place dans la file
+ * expire si le client cesse d'actualiser la salle d'attente.
+ * Chaque arrivée reçoit un numéro de ticket croissant : la position d'un client est l'écart
+ * entre son ticket et celui de la tête de file, sans parcourir la file. Un départ au milieu
+ * de la file n'est décompté qu'une fois la tête passée : la position affichée est un majorant.
+ */
+final class FileAttente {
+
+    private final int capacite;
+    private final int jetons;
+    private final long dureeJeton;
+    private final long dureeSignal;
+
+    // internauteId -> place (ticket, dernier signal de vie), dans l'ordre d'arrivée
+    private final LinkedHashMap<Long, Place> enAttente = new LinkedHashMap<>();
+    // internauteId -> expiration du jeton (ms)
+    private final Map<Long, Long> admis = new HashMap<>();
+    private long chaudeJusqua;
+    private long dernierTicket;
+
+    FileAttente(int capacite, int jetons, long dureeJeton, long dureeSignal) {
+        this.capacite = capacite;
+        this.jetons = jetons;
+        this.dureeJeton = dureeJeton;
+        this.dureeSignal = dureeSignal;
+    }
+
+    synchronized void prolonger(long jusqua) {
+        chaudeJusqua = Math.max(chaudeJusqua, jusqua);
+    }
+
+    /**
+     * Place (ou retrouve) le client dans la file
+     *
+     * @param stock stock restant du produit : au-delà, la demande attendue ne peut pas être servie
+     */
+    synchronized Admission demander(Long internauteId, int stock, long maintenant) {
+        purger(maintenant);
+        if (admis.containsKey(internauteId)) {
+            return new Admission(Admission.Decision.ADMIS, 0, admis.size());
+        }
+        Place place = enAttente.get(internauteId);
+        if (place != null) {
+            place.signal = maintenant;
+        } else {
+            if (enAttente.size() >= capacite) {
+                return new Admission(Admission.Decision.REFUSE, 0, admis.size() + enAttente.size());
+            }
+            // Délestage : chaque client devant (admis ou en attente) prendra au moins une unité
+            if (admis.size() + enAttente.size() >= stock) {
+                return new Admission(Admission.Decision.REFUSE, 0, admis.size() + enAttente.size());
+            }
+            enAttente.put(internauteId, new Place(++dernierTicket, maintenant));
+        }
+        promouvoir(maintenant, stock);
+
+        if (admis.containsKey(internauteId)) {
+            return new Admission(Admission.Decision.ADMIS, 0, admis.size());
+        }
+        place = enAttente.get(internauteId);
+        if (place == null) {
+            return new Admission(Admission.Decision.REFUSE, 0, admis.size() + enAttente.size());
+        }
+        Place tete = enAttente.values().iterator().next();
+        int position = (int) Math.min(place.ticket - tete.ticket + 1, enAttente.size());
+        return new Admission(Admission.Decision.EN_ATTENTE, position, admis.size() + position - 1);
+    }
+
+    synchronized boolean estAdmis(Long internauteId, long maintenant) {
+        Long expiration = admis.get(internauteId);
+        return expiration != null && expiration >= maintenant;
+    }
+
+    /**
+     * Rend le jeton (commande passée ou produit retiré du panier)
+     */
+    synchronized void liberer(Long internauteId) {
+        admis.remove(internauteId);
+        enAttente.remove(internauteId);
+    }
+
+    synchronized boolean estInactive(long maintenant) {
+        purger(maintenant);
+        return enAttente.isEmpty() && admis.isEmpty() && chaudeJusqua < maintenant;
+    }
+
+    synchronized int getNombreEnAttente() {
+        return enAttente.size();
+    }
+
+    /**
+     * Donne les jetons libres aux premiers de la file ; les clients qui ne pourront plus
+     * être servis (stock épuisé par ceux qui sont devant) sont retirés de la file
+     */
+    private void promouvoir(long maintenant, int stock) {
+        Iterator<Long> iterateur = enAttente.keySet().iterator();
+        while (iterateur.hasNext() && admis.size() < jetons && admis.size() < stock) {
+            admis.put(iterateur.next(), maintenant + dureeJeton);
+            iterateur.remove();
+        }
+        int servables = Math.max(0, stock - admis.size());
+        int rang = 0;
+        iterateur = enAttente.keySet().iterator();
+        while (iterateur.hasNext()) {
+            iterateur.next();
+            if (++rang > servables) {
+                iterateur.remove();
+            }
+        }
+    }
+
+    private void purger(long maintenant) {
+        admis.values().removeIf(expiration -> expiration < maintenant);
+        enAttente.values().removeIf(place -> place.signal + dureeSignal < maintenant);
+    }
+
+    /**
+     * Place d'un client dans la file
+     */
+    private static final class Place {
+        private final long ticket;
+        private long signal;
+
+        private Place(long ticket, long signal) {
+            this.ticket = ticket;
+            this.signal = signal;
+        }
+    }
+}
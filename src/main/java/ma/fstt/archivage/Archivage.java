@@ -0,0 +1,67 @@
+package ma.fstt.archivage;
+
+import jakarta.ejb.Schedule;
+import jakarta.ejb.Singleton;
+import jakarta.ejb.TransactionAttribute;
+import jakarta.ejb.TransactionAttributeType;
+import jakarta.inject.Inject;
+import ma.fstt.config.Parametres;
+
+import java.time.LocalDateTime;
+import java.util.function.IntSupplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Tâche planifiée : séparation des données chaudes et froides
+ * - commandes livrées ou annulées depuis plus de archivage.commandes.jours jours : déplacées
+ *   dans commandes_archive / lignes_commande_archive (relues pour l'historique complet d'un client)
+ * - paniers désactivés depuis plus de archivage.paniers.inactifs.jours jours, ou abandonnés
+ *   (sans modification depuis archivage.paniers.abandonnes.jours jours) : supprimés
+ * Par lots de archivage.lot lignes, au plus archivage.lots.max lots par passage : le reste attend la nuit suivante.
+ */
+@Singleton
+public class Archivage {
+
+    private static final Logger LOGGER = Logger.getLogger(Archivage.class.getName());
+
+    @Inject
+    private LotsArchivage lots;
+
+    @Schedule(hour = "2", minute = "30", persistent = false)
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED) // Chaque lot a sa transaction
+    public void executer() {
+        int taille = (int) Math.max(1, Parametres.nombre("archivage.lot", 1000));
+        int lotsMax = (int) Math.max(1, Parametres.nombre("archivage.lots.max", 200));
+        LocalDateTime maintenant = LocalDateTime.now();
+
+        LocalDateTime limiteCommandes = maintenant.minusDays(Parametres.nombre("archivage.commandes.jours", 180));
+        executer("Archivage des commandes", lotsMax, taille,
+                () -> lots.archiverCommandes(limiteCommandes, taille));
+
+        LocalDateTime limiteInactifs = maintenant.minusDays(Parametres.nombre("archivage.paniers.inactifs.jours", 7));
+        LocalDateTime limiteAbandonnes = maintenant.minusDays(Parametres.nombre("archivage.paniers.abandonnes.jours", 60));
+        executer("Purge des paniers", lotsMax, taille,
+                () -> lots.purgerPaniers(limiteInactifs, limiteAbandonnes, taille));
+    }
+
+    /**
+     * Enchaîne les lots jusqu'à un lot incomplet (plus rien à traiter) ou au nombre maximal de lots
+     */
+    private void executer(String travail, int lotsMax, int taille, IntSupplier lot) {
+        long total = 0;
+        long depart = System.nanoTime();
+        try {
+            for (int i = 0; i < lotsMax; i++) {
+                int traites = lot.getAsInt();
+                total += traites;
+                if (traites < taille) {
+                    break;
+                }
+            }
+        } catch (Exception e) {
+            LOGGER.log(Level.SEVERE, travail + " interrompu après " + total + " lignes", e);
+        }
+        LOGGER.info(travail + " : " + total + " lignes en " + (System.nanoTime() - depart) / 1_000_000 + " ms");
+    }
+}
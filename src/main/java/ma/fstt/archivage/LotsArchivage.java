@@ -0,0 +1,120 @@
+package ma.fstt.archivage;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import jakarta.transaction.Transactional;
+import ma.fstt.model.Commande;
+import ma.fstt.model.CommandeArchivee;
+import ma.fstt.model.LigneCommandeArchivee;
+import ma.fstt.panier.PanierService;
+import org.hibernate.query.NativeQuery;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Un lot d'archivage ou de purge, dans sa propre transaction
+ * Les lots sont bornés : les verrous ne sont tenus que le temps d'un lot,
+ * et les commandes ou paniers en cours d'utilisation ne sont jamais bloqués longtemps.
+ */
+@ApplicationScoped
+public class LotsArchivage {
+
+    @PersistenceContext(unitName = "mycnx")
+    private EntityManager em;
+
+    @Inject
+    private PanierService panierService;
+
+    /**
+     * Déplace au plus "taille" commandes terminées (livrées ou annulées) passées avant "limite"
+     * vers les tables d'archive : copie (INSERT ... SELECT) puis suppression, dans la même transaction
+     *
+     * @return nombre de commandes archivées
+     */
+    @Transactional(Transactional.TxType.REQUIRES_NEW)
+    public int archiverCommandes(LocalDateTime limite, int taille) {
+        List<Long> ids = em.createQuery(
+                        "SELECT c.id FROM Commande c WHERE c.statut IN :termines AND c.dateCommande < :limite"
+                                + " ORDER BY c.id", Long.class)
+                .setParameter("termines", List.of(Commande.StatutCommande.LIVREE, Commande.StatutCommande.ANNULEE))
+                .setParameter("limite", limite)
+                .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+                .setMaxResults(taille)
+                .getResultList();
+        if (ids.isEmpty()) {
+            return 0;
+        }
+
+        LocalDateTime maintenant = LocalDateTime.now();
+        em.createNativeQuery("INSERT INTO commandes_archive"
+                        + " (id, dateCommande, montantTotal, statut, adresseLivraison, internaute_id, dateArchivage)"
+                        + " SELECT id, dateCommande, montantTotal, statut, adresseLivraison, internaute_id, :maintenant"
+                        + " FROM commandes WHERE id IN (:ids)")
+                .unwrap(NativeQuery.class)
+                .addSynchronizedEntityClass(CommandeArchivee.class)
+                .setParameter("maintenant", maintenant)
+                .setParameter("ids", ids)
+                .executeUpdate();
+        em.createNativeQuery("INSERT INTO lignes_commande_archive"
+                        + " (id, commande_id, produit_id, produit_nom, quantite, prixUnitaire)"
+                        + " SELECT l.id, l.commande_id, l.produit_id, p.nom, l.quantite, l.prixUnitaire"
+                        + " FROM lignes_commande l JOIN produits p ON p.id = l.produit_id WHERE l.commande_id IN (:ids)")
+                .unwrap(NativeQuery.class)
+                .addSynchronizedEntityClass(LigneCommandeArchivee.class)
+                .setParameter("ids", ids)
+                .executeUpdate();
+
+        // Les étapes du pipeline d'une commande terminée n'ont plus d'utilité
+        em.createQuery("DELETE FROM EvenementCommande e WHERE e.commandeId IN :ids")
+                .setParameter("ids", ids)
+                .executeUpdate();
+        em.createQuery("DELETE FROM LigneCommande l WHERE l.commande.id IN :ids")
+                .setParameter("ids", ids)
+                .executeUpdate();
+        em.createQuery("DELETE FROM Commande c WHERE c.id IN :ids")
+                .setParameter("ids", ids)
+                .executeUpdate();
+        return ids.size();
+    }
+
+    /**
+     * Supprime au plus "taille" paniers : désactivés (transformés en commande) avant "limiteInactifs",
+     * ou encore actifs mais sans modification depuis "limiteAbandonnes"
+     *
+     * @return nombre de paniers supprimés
+     */
+    @Transactional(Transactional.TxType.REQUIRES_NEW)
+    public int purgerPaniers(LocalDateTime limiteInactifs, LocalDateTime limiteAbandonnes, int taille) {
+        // Un panier actif dont une session a des modifications en attente d'écriture n'est pas abandonné
+        Set<Long> enAttente = panierService.paniersEnAttente();
+        TypedQuery<Long> requete = em.createQuery(
+                        "SELECT p.id FROM Panier p WHERE"
+                                + " (p.actif = false AND (p.dateModification IS NULL OR p.dateModification < :limiteInactifs))"
+                                + " OR (p.actif = true AND COALESCE(p.dateModification, p.dateCreation) < :limiteAbandonnes"
+                                + (enAttente.isEmpty() ? "" : " AND p.id NOT IN :enAttente") + ")"
+                                + " ORDER BY p.id", Long.class)
+                .setParameter("limiteInactifs", limiteInactifs)
+                .setParameter("limiteAbandonnes", limiteAbandonnes)
+                .setMaxResults(taille);
+        if (!enAttente.isEmpty()) {
+            requete.setParameter("enAttente", enAttente);
+        }
+        List<Long> ids = requete.getResultList();
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        em.createQuery("DELETE FROM LignePanier l WHERE l.panier.id IN :ids")
+                .setParameter("ids", ids)
+                .executeUpdate();
+        em.createQuery("DELETE FROM Panier p WHERE p.id IN :ids")
+                .setParameter("ids", ids)
+                .executeUpdate();
+        return ids.size();
+    }
+}
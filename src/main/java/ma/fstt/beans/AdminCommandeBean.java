@@ -0,0 +1,223 @@
+package ma.fstt.beans;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.faces.application.FacesMessage;
+import jakarta.faces.context.FacesContext;
+import jakarta.faces.view.ViewScoped;
+import jakarta.inject.Inject;
+import jakarta.inject.Named;
+import lombok.Getter;
+import lombok.Setter;
+import ma.fstt.mesures.Mesure;
+import ma.fstt.model.Commande;
+import ma.fstt.model.LigneCommande;
+import ma.fstt.model.ResumeClient;
+import ma.fstt.service.CommandeService;
+import ma.fstt.service.CritereCommande;
+import ma.fstt.service.CurseurCommande;
+import ma.fstt.service.ResumeClientService;
+
+import java.io.Serializable;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Bean de l'écran admin des commandes
+ * Pagination par clé : on garde le curseur de début de chaque page déjà vue
+ * pour revenir en arrière ; seule la page affichée (et ses lignes) est en mémoire.
+ */
+@Named
+@ViewScoped
+@Getter
+@Setter
+public class AdminCommandeBean implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final int TAILLE_PAGE = 15;
+
+    @Inject
+    private CommandeService commandeService;
+
+    @Inject
+    private ResumeClientService resumeClientService;
+
+    private final CritereCommande critere = new CritereCommande();
+
+    private List<Commande> commandes = new ArrayList<>();
+    private Map<Long, List<LigneCommande>> lignes = Collections.emptyMap();
+    private boolean pageSuivante;
+
+    // Mise à jour en masse : commandes cochées dans la page et statut à leur appliquer
+    private List<Commande> selection = new ArrayList<>();
+    private Commande.StatutCommande statutSelection;
+    private final Map<Long, ResumeClient> resumesClients = new HashMap<>();
+
+    // Curseurs de début des pages précédentes (pile) ; null = première page
+    private final List<CurseurCommande> pagesPrecedentes = new ArrayList<>();
+    private CurseurCommande debutPage;
+
+    @PostConstruct
+    public void init() {
+        charger();
+    }
+
+    /**
+     * Applique les filtres et revient à la première page
+     */
+    public void rechercher() {
+        pagesPrecedentes.clear();
+        debutPage = null;
+        charger();
+    }
+
+    public void reinitialiser() {
+        critere.setStatut(null);
+        critere.setClient(null);
+        critere.setDu(null);
+        critere.setAu(null);
+        rechercher();
+    }
+
+    public void suivante() {
+        if (!pageSuivante || commandes.isEmpty()) {
+            return;
+        }
+        pagesPrecedentes.add(debutPage);
+        debutPage = CurseurCommande.apres(commandes.get(commandes.size() - 1));
+        charger();
+    }
+
+    public void precedente() {
+        if (pagesPrecedentes.isEmpty()) {
+            return;
+        }
+        debutPage = pagesPrecedentes.remove(pagesPrecedentes.size() - 1);
+        charger();
+    }
+
+    /**
+     * Filtres courants sous forme de paramètres d'URL, repris par les liens d'export (/export/...)
+     */
+    public String getParametresExport() {
+        StringBuilder parametres = new StringBuilder();
+        if (critere.getStatut() != null) {
+            parametres.append("&statut=").append(critere.getStatut().name());
+        }
+        if (critere.getClient() != null && !critere.getClient().isBlank()) {
+            parametres.append("&client=").append(URLEncoder.encode(critere.getClient().trim(), StandardCharsets.UTF_8));
+        }
+        if (critere.getDu() != null) {
+            parametres.append("&du=").append(critere.getDu());
+        }
+        if (critere.getAu() != null) {
+            parametres.append("&au=").append(critere.getAu());
+        }
+        return parametres.toString();
+    }
+
+    public boolean isPagePrecedente() {
+        return !pagesPrecedentes.isEmpty();
+    }
+
+    public int getNumeroPage() {
+        return pagesPrecedentes.size() + 1;
+    }
+
+    /**
+     * Lignes d'une commande de la page courante (déjà chargées avec la page)
+     */
+    public List<LigneCommande> lignesDe(Long commandeId) {
+        return lignes.getOrDefault(commandeId, Collections.emptyList());
+    }
+
+    /**
+     * Résumé du client d'une commande (lu à l'ouverture du détail, gardé pour la page)
+     */
+    public ResumeClient resumeClient(Long internauteId) {
+        return resumesClients.computeIfAbsent(internauteId, resumeClientService::resume);
+    }
+
+    /**
+     * Changement de statut d'une commande depuis sa liste déroulante (mise à jour ciblée, sans fusion)
+     */
+    @Mesure
+    public void mettreAJourStatut(Commande commande) {
+        try {
+            if (commandeService.changerStatut(commande.getId(), commande.getStatut())) {
+                addInfoMessage("Statut de la commande #" + commande.getId() + " mis à jour");
+            } else {
+                addErrorMessage("La commande #" + commande.getId() + " ne peut pas passer au statut " + commande.getStatut());
+                charger(); // La page est relue : la liste déroulante retrouve le statut réel
+            }
+        } catch (Exception e) {
+            addErrorMessage("Erreur : " + e.getMessage());
+        }
+    }
+
+    /**
+     * Applique statutSelection à toutes les commandes cochées, en une seule mise à jour
+     * Les commandes dont le statut n'autorise pas la transition sont ignorées et signalées.
+     */
+    @Mesure
+    public void mettreAJourStatutSelection() {
+        if (selection == null || selection.isEmpty() || statutSelection == null) {
+            addErrorMessage("Cochez des commandes et choisissez un statut");
+            return;
+        }
+        try {
+            List<Long> ids = selection.stream().map(Commande::getId).toList();
+            List<Long> modifiees = commandeService.changerStatuts(ids, statutSelection);
+            addInfoMessage(modifiees.size() + " commande(s) passée(s) au statut " + statutSelection);
+            if (modifiees.size() < ids.size()) {
+                addErrorMessage((ids.size() - modifiees.size()) + " commande(s) ignorée(s) : transition vers "
+                        + statutSelection + " impossible depuis leur statut");
+            }
+            selection = new ArrayList<>();
+            charger();
+        } catch (Exception e) {
+            addErrorMessage("Erreur : " + e.getMessage());
+        }
+    }
+
+    /**
+     * Statuts proposés pour une commande : le sien et ceux qu'elle peut atteindre
+     */
+    public List<Commande.StatutCommande> statutsPossibles(Commande commande) {
+        List<Commande.StatutCommande> statuts = new ArrayList<>();
+        statuts.add(commande.getStatut());
+        statuts.addAll(commande.getStatut().suivants());
+        return statuts;
+    }
+
+    public List<Commande.StatutCommande> getStatuts() {
+        return Arrays.asList(Commande.StatutCommande.values());
+    }
+
+    /**
+     * Charge la page qui commence à debutPage, plus une commande pour savoir s'il existe une page suivante
+     */
+    private void charger() {
+        List<Commande> resultat = commandeService.chercher(critere, debutPage, TAILLE_PAGE + 1);
+        pageSuivante = resultat.size() > TAILLE_PAGE;
+        commandes = pageSuivante ? new ArrayList<>(resultat.subList(0, TAILLE_PAGE)) : resultat;
+        lignes = commandeService.lignes(commandes.stream().map(Commande::getId).toList());
+        resumesClients.clear();
+    }
+
+    private void addInfoMessage(String message) {
+        FacesContext.getCurrentInstance().addMessage(null,
+                new FacesMessage(FacesMessage.SEVERITY_INFO, "Succès", message));
+    }
+
+    private void addErrorMessage(String message) {
+        FacesContext.getCurrentInstance().addMessage(null,
+                new FacesMessage(FacesMessage.SEVERITY_ERROR, "Erreur", message));
+    }
+}
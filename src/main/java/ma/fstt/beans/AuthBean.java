@@ -10,6 +10,7 @@ import jakarta.servlet.http.HttpSession;
 import jakarta.transaction.Transactional;
 import lombok.Getter;
 import lombok.Setter;
+import ma.fstt.mesures.Mesure;
 import ma.fstt.model.Internaute;
 
 import java.io.Serializable;
@@ -18,6 +19,8 @@ import java.util.List;
 /**
  * Bean pour gérer l'authentification des utilisateurs
  * SessionScoped = Les informations restent pendant toute la session
+ * Seul un résumé de l'utilisateur (InternauteConnecte) est gardé : la session reste petite
+ * et sérialisable ; l'entité Internaute est relue en base quand on en a besoin.
  */
 @Named
 @SessionScoped
@@ -25,18 +28,23 @@ import java.util.List;
 @Setter
 public class AuthBean implements Serializable {
 
+    private static final long serialVersionUID = 1L;
+
+    // Attribut de session lu par les filtres (l'utilisateur connecté, pas le bean entier)
+    public static final String ATTRIBUT_SESSION = "internauteConnecte";
+
     @PersistenceContext(unitName = "mycnx")
     private EntityManager em;
 
     // Pour le formulaire de connexion
     private String email;
-    private String motDePasse;
+    private transient String motDePasse; // Jamais gardé au-delà de la requête de connexion
 
-    // Pour le formulaire d'inscription
-    private Internaute nouvelInternaute = new Internaute();
+    // Pour le formulaire d'inscription (créé à la première lecture du formulaire)
+    private transient Internaute nouvelInternaute;
 
     // L'utilisateur actuellement connecté
-    private Internaute internauteConnecte;
+    private InternauteConnecte internauteConnecte;
 
     // Message d'erreur à afficher
     private String messageErreur;
@@ -48,10 +56,25 @@ public class AuthBean implements Serializable {
         return internauteConnecte != null;
     }
 
+    /**
+     * Vérifie si l'utilisateur connecté est administrateur (actions des pages d'administration)
+     */
+    public boolean estAdmin() {
+        return internauteConnecte != null && internauteConnecte.estAdmin();
+    }
+
+    public Internaute getNouvelInternaute() {
+        if (nouvelInternaute == null) {
+            nouvelInternaute = new Internaute();
+        }
+        return nouvelInternaute;
+    }
+
     /**
      * Connexion d'un utilisateur
      * Retourne la page de redirection ou null en cas d'erreur
      */
+    @Mesure
     public String seConnecter() {
         try {
             // Recherche l'utilisateur dans la base de données
@@ -68,16 +91,10 @@ public class AuthBean implements Serializable {
             }
 
             // Connexion réussie
-            internauteConnecte = internautes.get(0);
+            internauteConnecte = InternauteConnecte.de(internautes.get(0));
+            motDePasse = null;
             messageErreur = null;
-
-            // Manually put the bean in the session to make it available to the filter
-            FacesContext facesContext = FacesContext.getCurrentInstance();
-            HttpServletRequest request = (HttpServletRequest) facesContext.getExternalContext().getRequest();
-            HttpSession session = request.getSession(false);
-            if (session != null) {
-                session.setAttribute("authBean", this);
-            }
+            publierDansSession();
 
             // Redirection vers la page d'accueil
             return "index?faces-redirect=true";
@@ -99,7 +116,7 @@ public class AuthBean implements Serializable {
             List<Internaute> internautes = em.createQuery(
                             "SELECT i FROM Internaute i WHERE i.email = :email",
                             Internaute.class)
-                    .setParameter("email", nouvelInternaute.getEmail())
+                    .setParameter("email", getNouvelInternaute().getEmail())
                     .getResultList();
 
             if (!internautes.isEmpty()) {
@@ -108,20 +125,13 @@ public class AuthBean implements Serializable {
             }
 
             // Créer le nouvel utilisateur
-            em.persist(nouvelInternaute);
+            em.persist(getNouvelInternaute());
 
             // Connexion automatique après inscription
-            internauteConnecte = nouvelInternaute;
-            nouvelInternaute = new Internaute(); // Réinitialiser le formulaire
+            internauteConnecte = InternauteConnecte.de(nouvelInternaute);
+            nouvelInternaute = null; // Réinitialiser le formulaire
             messageErreur = null;
-
-            // Manually put the bean in the session to make it available to the filter
-            FacesContext facesContext = FacesContext.getCurrentInstance();
-            HttpServletRequest request = (HttpServletRequest) facesContext.getExternalContext().getRequest();
-            HttpSession session = request.getSession(false);
-            if (session != null) {
-                session.setAttribute("authBean", this);
-            }
+            publierDansSession();
 
             return "index?faces-redirect=true";
 
@@ -140,15 +150,29 @@ public class AuthBean implements Serializable {
         email = null;
         motDePasse = null;
 
-        // Manually remove the bean from the session
-        FacesContext facesContext = FacesContext.getCurrentInstance();
-        HttpServletRequest request = (HttpServletRequest) facesContext.getExternalContext().getRequest();
-        HttpSession session = request.getSession(false);
+        // Manually remove the user from the session
+        HttpSession session = sessionCourante();
         if (session != null) {
-            session.removeAttribute("authBean");
+            session.removeAttribute(ATTRIBUT_SESSION);
             session.invalidate(); // Invalider complètement la session
         }
 
         return "index?faces-redirect=true";
     }
+
+    /**
+     * Rend l'utilisateur connecté visible des filtres (AdminAuthFilter)
+     */
+    private void publierDansSession() {
+        HttpSession session = sessionCourante();
+        if (session != null) {
+            session.setAttribute(ATTRIBUT_SESSION, internauteConnecte);
+        }
+    }
+
+    private HttpSession sessionCourante() {
+        FacesContext facesContext = FacesContext.getCurrentInstance();
+        HttpServletRequest request = (HttpServletRequest) facesContext.getExternalContext().getRequest();
+        return request.getSession(false);
+    }
 }
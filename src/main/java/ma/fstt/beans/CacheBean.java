@@ -0,0 +1,41 @@
+package ma.fstt.beans;
+
+import jakarta.enterprise.context.RequestScoped;
+import jakarta.faces.application.FacesMessage;
+import jakarta.faces.context.FacesContext;
+import jakarta.inject.Inject;
+import jakarta.inject.Named;
+import ma.fstt.service.CacheStatistiquesService;
+import ma.fstt.service.StatistiquesRegion;
+
+import java.util.List;
+
+/**
+ * Bean de la page admin de suivi du cache de second niveau
+ */
+@Named
+@RequestScoped
+public class CacheBean {
+
+    @Inject
+    private CacheStatistiquesService cacheStatistiquesService;
+
+    @Inject
+    private AuthBean authBean;
+
+    public List<StatistiquesRegion> getRegions() {
+        return cacheStatistiquesService.getRegions();
+    }
+
+    public void vider(String region) {
+        if (!authBean.estAdmin()) {
+            FacesContext.getCurrentInstance().addMessage(null,
+                    new FacesMessage(FacesMessage.SEVERITY_ERROR, "Erreur", "Accès réservé aux administrateurs"));
+            return;
+        }
+        cacheStatistiquesService.vider(region);
+        FacesContext.getCurrentInstance().addMessage(null,
+                new FacesMessage(FacesMessage.SEVERITY_INFO, "Succès",
+                        region == null ? "Cache vidé" : "Région " + region + " vidée"));
+    }
+}
@@ -1,75 +1,89 @@
 package ma.fstt.beans;
 
-import jakarta.annotation.PostConstruct;
-import jakarta.ejb.Stateless;
+import jakarta.enterprise.event.Event;
 import jakarta.faces.application.FacesMessage;
 import jakarta.faces.context.FacesContext;
+import jakarta.faces.view.ViewScoped;
+import jakarta.inject.Inject;
 import jakarta.inject.Named;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
+import jakarta.transaction.Transactional;
 import lombok.Getter;
 import lombok.Setter;
 import ma.fstt.model.Categorie;
+import ma.fstt.service.CategorieEvenement;
+import ma.fstt.service.CategorieResume;
+import ma.fstt.service.CategorieService;
 
+import java.io.Serializable;
 import java.util.List;
 
+/**
+ * Bean de la page de gestion des catégories
+ * ViewScoped : le formulaire garde son état pendant la vue ; la liste des catégories
+ * et leurs compteurs viennent du CategorieService partagé (aucune requête par affichage).
+ */
 @Named
-@Stateless
+@ViewScoped
 @Getter
 @Setter
-public class CategorieBean {
+public class CategorieBean implements Serializable {
+
+    private static final long serialVersionUID = 1L;
 
     @PersistenceContext(unitName = "mycnx")
     private EntityManager em;
 
-    private Categorie nouvelleCategorie = new Categorie();
-    private List<Categorie> categories;
+    @Inject
+    private CategorieService categorieService;
 
-    @PostConstruct
-    public void init() {
-        chargerCategories();
-    }
+    @Inject
+    private Event<CategorieEvenement> evenementsCategorie; // Met à jour le catalogue partagé après le commit
 
-    public void chargerCategories() {
-        try {
-            categories = em.createQuery("SELECT c FROM Categorie c ORDER BY c.nom", Categorie.class)
-                    .getResultList();
-        } catch (Exception e) {
-            addErrorMessage("Erreur lors du chargement : " + e.getMessage());
-        }
+    private Categorie nouvelleCategorie = new Categorie();
+
+    /**
+     * Catégories triées par nom, avec le nombre de produits (total et en stock)
+     */
+    public List<CategorieResume> getCategories() {
+        return categorieService.getCategories();
     }
 
+    @Transactional
     public void ajouterCategorie() {
         try {
             if (nouvelleCategorie.getId() == null) {
                 em.persist(nouvelleCategorie);
+                evenementsCategorie.fire(CategorieEvenement.enregistree(nouvelleCategorie));
                 addInfoMessage("Catégorie ajoutée avec succès");
             } else {
-                em.merge(nouvelleCategorie);
+                Categorie categorieModifiee = em.merge(nouvelleCategorie);
+                evenementsCategorie.fire(CategorieEvenement.enregistree(categorieModifiee));
                 addInfoMessage("Catégorie modifiée avec succès");
             }
             nouvelleCategorie = new Categorie();
-            chargerCategories();
         } catch (Exception e) {
             addErrorMessage("Erreur : " + e.getMessage());
         }
     }
 
-    public void modifierCategorie(Categorie categorie) {
-        this.nouvelleCategorie = em.find(Categorie.class, categorie.getId());
+    public void modifierCategorie(Long id) {
+        this.nouvelleCategorie = em.find(Categorie.class, id);
     }
 
     public void annulerModification() {
         this.nouvelleCategorie = new Categorie();
     }
 
+    @Transactional
     public void supprimerCategorie(Long id) {
         try {
             Categorie categorie = em.find(Categorie.class, id);
             if (categorie != null) {
                 em.remove(categorie);
+                evenementsCategorie.fire(CategorieEvenement.supprimee(id));
                 addInfoMessage("Catégorie supprimée");
-                chargerCategories();
             }
         } catch (Exception e) {
             e.printStackTrace();
@@ -1,87 +1,117 @@
 package ma.fstt.beans;
 
 import jakarta.annotation.PostConstruct;
-import jakarta.enterprise.context.RequestScoped;
+import jakarta.faces.view.ViewScoped;
 import jakarta.inject.Inject;
 import jakarta.inject.Named;
-import jakarta.persistence.EntityManager;
-import jakarta.persistence.PersistenceContext;
-import jakarta.transaction.Transactional;
 import lombok.Getter;
-import lombok.Setter;
-import ma.fstt.model.Commande;
+import ma.fstt.model.ResumeClient;
+import ma.fstt.service.CommandeService;
+import ma.fstt.service.LigneCommandeResume;
+import ma.fstt.service.ResumeClientService;
+import ma.fstt.service.ResumeCommande;
+import org.primefaces.event.ToggleEvent;
+import org.primefaces.model.Visibility;
 
-import java.util.ArrayList;
-import java.util.Arrays;
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
- * Bean pour afficher l'historique des commandes de l'utilisateur et gérer les commandes (admin)
+ * Bean pour afficher l'historique des commandes de l'utilisateur
+ * (l'écran admin des commandes est géré par AdminCommandeBean, page par page)
+ * La liste est lue page par page sous forme de résumés ; les lignes d'une commande
+ * ne sont chargées que lorsque l'utilisateur la déplie.
  */
 @Named
-@RequestScoped
+@ViewScoped
 @Getter
-@Setter
-public class CommandeBean {
+public class CommandeBean implements Serializable {
 
-    @PersistenceContext(unitName = "mycnx")
-    private EntityManager em;
+    private static final long serialVersionUID = 1L;
+
+    @Inject
+    private CommandeService commandeService;
+
+    @Inject
+    private ResumeClientService resumeClientService;
 
     @Inject
     private AuthBean authBean;
 
-    // Pour l'utilisateur normal
-    private List<Commande> mesCommandes = new ArrayList<>();
+    private HistoriqueCommandesModel mesCommandes;
+    private ResumeClient resume; // Nombre de commandes, montant dépensé, dernier statut
+    private boolean historiqueComplet; // Commandes archivées comprises
 
-    // Pour l'administrateur
-    private List<Commande> toutesLesCommandes = new ArrayList<>();
+    // Commandes dépliées sur la page courante, et lignes déjà chargées
+    private final Set<Long> ouvertes = new LinkedHashSet<>();
+    private final Map<Long, List<LigneCommandeResume>> lignes = new HashMap<>();
 
     @PostConstruct
     public void init() {
         if (authBean.estConnecte()) {
-            // Si l'utilisateur est un admin, charger toutes les commandes
-            if ("ADMIN".equals(authBean.getInternauteConnecte().getRole())) {
-                chargerToutesLesCommandes();
-            } else {
-                // Sinon, ne charger que ses propres commandes
-                chargerMesCommandes();
-            }
+            Long internauteId = authBean.getInternauteConnecte().getId();
+            mesCommandes = new HistoriqueCommandesModel(commandeService, internauteId, false);
+            resume = resumeClientService.resume(internauteId);
         }
     }
 
+    public long getNombreCommandes() {
+        return resume != null ? resume.getNombreCommandes() : 0;
+    }
+
     /**
-     * Charge toutes les commandes de l'utilisateur connecté
+     * Affiche aussi (ou masque) les commandes anciennes, déplacées dans les archives
      */
-    public void chargerMesCommandes() {
-        mesCommandes = em.createQuery(
-                        "SELECT DISTINCT c FROM Commande c LEFT JOIN FETCH c.lignesCommande LEFT JOIN FETCH c.lignesCommande.produit WHERE c.internaute.id = :internauteId ORDER BY c.dateCommande DESC",
-                        Commande.class)
-                .setParameter("internauteId", authBean.getInternauteConnecte().getId())
-                .getResultList();
+    public void basculerHistoriqueComplet() {
+        historiqueComplet = !historiqueComplet;
+        mesCommandes = new HistoriqueCommandesModel(commandeService, authBean.getInternauteConnecte().getId(), historiqueComplet);
+        changerPage();
     }
 
     /**
-     * Charge absolument toutes les commandes pour l'admin
+     * Mémorise les commandes dépliées (les lignes sont lues au rendu de l'expansion)
      */
-    public void chargerToutesLesCommandes() {
-        toutesLesCommandes = em.createQuery(
-                        "SELECT DISTINCT c FROM Commande c LEFT JOIN FETCH c.internaute LEFT JOIN FETCH c.lignesCommande LEFT JOIN FETCH c.lignesCommande.produit ORDER BY c.dateCommande DESC",
-                        Commande.class)
-                .getResultList();
+    public void basculer(ToggleEvent event) {
+        ResumeCommande commande = (ResumeCommande) event.getData();
+        if (commande == null) {
+            return;
+        }
+        if (event.getVisibility() == Visibility.VISIBLE) {
+            ouvertes.add(commande.getId());
+        } else {
+            ouvertes.remove(commande.getId());
+            lignes.remove(commande.getId());
+        }
     }
 
     /**
-     * Met à jour le statut d'une commande
+     * Les commandes dépliées d'une page précédente ne sont plus affichées : on oublie leurs lignes
      */
-    @Transactional
-    public void mettreAJourStatut(Commande commande) {
-        em.merge(commande);
+    public void changerPage() {
+        ouvertes.clear();
+        lignes.clear();
     }
 
     /**
-     * Retourne tous les statuts de commande possibles
+     * Lignes d'une commande dépliée
+     * Toutes les commandes dépliées dont les lignes manquent sont chargées en une seule requête.
      */
-    public List<Commande.StatutCommande> getStatuts() {
-        return Arrays.asList(Commande.StatutCommande.values());
+    public List<LigneCommandeResume> lignesDe(Long commandeId) {
+        if (!lignes.containsKey(commandeId)) {
+            Set<Long> aCharger = new LinkedHashSet<>(ouvertes);
+            aCharger.add(commandeId);
+            aCharger.removeAll(lignes.keySet());
+            Map<Long, List<LigneCommandeResume>> chargees =
+                    commandeService.lignesResumees(authBean.getInternauteConnecte().getId(), aCharger);
+            for (Long id : aCharger) {
+                lignes.put(id, chargees.getOrDefault(id, Collections.emptyList()));
+            }
+        }
+        return lignes.get(commandeId);
     }
 }
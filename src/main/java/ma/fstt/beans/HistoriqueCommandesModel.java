@@ -0,0 +1,102 @@
+package ma.fstt.beans;
+
+import ma.fstt.service.CommandeService;
+import ma.fstt.service.CurseurCommande;
+import ma.fstt.service.ResumeCommande;
+import org.primefaces.model.FilterMeta;
+import org.primefaces.model.LazyDataModel;
+import org.primefaces.model.SortMeta;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Modèle paresseux de l'historique des commandes d'un internaute
+ * Seule la page affichée est lue, sous forme de résumés (projection).
+ * L'historique complet relit aussi les commandes archivées, page par page à partir
+ * du curseur de la page précédente (sans OFFSET sur l'une ou l'autre table).
+ */
+public class HistoriqueCommandesModel extends LazyDataModel<ResumeCommande> {
+
+    private static final long serialVersionUID = 1L;
+
+    private final CommandeService commandeService;
+    private final Long internauteId;
+    private final boolean complet;
+
+    // Historique complet : position dans la liste -> curseur des commandes qui la suivent
+    private final Map<Integer, CurseurCommande> curseurs = new HashMap<>();
+    private int total = -1;
+
+    public HistoriqueCommandesModel(CommandeService commandeService, Long internauteId, boolean complet) {
+        this.commandeService = commandeService;
+        this.internauteId = internauteId;
+        this.complet = complet;
+    }
+
+    @Override
+    public int count(Map<String, FilterMeta> filterBy) {
+        if (!complet) {
+            return (int) commandeService.compterHistorique(internauteId);
+        }
+        int nombre = (int) commandeService.compterHistoriqueComplet(internauteId);
+        if (nombre != total) {
+            // Nouvelle commande (ou archivage en cours) : les positions connues ne valent plus
+            curseurs.clear();
+            total = nombre;
+        }
+        return nombre;
+    }
+
+    @Override
+    public List<ResumeCommande> load(int first, int pageSize, Map<String, SortMeta> sortBy, Map<String, FilterMeta> filterBy) {
+        if (!complet) {
+            return commandeService.historique(internauteId, first, pageSize);
+        }
+
+        // Part de la position connue la plus proche avant la page demandée
+        int position = 0;
+        CurseurCommande curseur = null;
+        for (Map.Entry<Integer, CurseurCommande> connu : curseurs.entrySet()) {
+            if (connu.getKey() <= first && connu.getKey() > position) {
+                position = connu.getKey();
+                curseur = connu.getValue();
+            }
+        }
+        // Saut direct vers une page lointaine : avance par pages jusqu'à elle
+        while (position < first) {
+            List<ResumeCommande> sautees = commandeService.historiqueComplet(internauteId, curseur,
+                    Math.min(pageSize, first - position));
+            if (sautees.isEmpty()) {
+                return List.of();
+            }
+            position += sautees.size();
+            curseur = CurseurCommande.apres(sautees.get(sautees.size() - 1));
+            curseurs.put(position, curseur);
+        }
+
+        List<ResumeCommande> page = commandeService.historiqueComplet(internauteId, curseur, pageSize);
+        if (!page.isEmpty()) {
+            curseurs.put(first + page.size(), CurseurCommande.apres(page.get(page.size() - 1)));
+        }
+        return page;
+    }
+
+    @Override
+    public String getRowKey(ResumeCommande commande) {
+        return String.valueOf(commande.getId());
+    }
+
+    @Override
+    public ResumeCommande getRowData(String rowKey) {
+        List<ResumeCommande> page = getWrappedData();
+        if (page == null) {
+            return null;
+        }
+        return page.stream()
+                .filter(c -> String.valueOf(c.getId()).equals(rowKey))
+                .findFirst()
+                .orElse(null);
+    }
+}
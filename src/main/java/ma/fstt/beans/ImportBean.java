@@ -0,0 +1,73 @@
+package ma.fstt.beans;
+
+import jakarta.faces.application.FacesMessage;
+import jakarta.faces.context.FacesContext;
+import jakarta.faces.view.ViewScoped;
+import jakarta.inject.Inject;
+import jakarta.inject.Named;
+import ma.fstt.importation.ImportProduits;
+import ma.fstt.importation.SuiviImport;
+import org.primefaces.event.FileUploadEvent;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Serializable;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Page d'import en masse des produits : dépôt du fichier et suivi des imports
+ */
+@Named
+@ViewScoped
+public class ImportBean implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    @Inject
+    private ImportProduits importProduits;
+
+    @Inject
+    private AuthBean authBean;
+
+    /**
+     * Le fichier déposé est copié sur disque (en flux) puis importé en tâche de fond
+     */
+    public void televerser(FileUploadEvent event) {
+        if (!authBean.estAdmin()) {
+            addErrorMessage("Accès réservé aux administrateurs");
+            return;
+        }
+        String nom = event.getFile().getFileName();
+        String extension = nom.toLowerCase(Locale.ROOT).endsWith(".json") ? ".json" : ".csv";
+        try (InputStream contenu = event.getFile().getInputStream()) {
+            Path fichier = Files.createTempFile("import-produits-", extension);
+            Files.copy(contenu, fichier, StandardCopyOption.REPLACE_EXISTING);
+            SuiviImport suivi = importProduits.lancer(fichier, nom);
+            addInfoMessage("Import n°" + suivi.getId() + " lancé : " + nom);
+        } catch (IOException e) {
+            addErrorMessage("Fichier illisible : " + e.getMessage());
+        }
+    }
+
+    public List<SuiviImport> getSuivis() {
+        return importProduits.getSuivis();
+    }
+
+    public boolean isImportEnCours() {
+        return getSuivis().stream().anyMatch(SuiviImport::isActif);
+    }
+
+    private void addInfoMessage(String message) {
+        FacesContext.getCurrentInstance().addMessage(null,
+                new FacesMessage(FacesMessage.SEVERITY_INFO, "Succès", message));
+    }
+
+    private void addErrorMessage(String message) {
+        FacesContext.getCurrentInstance().addMessage(null,
+                new FacesMessage(FacesMessage.SEVERITY_ERROR, "Erreur", message));
+    }
+}
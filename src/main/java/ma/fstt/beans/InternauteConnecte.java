@@ -0,0 +1,91 @@
+package ma.fstt.beans;
+
+import ma.fstt.model.Internaute;
+
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+
+/**
+ * Utilisateur connecté, tel qu'il est gardé en session
+ * Seulement l'identifiant et ce que les pages affichent : l'entité Internaute (et ses listes
+ * de paniers et de commandes) est relue en base quand un traitement en a besoin.
+ * Forme sérialisée écrite à la main (passivation, réplication de session) : quelques octets
+ * au lieu du graphe de l'entité.
+ */
+public class InternauteConnecte implements Externalizable {
+
+    private static final long serialVersionUID = 1L;
+    private static final byte FORMAT = 1;
+
+    private long id;
+    private String prenom;
+    private String nom;
+    private String email;
+    private String role;
+
+    // Requis par Externalizable
+    public InternauteConnecte() {
+    }
+
+    private InternauteConnecte(long id, String prenom, String nom, String email, String role) {
+        this.id = id;
+        this.prenom = prenom;
+        this.nom = nom;
+        this.email = email;
+        this.role = role;
+    }
+
+    public static InternauteConnecte de(Internaute internaute) {
+        return new InternauteConnecte(internaute.getId(), internaute.getPrenom(), internaute.getNom(),
+                internaute.getEmail(), internaute.getRole());
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getPrenom() {
+        return prenom;
+    }
+
+    public String getNom() {
+        return nom;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public String getRole() {
+        return role;
+    }
+
+    public boolean estAdmin() {
+        return "ADMIN".equals(role);
+    }
+
+    @Override
+    public void writeExternal(ObjectOutput out) throws IOException {
+        out.writeByte(FORMAT);
+        out.writeLong(id);
+        out.writeUTF(prenom);
+        out.writeUTF(nom);
+        out.writeUTF(email);
+        out.writeUTF(role);
+    }
+
+    @Override
+    public void readExternal(ObjectInput in) throws IOException {
+        byte format = in.readByte();
+        if (format != FORMAT) {
+            throw new IOException("Format de session inconnu : " + format);
+        }
+        id = in.readLong();
+        prenom = in.readUTF();
+        nom = in.readUTF();
+        email = in.readUTF();
+        role = in.readUTF();
+    }
+}
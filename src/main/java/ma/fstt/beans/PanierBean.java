@@ -1,234 +1,311 @@
 package ma.fstt.beans;
 
-import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import jakarta.enterprise.context.SessionScoped;
+import jakarta.faces.application.FacesMessage;
+import jakarta.faces.context.FacesContext;
 import jakarta.inject.Inject;
 import jakarta.inject.Named;
-import jakarta.persistence.EntityManager;
-import jakarta.persistence.PersistenceContext;
-import jakarta.transaction.Transactional;
 import lombok.Getter;
-import lombok.Setter;
+import ma.fstt.admission.Admission;
+import ma.fstt.admission.ControleurAdmission;
+import ma.fstt.mesures.Mesure;
+import ma.fstt.mesures.Mesures;
 import ma.fstt.model.*;
+import ma.fstt.panier.LignePanierVue;
+import ma.fstt.panier.PanierMemoire;
+import ma.fstt.panier.PanierService;
+import ma.fstt.panier.ValidationPanier;
+import ma.fstt.service.CatalogueService;
+import ma.fstt.service.CatalogueSnapshot;
+import ma.fstt.stock.ResultatReservation;
+import ma.fstt.stock.RetenuesStock;
+import ma.fstt.stock.StockInsuffisantException;
 
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 /**
  * Bean SessionScoped pour gérer le panier d'achat
  * SessionScoped = Le panier reste actif pendant toute la session utilisateur
+ * Le panier est tenu en mémoire (PanierMemoire) : ajouter, modifier ou retirer un produit
+ * n'ouvre pas de transaction. Les modifications sont écrites en base par PanierService
+ * (périodiquement, à la fin de la session et à la validation de la commande).
  */
 @Named
 @SessionScoped
 @Getter
-@Setter
 public class PanierBean implements Serializable {
 
-    @PersistenceContext(unitName = "mycnx")
-    private EntityManager em;
+    private static final Logger LOGGER = Logger.getLogger(PanierBean.class.getName());
 
     @Inject
     private AuthBean authBean; // Pour récupérer l'utilisateur connecté
 
-    private Panier panierActif;
+    @Inject
+    private PanierService panierService; // Écriture différée du panier
 
-    @PostConstruct
-    public void init() {
-        // Le panier sera créé lors de la première utilisation
-    }
+    @Inject
+    private ValidationPanier validationPanier; // Transformation du panier en commande
+
+    @Inject
+    private RetenuesStock retenuesStock; // Quantités retenues pour les paniers en cours
+
+    @Inject
+    private CatalogueService catalogueService;
+
+    @Inject
+    private ControleurAdmission controleurAdmission; // File d'attente des produits très demandés
+
+    @Inject
+    private Mesures mesures;
+
+    private PanierMemoire panier;
+
+    // Lignes affichées, reconstruites seulement si le panier ou le catalogue a changé
+    private transient List<LignePanierVue> lignes;
+    private transient long versionLignes = -1;
+    private transient CatalogueSnapshot catalogueLignes;
 
     /**
-     * Récupère le panier actif (le crée si nécessaire)
+     * Écrit les modifications en attente quand la session se termine (déconnexion, expiration)
      */
-    public Panier getPanierActif() {
-        if (panierActif == null && authBean.estConnecte()) {
-            chargerOuCreerPanier();
+    @PreDestroy
+    public void terminer() {
+        if (panier != null) {
+            panierService.ecrireMaintenant(panier);
         }
-        return panierActif;
     }
 
     /**
-     * Charge le panier actif de l'utilisateur ou en crée un nouveau
+     * Récupère le panier de l'utilisateur connecté (chargé une fois par session)
      */
-    @Transactional
-    public void chargerOuCreerPanier() {
-        if (!authBean.estConnecte()) {
-            return;
+    public PanierMemoire getPanier() {
+        if (panier == null && authBean.estConnecte()) {
+            Long internauteId = authBean.getInternauteConnecte().getId();
+            panier = panierService.charger(internauteId);
+            actualiserPrix(catalogueService.getSnapshot());
+            // Les quantités du panier enregistré sont de nouveau retenues pour ce client
+            panier.contenu().forEach((produitId, quantite) -> retenuesStock.tenir(internauteId, produitId, quantite));
         }
+        return panier;
+    }
 
-        // Cherche un panier actif pour cet utilisateur
-        List<Panier> paniers = em.createQuery(
-                        "SELECT p FROM Panier p LEFT JOIN FETCH p.lignesPanier WHERE p.internaute.id = :internauteId AND p.actif = true",
-                        Panier.class)
-                .setParameter("internauteId", authBean.getInternauteConnecte().getId())
-                .getResultList();
-
-        if (!paniers.isEmpty()) {
-            panierActif = paniers.get(0);
-        } else {
-            // Créer un nouveau panier
-            panierActif = new Panier();
-            panierActif.setInternaute(authBean.getInternauteConnecte());
-            em.persist(panierActif);
+    /**
+     * Lignes du panier avec les produits du catalogue partagé
+     */
+    public List<LignePanierVue> getLignes() {
+        PanierMemoire courant = getPanier();
+        if (courant == null) {
+            return List.of();
         }
+        CatalogueSnapshot catalogue = catalogueService.getSnapshot();
+        if (lignes == null || versionLignes != courant.getVersion() || catalogueLignes != catalogue) {
+            List<LignePanierVue> nouvelles = new ArrayList<>();
+            courant.contenu().forEach((produitId, quantite) -> {
+                Produit produit = catalogue.getProduit(produitId);
+                if (produit != null) {
+                    nouvelles.add(new LignePanierVue(produit, quantite));
+                }
+            });
+            lignes = nouvelles;
+            versionLignes = courant.getVersion();
+            catalogueLignes = catalogue;
+        }
+        return lignes;
     }
 
     /**
      * Ajoute un produit au panier
+     * Pour un produit en vente flash, le client passe d'abord par la salle d'attente.
      */
-    @Transactional
+    @Mesure
     public String ajouterAuPanier(Long produitId) {
         // Vérifier que l'utilisateur est connecté
         if (!authBean.estConnecte()) {
             return "login?faces-redirect=true";
         }
 
-        try {
-            Produit produit = em.find(Produit.class, produitId);
-            if (produit == null || produit.getStock() < 1) {
-                return null;
-            }
-
-            if (panierActif == null) {
-                chargerOuCreerPanier();
-            }
-
-            // Vérifier si le produit existe déjà dans le panier
-            Optional<LignePanier> ligneExistante = panierActif.getLignesPanier().stream()
-                    .filter(ligne -> ligne.getProduit().getId().equals(produitId))
-                    .findFirst();
-
-            if (ligneExistante.isPresent()) {
-                // Augmenter la quantité
-                LignePanier ligne = ligneExistante.get();
-                if (produit.estDisponible(ligne.getQuantite() + 1)) {
-                    ligne.setQuantite(ligne.getQuantite() + 1);
-                }
-            } else {
-                // Créer une nouvelle ligne
-                LignePanier nouvelleLigne = new LignePanier();
-                nouvelleLigne.setPanier(panierActif);
-                nouvelleLigne.setProduit(produit);
-                nouvelleLigne.setQuantite(1);
-                panierActif.getLignesPanier().add(nouvelleLigne);
-                em.persist(nouvelleLigne);
-            }
-
-            return "panier?faces-redirect=true";
-        } catch (Exception e) {
-            e.printStackTrace();
+        if (catalogueService.getSnapshot().getProduit(produitId) == null) {
+            return null;
+        }
+        Admission admission = controleurAdmission.demander(authBean.getInternauteConnecte().getId(), produitId);
+        if (admission.estEnAttente()) {
+            return "attente?faces-redirect=true&produit=" + produitId;
+        }
+        if (!admission.estAdmis()) {
+            addErrorMessage("Produit très demandé : le stock restant est déjà promis aux clients en attente");
+            return null;
+        }
+        PanierMemoire courant = getPanier();
+        int quantite = courant.quantite(produitId) + 1;
+        if (!retenir(produitId, quantite)) {
             return null;
         }
+        modifier(produitId, quantite);
+        mesures.ajoutPanier();
+        return "panier?faces-redirect=true";
     }
 
     /**
      * Retire un produit du panier
      */
-    @Transactional
-    public void retirerDuPanier(Long lignePanierId) {
-        try {
-            LignePanier ligne = em.find(LignePanier.class, lignePanierId);
-            if (ligne != null) {
-                panierActif.getLignesPanier().remove(ligne);
-                em.remove(ligne);
-            }
-        } catch (Exception e) {
-            e.printStackTrace();
+    public void retirerDuPanier(Long produitId) {
+        if (getPanier() == null) {
+            return;
         }
+        retenuesStock.liberer(panier.getInternauteId(), produitId);
+        controleurAdmission.liberer(panier.getInternauteId(), List.of(produitId));
+        modifier(produitId, 0);
     }
 
     /**
      * Modifie la quantité d'un produit dans le panier
      */
-    @Transactional
-    public void modifierQuantite(Long lignePanierId, Integer nouvelleQuantite) {
-        try {
-            LignePanier ligne = em.find(LignePanier.class, lignePanierId);
-            if (ligne != null && nouvelleQuantite > 0) {
-                if (ligne.getProduit().estDisponible(nouvelleQuantite)) {
-                    ligne.setQuantite(nouvelleQuantite);
-                }
-            }
-        } catch (Exception e) {
-            e.printStackTrace();
+    public void modifierQuantite(Long produitId, Integer nouvelleQuantite) {
+        if (getPanier() == null || nouvelleQuantite == null || nouvelleQuantite <= 0
+                || panier.quantite(produitId) == 0) {
+            return;
+        }
+        if (retenir(produitId, nouvelleQuantite)) {
+            modifier(produitId, nouvelleQuantite);
+        } else {
+            lignes = null; // Réaffiche l'ancienne quantité
         }
     }
 
     /**
      * Vide complètement le panier
      */
-    @Transactional
     public void viderPanier() {
-        if (panierActif != null) {
-            for (LignePanier ligne : panierActif.getLignesPanier()) {
-                em.remove(ligne);
-            }
-            panierActif.getLignesPanier().clear();
+        if (getPanier() == null) {
+            return;
         }
+        retenuesStock.libererTout(panier.getInternauteId(), panier.contenu().keySet());
+        controleurAdmission.liberer(panier.getInternauteId(), panier.contenu().keySet());
+        panier.vider();
+        panierService.signaler(panier);
     }
 
     /**
-     * Transforme le panier en commande
+     * Transforme le panier en commande (ValidationPanier, une transaction)
+     * Si un produit est en rupture, rien n'est enregistré et le client voit quels produits manquent ;
+     * toute autre erreur annule aussi la commande et est signalée au client.
      */
-    @Transactional
+    @Mesure
     public String validerCommande() {
-        if (panierActif == null || panierActif.getLignesPanier().isEmpty()) {
+        if (getPanier() == null || panier.estVide()) {
             return null;
         }
 
-        try {
-            // Créer la commande
-            Commande commande = new Commande();
-            commande.setInternaute(authBean.getInternauteConnecte());
-            commande.setMontantTotal(panierActif.getTotal());
-            commande.setAdresseLivraison(authBean.getInternauteConnecte().getAdresse());
-            em.persist(commande);
-
-            // Copier les lignes du panier vers la commande
-            for (LignePanier lignePanier : panierActif.getLignesPanier()) {
-                LigneCommande ligneCommande = new LigneCommande();
-                ligneCommande.setCommande(commande);
-                ligneCommande.setProduit(lignePanier.getProduit());
-                ligneCommande.setQuantite(lignePanier.getQuantite());
-                ligneCommande.setPrixUnitaire(lignePanier.getProduit().getPrix());
-
-                // Déduire du stock
-                Produit produit = lignePanier.getProduit();
-                produit.setStock(produit.getStock() - lignePanier.getQuantite());
-
-                commande.getLignesCommande().add(ligneCommande);
-                em.persist(ligneCommande);
+        Map<Long, Integer> quantites = panier.contenu();
+        // Produits en vente flash : seuls les clients admis (jeton encore valide) peuvent commander
+        for (Long produitId : quantites.keySet()) {
+            if (!controleurAdmission.peutCommander(panier.getInternauteId(), produitId)) {
+                addErrorMessage(nomProduit(produitId)
+                        + " : votre accès à la vente flash a expiré, ajoutez-le de nouveau au panier");
+                return null;
             }
+        }
 
-            // Désactiver le panier
-            panierActif.setActif(false);
-            panierActif = null;
-
-            return "confirmation?faces-redirect=true";
+        try {
+            validationPanier.valider(panier);
+        } catch (StockInsuffisantException e) {
+            // Transaction annulée ; le panier en mémoire est intact
+            for (ResultatReservation.Rupture rupture : e.getRuptures()) {
+                addErrorMessage(nomProduit(rupture.getProduitId())
+                        + " : " + rupture.getDisponible() + " disponible(s), " + rupture.getDemande() + " demandé(s)");
+            }
+            return null;
         } catch (Exception e) {
-            e.printStackTrace();
+            LOGGER.log(Level.SEVERE, "Validation de la commande impossible pour l'internaute "
+                    + panier.getInternauteId(), e);
+            addErrorMessage("La commande n'a pas pu être enregistrée, veuillez réessayer");
             return null;
         }
+
+        retenuesStock.libererTout(panier.getInternauteId(), quantites.keySet());
+        controleurAdmission.liberer(panier.getInternauteId(), quantites.keySet());
+        panierService.oublier(panier);
+        panier = new PanierMemoire(panier.getInternauteId(), null);
+        lignes = null;
+        return "confirmation?faces-redirect=true";
     }
 
     /**
-     * Calcule le nombre total d'articles dans le panier
+     * Nombre total d'articles dans le panier (évalué dans l'en-tête de chaque page)
+     * Lecture d'un compteur tenu à jour : pas de parcours des lignes.
      */
-    public Integer getNombreArticles() {
-        if (panierActif == null || panierActif.getLignesPanier() == null) {
+    public int getNombreArticles() {
+        if (panier == null) {
             return 0;
         }
-        return panierActif.getNombreArticles();
+        actualiserPrix(catalogueService.getSnapshot());
+        return panier.getNombreArticles();
     }
 
     /**
-     * Calcule le montant total du panier
+     * Montant total du panier, à partir du total courant en centimes
      */
-    public Double getTotal() {
-        if (panierActif == null) {
-            return 0.0;
+    public double getTotal() {
+        if (panier == null) {
+            return 0;
         }
-        return panierActif.getTotal();
+        actualiserPrix(catalogueService.getSnapshot());
+        return panier.getTotalCentimes() / 100.0;
+    }
+
+    /**
+     * Applique une quantité au panier en mémoire et l'inscrit pour la prochaine écriture
+     * La ligne "paniers" est créée au premier ajout, pour que les lignes aient un panier où s'écrire.
+     */
+    private void modifier(Long produitId, int quantite) {
+        if (panier.getPanierId() == null && quantite > 0) {
+            panier.setPanierId(panierService.creerPanier(panier.getInternauteId()));
+        }
+        CatalogueSnapshot catalogue = catalogueService.getSnapshot();
+        actualiserPrix(catalogue);
+        Produit produit = catalogue.getProduit(produitId);
+        panier.definir(produitId, quantite, produit != null ? PanierMemoire.centimes(produit.getPrix()) : 0);
+        panierService.signaler(panier);
+    }
+
+    /**
+     * Met les prix du panier à jour ; les produits retirés du catalogue libèrent leur retenue
+     * et leur suppression est inscrite pour la prochaine écriture
+     */
+    private void actualiserPrix(CatalogueSnapshot catalogue) {
+        List<Long> retires = panier.actualiserPrix(catalogue);
+        if (!retires.isEmpty()) {
+            retenuesStock.libererTout(panier.getInternauteId(), retires);
+            controleurAdmission.liberer(panier.getInternauteId(), retires);
+            panierService.signaler(panier);
+        }
+    }
+
+    /**
+     * Retient la quantité voulue pour le client connecté (stock moins les paniers des autres clients)
+     */
+    private boolean retenir(Long produitId, int quantite) {
+        boolean retenue = retenuesStock.tenir(authBean.getInternauteConnecte().getId(), produitId, quantite);
+        if (!retenue) {
+            addErrorMessage("Stock insuffisant : "
+                    + retenuesStock.disponible(authBean.getInternauteConnecte().getId(), produitId) + " disponible(s)");
+        }
+        return retenue;
+    }
+
+    private String nomProduit(Long produitId) {
+        Produit produit = catalogueService.getSnapshot().getProduit(produitId);
+        return produit != null ? produit.getNom() : "Produit " + produitId;
+    }
+
+    private void addErrorMessage(String message) {
+        FacesContext.getCurrentInstance().addMessage(null,
+                new FacesMessage(FacesMessage.SEVERITY_ERROR, "Erreur", message));
     }
-}
\ No newline at end of file
+}
@@ -1,18 +1,35 @@
 package ma.fstt.beans;
 
 import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.event.Event;
 import jakarta.faces.application.FacesMessage;
+import jakarta.faces.component.UIComponent;
+import jakarta.faces.component.UIData;
 import jakarta.faces.context.FacesContext;
 import jakarta.faces.view.ViewScoped;
+import jakarta.inject.Inject;
 import jakarta.inject.Named;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
 import jakarta.transaction.Transactional;
 import lombok.Getter;
 import lombok.Setter;
+import org.primefaces.event.FileUploadEvent;
+import ma.fstt.image.ImageStore;
+import ma.fstt.mesures.Mesure;
+import ma.fstt.mesures.Mesures;
 import ma.fstt.model.Categorie;
 import ma.fstt.model.Produit;
-
+import ma.fstt.search.CompteursFacettes;
+import ma.fstt.search.TranchePrix;
+import ma.fstt.service.CategorieResume;
+import ma.fstt.service.CategorieService;
+import ma.fstt.service.CritereProduit;
+import ma.fstt.service.ProduitEvenement;
+import ma.fstt.service.ProduitService;
+
+import java.io.IOException;
+import java.io.InputStream;
 import java.io.Serializable;
 import java.util.List;
 
@@ -24,69 +41,92 @@ public class ProduitBean implements Serializable {  // ← AJOUTÉ Serializable
 
     private static final long serialVersionUID = 1L;  // ← AJOUTÉ
 
+    // Identifiant de la grille / du tableau des produits dans les vues
+    private static final String ID_LISTE_PRODUITS = ":produitForm:listeProduits";
+
     @PersistenceContext(unitName = "mycnx")
     private EntityManager em;
 
+    @Inject
+    private ProduitService produitService;
+
+    @Inject
+    private CategorieService categorieService;
+
+    @Inject
+    private ImageStore imageStore;
+
+    @Inject
+    private Mesures mesures;
+
+    @Inject
+    private Event<ProduitEvenement> evenementsProduit; // Notifie le catalogue et l'index après le commit
+
     private Produit nouveauProduit = new Produit();
-    private List<Produit> produits;
-    private List<Categorie> categories;
+    private ProduitLazyDataModel produits; // Seule la page affichée est chargée
     private String motCle;
     private Long categorieId;
+    private TranchePrix tranchePrix;
+    private boolean enStockSeulement;
+
+    // Compteurs des facettes pour la recherche courante (calculés à chaque recherche)
+    private CompteursFacettes facettes;
+
+    // Critères poussés dans le modèle paresseux
+    private final CritereProduit critere = new CritereProduit();
 
     @PostConstruct
     public void init() {
-        chargerProduits();
-        chargerCategories();
+        produits = new ProduitLazyDataModel(produitService, critere);
+        facettes = produitService.compterFacettes(critere);
     }
 
+    /**
+     * Revient à la première page après un changement de critères
+     * (le modèle paresseux recharge la page au prochain rendu)
+     */
     public void chargerProduits() {
-        try {
-            produits = em.createQuery("SELECT p FROM Produit p ORDER BY p.id DESC", Produit.class)
-                    .getResultList();
-        } catch (Exception e) {
-            addErrorMessage("Erreur chargement : " + e.getMessage());
+        FacesContext facesContext = FacesContext.getCurrentInstance();
+        if (facesContext == null) {
+            return;
+        }
+        UIComponent composant = facesContext.getViewRoot().findComponent(ID_LISTE_PRODUITS);
+        if (composant instanceof UIData) {
+            ((UIData) composant).setFirst(0);
         }
     }
 
-    public void chargerCategories() {
-        try {
-            categories = em.createQuery("SELECT c FROM Categorie c ORDER BY c.nom", Categorie.class)
-                    .getResultList();
-        } catch (Exception e) {
-            addErrorMessage("Erreur catégories : " + e.getMessage());
-        }
+    /**
+     * Catégories avec leurs compteurs, lues dans le service partagé (aucune requête)
+     */
+    public List<CategorieResume> getCategories() {
+        return categorieService.getCategories();
     }
 
+    /**
+     * Applique les filtres saisis dans la barre de recherche (combinables entre eux)
+     */
+    @Mesure
     public void rechercher() {
-        try {
-            if (motCle == null || motCle.trim().isEmpty()) {
-                chargerProduits();
-            } else {
-                produits = em.createQuery(
-                                "SELECT p FROM Produit p WHERE LOWER(p.nom) LIKE LOWER(:motCle) OR LOWER(p.description) LIKE LOWER(:motCle)",
-                                Produit.class)
-                        .setParameter("motCle", "%" + motCle + "%")
-                        .getResultList();
-            }
-        } catch (Exception e) {
-            addErrorMessage("Erreur recherche : " + e.getMessage());
+        critere.setMotCle(motCle == null || motCle.isBlank() ? null : motCle.trim());
+        critere.setCategorieId(categorieId);
+        critere.setTranchePrix(tranchePrix);
+        critere.setEnStockSeulement(enStockSeulement);
+        facettes = produitService.compterFacettes(critere);
+        if (critere.getMotCle() != null && facettes.getTotal() == 0) {
+            mesures.rechercheSansResultat();
         }
+        chargerProduits();
     }
 
     public void filtrerParCategorie() {
-        try {
-            if (categorieId == null) {
-                chargerProduits();
-            } else {
-                produits = em.createQuery(
-                                "SELECT p FROM Produit p WHERE p.categorie.id = :categorieId",
-                                Produit.class)
-                        .setParameter("categorieId", categorieId)
-                        .getResultList();
-            }
-        } catch (Exception e) {
-            addErrorMessage("Erreur filtrage : " + e.getMessage());
-        }
+        critere.setCategorieId(categorieId);
+        facettes = produitService.compterFacettes(critere);
+        chargerProduits();
+    }
+
+    public TranchePrix[] getTranchesPrix() {
+        return TranchePrix.values();
     }
 
     @Transactional
@@ -99,9 +139,11 @@ public class ProduitBean implements Serializable {  // ← AJOUTÉ Serializable
 
             if (nouveauProduit.getId() == null) {
                 em.persist(nouveauProduit);
+                evenementsProduit.fire(ProduitEvenement.enregistre(nouveauProduit, true));
                 addInfoMessage("Produit ajouté !");
             } else {
-                em.merge(nouveauProduit);
+                Produit produitModifie = em.merge(nouveauProduit);
+                evenementsProduit.fire(ProduitEvenement.enregistre(produitModifie, false));
                 addInfoMessage("Produit modifié !");
             }
 
@@ -113,6 +155,18 @@ public class ProduitBean implements Serializable {  // ← AJOUTÉ Serializable
         }
     }
 
+    /**
+     * Enregistre la photo envoyée (et ses miniatures) et la rattache au produit du formulaire
+     */
+    public void televerserImage(FileUploadEvent event) {
+        try (InputStream contenu = event.getFile().getInputStream()) {
+            nouveauProduit.setImage(imageStore.enregistrer(contenu));
+            nouveauProduit.setPhoto(null);
+        } catch (IOException e) {
+            addErrorMessage("Image invalide : " + e.getMessage());
+        }
+    }
+
     public void modifierProduit(Produit produit) {
         this.nouveauProduit = em.find(Produit.class, produit.getId());
         this.categorieId = nouveauProduit.getCategorie() != null ?
@@ -136,6 +190,7 @@ public class ProduitBean implements Serializable {  // ← AJOUTÉ Serializable
                         .setParameter("produitId", id)
                         .executeUpdate();
                 em.remove(produit);
+                evenementsProduit.fire(ProduitEvenement.supprime(id));
                 chargerProduits();
                 addInfoMessage("Produit supprimé !");
             }
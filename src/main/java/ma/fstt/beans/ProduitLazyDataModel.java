@@ -0,0 +1,84 @@
+package ma.fstt.beans;
+
+import ma.fstt.model.Produit;
+import ma.fstt.service.CritereProduit;
+import ma.fstt.service.ProduitService;
+import org.primefaces.model.FilterMeta;
+import org.primefaces.model.LazyDataModel;
+import org.primefaces.model.SortMeta;
+import org.primefaces.model.SortOrder;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Modèle paresseux (lazy) pour la grille du catalogue et le tableau admin
+ * PrimeFaces ne demande que la page visible : le tri, les filtres et la pagination
+ * sont délégués à la base via ProduitService.
+ */
+public class ProduitLazyDataModel extends LazyDataModel<Produit> {
+
+    private static final long serialVersionUID = 1L;
+
+    private final ProduitService produitService;
+    private final CritereProduit critere; // Critères de la vue (recherche, catégorie)
+
+    public ProduitLazyDataModel(ProduitService produitService, CritereProduit critere) {
+        this.produitService = produitService;
+        this.critere = critere;
+    }
+
+    @Override
+    public int count(Map<String, FilterMeta> filterBy) {
+        return (int) produitService.compter(appliquerFiltres(filterBy));
+    }
+
+    @Override
+    public List<Produit> load(int first, int pageSize, Map<String, SortMeta> sortBy, Map<String, FilterMeta> filterBy) {
+        String champTri = null;
+        boolean croissant = true;
+        // Un seul critère de tri est géré : celui de plus haute priorité
+        SortMeta tri = sortBy.values().stream()
+                .filter(SortMeta::isActive)
+                .sorted()
+                .findFirst()
+                .orElse(null);
+        if (tri != null) {
+            champTri = tri.getField();
+            croissant = tri.getOrder() == SortOrder.ASCENDING;
+        }
+        return produitService.charger(appliquerFiltres(filterBy), first, pageSize, champTri, croissant);
+    }
+
+    @Override
+    public String getRowKey(Produit produit) {
+        return String.valueOf(produit.getId());
+    }
+
+    @Override
+    public Produit getRowData(String rowKey) {
+        List<Produit> page = getWrappedData();
+        if (page == null) {
+            return null;
+        }
+        return page.stream()
+                .filter(p -> String.valueOf(p.getId()).equals(rowKey))
+                .findFirst()
+                .orElse(null);
+    }
+
+    /**
+     * Ajoute les filtres de colonnes du tableau aux critères de la vue
+     */
+    private CritereProduit appliquerFiltres(Map<String, FilterMeta> filterBy) {
+        CritereProduit resultat = critere.copie();
+        if (filterBy == null) {
+            return resultat;
+        }
+        FilterMeta filtreNom = filterBy.get("nom");
+        if (filtreNom != null && filtreNom.isActive()) {
+            resultat.setNom(String.valueOf(filtreNom.getFilterValue()));
+        }
+        return resultat;
+    }
+}
@@ -0,0 +1,81 @@
+package ma.fstt.beans;
+
+import jakarta.faces.context.FacesContext;
+import jakarta.faces.view.ViewScoped;
+import jakarta.inject.Inject;
+import jakarta.inject.Named;
+import lombok.Getter;
+import lombok.Setter;
+import ma.fstt.admission.Admission;
+import ma.fstt.admission.ControleurAdmission;
+import ma.fstt.model.Produit;
+import ma.fstt.service.CatalogueService;
+
+import java.io.Serializable;
+
+/**
+ * Salle d'attente d'un produit en vente flash
+ * La page s'actualise toutes les quelques secondes : chaque actualisation garde la place du client
+ * dans la file et affiche sa position. Une fois admis, le produit est ajouté à son panier.
+ */
+@Named
+@ViewScoped
+@Getter
+@Setter
+public class SalleAttenteBean implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    @Inject
+    private ControleurAdmission controleurAdmission;
+
+    @Inject
+    private CatalogueService catalogueService;
+
+    @Inject
+    private AuthBean authBean;
+
+    @Inject
+    private PanierBean panierBean;
+
+    private Long produitId; // Paramètre de la vue (?produit=...)
+    private Admission admission;
+
+    /**
+     * Appelée à l'ouverture de la page puis par l'actualisation périodique
+     */
+    public void actualiser() {
+        if (!authBean.estConnecte()) {
+            naviguer("login?faces-redirect=true");
+            return;
+        }
+        if (produitId == null || getProduit() == null) {
+            naviguer("index?faces-redirect=true");
+            return;
+        }
+        admission = controleurAdmission.demander(authBean.getInternauteConnecte().getId(), produitId);
+        if (admission.estAdmis()) {
+            String destination = panierBean.ajouterAuPanier(produitId);
+            if (destination != null) {
+                naviguer(destination);
+            }
+        }
+    }
+
+    public Produit getProduit() {
+        return produitId != null ? catalogueService.getSnapshot().getProduit(produitId) : null;
+    }
+
+    public boolean isEnAttente() {
+        return admission != null && admission.estEnAttente();
+    }
+
+    public boolean isRefuse() {
+        return admission != null && admission.getDecision() == Admission.Decision.REFUSE;
+    }
+
+    private void naviguer(String destination) {
+        FacesContext facesContext = FacesContext.getCurrentInstance();
+        facesContext.getApplication().getNavigationHandler().handleNavigation(facesContext, null, destination);
+    }
+}
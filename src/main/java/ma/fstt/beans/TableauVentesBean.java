@@ -0,0 +1,103 @@
+package ma.fstt.beans;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.faces.application.FacesMessage;
+import jakarta.faces.context.FacesContext;
+import jakarta.faces.view.ViewScoped;
+import jakarta.inject.Inject;
+import jakarta.inject.Named;
+import lombok.Getter;
+import lombok.Setter;
+import ma.fstt.config.Parametres;
+import ma.fstt.ventes.CumulVentes;
+import ma.fstt.ventes.CumulsVentes;
+import ma.fstt.ventes.ReconstructionVentes;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Tableau de bord des ventes (admin) : lit uniquement les cumuls par jour
+ */
+@Named
+@ViewScoped
+@Getter
+@Setter
+public class TableauVentesBean implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    @Inject
+    private CumulsVentes cumulsVentes;
+
+    @Inject
+    private ReconstructionVentes reconstructionVentes;
+
+    @Inject
+    private AuthBean authBean;
+
+    private LocalDate du;
+    private LocalDate au;
+
+    private List<CumulVentes> parJour = Collections.emptyList();
+    private List<CumulVentes> parCategorie = Collections.emptyList();
+    private List<CumulVentes> parProduit = Collections.emptyList();
+    private List<CumulVentes> parStatut = Collections.emptyList();
+    private CumulVentes total;
+
+    @PostConstruct
+    public void init() {
+        au = LocalDate.now();
+        du = au.minusDays(29);
+        actualiser();
+    }
+
+    public void actualiser() {
+        if (du == null || au == null || du.isAfter(au)) {
+            addErrorMessage("Période invalide");
+            return;
+        }
+        parJour = cumulsVentes.parJour(du, au);
+        parCategorie = cumulsVentes.parCategorie(du, au);
+        parProduit = cumulsVentes.parProduit(du, au, (int) Parametres.nombre("ventes.tableau.produits", 20));
+        parStatut = cumulsVentes.parStatut(du, au);
+        long commandes = 0, quantite = 0, montant = 0;
+        for (CumulVentes jour : parJour) {
+            commandes += jour.getNombreCommandes();
+            quantite += jour.getQuantite();
+            montant += jour.getMontantCentimes();
+        }
+        total = new CumulVentes("Total", commandes, quantite, montant);
+    }
+
+    /**
+     * Recalcule tous les cumuls depuis l'historique des commandes (en tâche de fond)
+     */
+    public void reconstruire() {
+        if (!authBean.estAdmin()) {
+            addErrorMessage("Accès réservé aux administrateurs");
+            return;
+        }
+        if (reconstructionVentes.lancerTout()) {
+            addInfoMessage("Reconstruction des cumuls lancée");
+        } else {
+            addErrorMessage("Une reconstruction est déjà en cours");
+        }
+    }
+
+    public ReconstructionVentes getReconstruction() {
+        return reconstructionVentes;
+    }
+
+    private void addInfoMessage(String message) {
+        FacesContext.getCurrentInstance().addMessage(null,
+                new FacesMessage(FacesMessage.SEVERITY_INFO, "Succès", message));
+    }
+
+    private void addErrorMessage(String message) {
+        FacesContext.getCurrentInstance().addMessage(null,
+                new FacesMessage(FacesMessage.SEVERITY_ERROR, "Erreur", message));
+    }
+}
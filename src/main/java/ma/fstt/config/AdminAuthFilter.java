@@ -5,10 +5,15 @@ import jakarta.servlet.annotation.WebFilter;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import ma.fstt.beans.AuthBean;
+import ma.fstt.beans.InternauteConnecte;
 
 import java.io.IOException;
 
-@WebFilter(filterName = "AdminAuthFilter", urlPatterns = {"/admin-produits.xhtml", "/categories.xhtml", "/admin-commandes.xhtml"})
+// Chaque page avec et sans extension : AUTOMATIC_EXTENSIONLESS_MAPPING sert aussi "/admin-import"
+@WebFilter(filterName = "AdminAuthFilter", urlPatterns = {
+        "/admin-produits.xhtml", "/admin-produits", "/categories.xhtml", "/categories",
+        "/admin-commandes.xhtml", "/admin-commandes", "/admin-cache.xhtml", "/admin-cache",
+        "/admin-import.xhtml", "/admin-import", "/admin-ventes.xhtml", "/admin-ventes", "/export/*"})
 public class AdminAuthFilter implements Filter {
 
     @Override
@@ -18,11 +23,11 @@ public class AdminAuthFilter implements Filter {
         HttpServletRequest req = (HttpServletRequest) request;
         HttpServletResponse res = (HttpServletResponse) response;
 
-        // Get AuthBean from session
-        AuthBean authBean = (AuthBean) req.getSession().getAttribute("authBean");
+        // Get the logged-in user from session
+        InternauteConnecte internaute = (InternauteConnecte) req.getSession().getAttribute(AuthBean.ATTRIBUT_SESSION);
 
         // Check if user is logged in and is an admin
-        if (authBean != null && authBean.estConnecte() && "ADMIN".equals(authBean.getInternauteConnecte().getRole())) {
+        if (internaute != null && internaute.estAdmin()) {
             // User is admin, allow access
             chain.doFilter(request, response);
         } else {
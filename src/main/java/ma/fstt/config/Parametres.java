@@ -0,0 +1,59 @@
+package ma.fstt.config;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Properties;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Paramètres de l'application
+ * Lus dans atelier3.properties (classpath) ; une propriété système de même nom
+ * (-Dimages.repertoire=...) remplace la valeur du fichier.
+ */
+public final class Parametres {
+
+    private static final Logger LOGGER = Logger.getLogger(Parametres.class.getName());
+    private static final Properties PROPRIETES = new Properties();
+
+    static {
+        try (InputStream entree = Parametres.class.getClassLoader().getResourceAsStream("atelier3.properties")) {
+            if (entree != null) {
+                PROPRIETES.load(entree);
+            }
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Impossible de lire atelier3.properties", e);
+        }
+    }
+
+    private Parametres() {
+    }
+
+    public static String texte(String cle, String defaut) {
+        String valeur = System.getProperty(cle, PROPRIETES.getProperty(cle));
+        if (valeur == null || valeur.isBlank()) {
+            return defaut;
+        }
+        // ${user.home} et autres propriétés système sont remplacées
+        for (String nom : new String[]{"user.home", "java.io.tmpdir", "jboss.server.data.dir"}) {
+            String remplacement = System.getProperty(nom);
+            if (remplacement != null) {
+                valeur = valeur.replace("${" + nom + "}", remplacement);
+            }
+        }
+        return valeur.trim();
+    }
+
+    public static long nombre(String cle, long defaut) {
+        try {
+            return Long.parseLong(texte(cle, String.valueOf(defaut)));
+        } catch (NumberFormatException e) {
+            LOGGER.warning("Valeur numérique invalide pour " + cle + ", valeur par défaut utilisée");
+            return defaut;
+        }
+    }
+
+    public static boolean booleen(String cle, boolean defaut) {
+        return Boolean.parseBoolean(texte(cle, String.valueOf(defaut)));
+    }
+}
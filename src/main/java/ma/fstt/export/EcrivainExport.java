@@ -0,0 +1,138 @@
+package ma.fstt.export;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.time.temporal.TemporalAccessor;
+
+/**
+ * Écriture d'un export, une ligne à la fois (rien n'est gardé en mémoire)
+ * - CSV : séparateur ";", en-tête, champs entre guillemets si nécessaire (RFC 4180)
+ * - NDJSON : un objet JSON par ligne, les colonnes comme clés
+ */
+public abstract class EcrivainExport {
+
+    protected final Writer sortie;
+    protected String[] colonnes;
+
+    protected EcrivainExport(Writer sortie) {
+        this.sortie = sortie;
+    }
+
+    public static EcrivainExport pour(String format, Writer sortie) {
+        return "ndjson".equals(format) ? new Ndjson(sortie) : new Csv(sortie);
+    }
+
+    public static String extension(String format) {
+        return "ndjson".equals(format) ? "ndjson" : "csv";
+    }
+
+    public void entete(String... colonnes) throws IOException {
+        this.colonnes = colonnes;
+    }
+
+    public abstract void ligne(Object[] valeurs) throws IOException;
+
+    protected static String texte(Object valeur) {
+        if (valeur instanceof TemporalAccessor || valeur instanceof Enum) {
+            return valeur.toString();
+        }
+        return String.valueOf(valeur);
+    }
+
+    private static final class Csv extends EcrivainExport {
+
+        private Csv(Writer sortie) {
+            super(sortie);
+        }
+
+        @Override
+        public void entete(String... colonnes) throws IOException {
+            super.entete(colonnes);
+            ligne(colonnes);
+        }
+
+        @Override
+        public void ligne(Object[] valeurs) throws IOException {
+            for (int i = 0; i < valeurs.length; i++) {
+                if (i > 0) {
+                    sortie.write(';');
+                }
+                if (valeurs[i] != null) {
+                    champ(texte(valeurs[i]));
+                }
+            }
+            sortie.write("\r\n");
+        }
+
+        private void champ(String valeur) throws IOException {
+            boolean guillemets = valeur.indexOf(';') >= 0 || valeur.indexOf('"') >= 0
+                    || valeur.indexOf('\n') >= 0 || valeur.indexOf('\r') >= 0;
+            if (!guillemets) {
+                sortie.write(valeur);
+                return;
+            }
+            sortie.write('"');
+            sortie.write(valeur.replace("\"", "\"\""));
+            sortie.write('"');
+        }
+    }
+
+    private static final class Ndjson extends EcrivainExport {
+
+        private Ndjson(Writer sortie) {
+            super(sortie);
+        }
+
+        @Override
+        public void ligne(Object[] valeurs) throws IOException {
+            sortie.write('{');
+            for (int i = 0; i < valeurs.length; i++) {
+                if (i > 0) {
+                    sortie.write(',');
+                }
+                chaine(colonnes[i]);
+                sortie.write(':');
+                Object valeur = valeurs[i];
+                if (valeur == null) {
+                    sortie.write("null");
+                } else if (valeur instanceof Number || valeur instanceof Boolean) {
+                    sortie.write(valeur.toString());
+                } else {
+                    chaine(texte(valeur));
+                }
+            }
+            sortie.write("}\n");
+        }
+
+        private void chaine(String valeur) throws IOException {
+            sortie.write('"');
+            for (int i = 0; i < valeur.length(); i++) {
+                char c = valeur.charAt(i);
+                switch (c) {
+                    case '"':
+                        sortie.write("\\\"");
+                        break;
+                    case '\\':
+                        sortie.write("\\\\");
+                        break;
+                    case '\n':
+                        sortie.write("\\n");
+                        break;
+                    case '\r':
+                        sortie.write("\\r");
+                        break;
+                    case '\t':
+                        sortie.write("\\t");
+                        break;
+                    default:
+                        if (c < 0x20) {
+                            sortie.write(String.format("\\u%04x", (int) c));
+                        } else {
+                            sortie.write(c);
+                        }
+                }
+            }
+            sortie.write('"');
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package ma.fstt.export;
+
+import jakarta.annotation.Resource;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.PersistenceUnit;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.annotation.WebServlet;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.transaction.NotSupportedException;
+import jakarta.transaction.SystemException;
+import jakarta.transaction.UserTransaction;
+import ma.fstt.beans.AuthBean;
+import ma.fstt.beans.InternauteConnecte;
+import ma.fstt.config.Parametres;
+import ma.fstt.model.Commande;
+import ma.fstt.service.CommandeService;
+import ma.fstt.service.CritereCommande;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
+import org.hibernate.query.SelectionQuery;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Exports complets pour la comptabilité : /export/{produits|commandes|lignes-commande}
+ * Paramètres : format=csv|ndjson ; pour les commandes et leurs lignes : du, au (AAAA-MM-JJ),
+ * statut, client (filtres appliqués dans la requête SQL, comme l'écran admin des commandes).
+ * Les commandes archivées sont exportées aussi, avant les commandes en cours, dans la même
+ * transaction en lecture seule (REPEATABLE READ) : l'archivage nocturne ne décale rien en cours d'export.
+ *
+ * Les lignes vont directement du curseur de la base au flux de réponse, compressé en gzip :
+ * - session sans état (aucun contexte de persistance à vider, aucune entité gardée)
+ * - projections scalaires, curseur en avant seulement
+ * - fetchSize = Integer.MIN_VALUE : le pilote MySQL lit les lignes en flux au lieu de charger
+ *   tout le résultat
+ */
+@WebServlet(name = "ExportServlet", urlPatterns = "/export/*")
+public class ExportServlet extends HttpServlet {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final Logger LOGGER = Logger.getLogger(ExportServlet.class.getName());
+
+    private static final int LECTURE_EN_FLUX = Integer.MIN_VALUE;
+
+    // Durée maximale d'un export (secondes) : la lecture se fait dans une seule transaction
+    private static final int DUREE_TRANSACTION = (int) Parametres.nombre("export.transaction.secondes", 3600);
+
+    @PersistenceUnit(unitName = "mycnx")
+    private EntityManagerFactory emf;
+
+    @Resource
+    private UserTransaction transaction;
+
+    @Override
+    protected void doGet(HttpServletRequest request, HttpServletResponse response)
+            throws IOException, ServletException {
+        InternauteConnecte internaute = request.getSession(false) != null
+                ? (InternauteConnecte) request.getSession(false).getAttribute(AuthBean.ATTRIBUT_SESSION) : null;
+        if (internaute == null || !internaute.estAdmin()) {
+            response.sendError(HttpServletResponse.SC_FORBIDDEN);
+            return;
+        }
+
+        String type = request.getPathInfo() != null ? request.getPathInfo().substring(1) : "";
+        List<String> requetes = new ArrayList<>();
+        Map<String, Object> parametres = new HashMap<>();
+        String[] colonnes;
+        CritereCommande critere;
+        switch (type) {
+            case "produits":
+                requetes.add("SELECT p.id, p.reference, p.nom, p.description, p.prix, p.stock, cat.nom"
+                        + " FROM Produit p LEFT JOIN p.categorie cat ORDER BY p.id");
+                colonnes = new String[]{"id", "reference", "nom", "description", "prix", "stock", "categorie"};
+                break;
+            case "commandes":
+                if ((critere = critere(request, response)) == null) {
+                    return;
+                }
+                // Commandes archivées (les plus anciennes) puis commandes en cours
+                for (String entite : new String[]{"CommandeArchivee", "Commande"}) {
+                    StringBuilder jpql = new StringBuilder("SELECT c.id, c.dateCommande, c.statut, c.montantTotal,"
+                            + " i.id, i.email, c.adresseLivraison FROM " + entite + " c JOIN c.internaute i WHERE 1 = 1");
+                    CommandeService.filtrer(critere, jpql, parametres);
+                    requetes.add(jpql.append(" ORDER BY c.id").toString());
+                }
+                colonnes = new String[]{"id", "date", "statut", "montant", "client_id", "client_email", "adresse"};
+                break;
+            case "lignes-commande":
+                if ((critere = critere(request, response)) == null) {
+                    return;
+                }
+                StringBuilder archivees = new StringBuilder("SELECT l.id, c.id, c.dateCommande, l.produitId, p.reference,"
+                        + " l.produitNom, l.quantite, l.prixUnitaire FROM LigneCommandeArchivee l JOIN l.commande c"
+                        + " JOIN c.internaute i LEFT JOIN Produit p ON p.id = l.produitId WHERE 1 = 1");
+                CommandeService.filtrer(critere, archivees, parametres);
+                requetes.add(archivees.append(" ORDER BY l.id").toString());
+                StringBuilder courantes = new StringBuilder("SELECT l.id, c.id, c.dateCommande, p.id, p.reference,"
+                        + " p.nom, l.quantite, l.prixUnitaire FROM LigneCommande l JOIN l.commande c"
+                        + " JOIN c.internaute i JOIN l.produit p WHERE 1 = 1");
+                CommandeService.filtrer(critere, courantes, parametres);
+                requetes.add(courantes.append(" ORDER BY l.id").toString());
+                colonnes = new String[]{"id", "commande_id", "date_commande", "produit_id", "produit_reference",
+                        "produit_nom", "quantite", "prix_unitaire"};
+                break;
+            default:
+                response.sendError(HttpServletResponse.SC_NOT_FOUND);
+                return;
+        }
+
+        String format = "ndjson".equals(request.getParameter("format")) ? "ndjson" : "csv";
+        String fichier = type + "-" + LocalDate.now() + "." + EcrivainExport.extension(format) + ".gz";
+        response.setContentType("application/gzip");
+        response.setHeader("Content-Disposition", "attachment; filename=\"" + fichier + "\"");
+        response.setHeader("Cache-Control", "no-store");
+
+        try {
+            transaction.setTransactionTimeout(DUREE_TRANSACTION);
+            transaction.begin();
+        } catch (NotSupportedException | SystemException e) {
+            throw new ServletException("Transaction d'export impossible", e);
+        }
+        long lignes = 0;
+        try (StatelessSession session = emf.unwrap(SessionFactory.class).openStatelessSession()) {
+            // Un seul instantané pour toutes les requêtes (archives puis commandes en cours) :
+            // une commande archivée pendant l'export n'apparaît ni deux fois ni pas du tout
+            session.doWork(connexion -> {
+                connexion.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+                connexion.setReadOnly(true);
+            });
+            // Pas de try-with-resources sur le flux : seule une fin normale écrit la fin du gzip
+            Writer sortie = new BufferedWriter(new OutputStreamWriter(
+                    new GZIPOutputStream(response.getOutputStream(), 64 * 1024), StandardCharsets.UTF_8), 64 * 1024);
+            EcrivainExport ecrivain = EcrivainExport.pour(format, sortie);
+            ecrivain.entete(colonnes);
+            for (String jpql : requetes) {
+                SelectionQuery<Object[]> requete = session.createSelectionQuery(jpql, Object[].class);
+                parametres.forEach(requete::setParameter);
+                requete.setFetchSize(LECTURE_EN_FLUX);
+                try (ScrollableResults<Object[]> resultats = requete.scroll(ScrollMode.FORWARD_ONLY)) {
+                    while (resultats.next()) {
+                        ecrivain.ligne(resultats.get());
+                        lignes++;
+                    }
+                }
+            }
+            sortie.close();
+        } catch (IOException e) {
+            // Téléchargement interrompu par le client : le curseur est fermé, rien d'autre à faire
+            LOGGER.log(Level.FINE, "Export " + type + " interrompu après " + lignes + " lignes", e);
+            return;
+        } catch (RuntimeException e) {
+            // Erreur de la base en cours de lecture : le fichier ne doit pas paraître complet
+            LOGGER.log(Level.SEVERE, "Export " + type + " en échec après " + lignes + " lignes", e);
+            if (!response.isCommitted()) {
+                response.reset();
+                response.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+                return;
+            }
+            // Réponse déjà partie : l'exception coupe la connexion sans terminer le gzip
+            throw new ServletException("Export " + type + " interrompu", e);
+        } finally {
+            terminer();
+        }
+        LOGGER.info("Export " + type + " (" + format + ") : " + lignes + " lignes");
+    }
+
+    /**
+     * Fin de la transaction de lecture : rien n'a été écrit, elle est simplement annulée
+     */
+    private void terminer() {
+        try {
+            transaction.rollback();
+        } catch (SystemException | RuntimeException e) {
+            LOGGER.log(Level.WARNING, "Fin de la transaction d'export", e);
+        }
+    }
+
+    /**
+     * Filtres des commandes lus dans la requête HTTP ; répond 400 (et renvoie null) si l'un est invalide
+     */
+    private static CritereCommande critere(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        CritereCommande critere = new CritereCommande();
+        try {
+            String statut = request.getParameter("statut");
+            critere.setStatut(statut == null || statut.isBlank() ? null : Commande.StatutCommande.valueOf(statut));
+            critere.setClient(request.getParameter("client"));
+            critere.setDu(date(request.getParameter("du")));
+            critere.setAu(date(request.getParameter("au")));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Filtre invalide : " + e.getMessage());
+            return null;
+        }
+        return critere;
+    }
+
+    private static LocalDate date(String valeur) {
+        return valeur == null || valeur.isBlank() ? null : LocalDate.parse(valeur);
+    }
+}
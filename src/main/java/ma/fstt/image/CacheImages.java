@@ -0,0 +1,41 @@
+package ma.fstt.image;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import ma.fstt.config.Parametres;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Cache mémoire LRU des miniatures les plus demandées
+ * Borné en octets (images.cache.octets) : les images les moins récemment servies
+ * sont retirées en premier. Les fichiers étant immuables, aucune invalidation n'est nécessaire.
+ */
+@ApplicationScoped
+public class CacheImages {
+
+    private final long capacite = Parametres.nombre("images.cache.octets", 32L * 1024 * 1024);
+
+    // Ordre d'accès : le premier élément est le moins récemment utilisé
+    private final LinkedHashMap<String, byte[]> images = new LinkedHashMap<>(256, 0.75f, true);
+    private long taille;
+
+    public synchronized byte[] lire(String cle) {
+        return images.get(cle);
+    }
+
+    public synchronized void ajouter(String cle, byte[] contenu) {
+        if (contenu.length > capacite / 4) {
+            return; // Une seule image ne doit pas vider le cache
+        }
+        byte[] ancien = images.put(cle, contenu);
+        taille += contenu.length - (ancien != null ? ancien.length : 0);
+
+        var iterateur = images.entrySet().iterator();
+        while (taille > capacite && iterateur.hasNext()) {
+            Map.Entry<String, byte[]> plusAncien = iterateur.next();
+            taille -= plusAncien.getValue().length;
+            iterateur.remove();
+        }
+    }
+}
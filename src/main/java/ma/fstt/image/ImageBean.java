@@ -0,0 +1,37 @@
+package ma.fstt.image;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Named;
+import ma.fstt.model.Produit;
+
+import java.util.Locale;
+
+/**
+ * Construit les URL des images de produits pour les vues
+ * Exemple : #{images.url(produit, 'carte')}
+ */
+@Named("images")
+@ApplicationScoped
+public class ImageBean {
+
+    /**
+     * URL de l'image du produit dans la taille demandée (miniature, carte, grande),
+     * l'ancienne URL libre pour les produits pas encore migrés, ou null sans image
+     */
+    public String url(Produit produit, String taille) {
+        if (produit == null) {
+            return null;
+        }
+        if (ImageStore.estEmpreinte(produit.getImage())) {
+            TailleImage tailleImage = TailleImage.depuisSegment(taille.toLowerCase(Locale.ROOT));
+            String segment = (tailleImage != null ? tailleImage : TailleImage.CARTE).getSegment();
+            // Chemin relatif au contexte : le composant graphicImage ajoute le contexte de l'application
+            return "/images/" + segment + "/" + produit.getImage() + ".jpg";
+        }
+        return produit.getPhoto() == null || produit.getPhoto().isBlank() ? null : produit.getPhoto();
+    }
+
+    public boolean existe(Produit produit) {
+        return url(produit, TailleImage.MINIATURE.getSegment()) != null;
+    }
+}
@@ -0,0 +1,112 @@
+package ma.fstt.image;
+
+import jakarta.inject.Inject;
+import jakarta.servlet.annotation.WebServlet;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Sert les images des produits : /images/{taille}/{empreinte}.jpg
+ *
+ * - ETag fort = empreinte + taille (le contenu d'une URL ne change jamais)
+ * - Cache navigateur d'un an, "immutable" : pas de revalidation
+ * - Miniatures les plus demandées servies depuis la mémoire (CacheImages)
+ * - Les autres fichiers sont transférés par FileChannel.transferTo : envoi direct par le
+ *   noyau quand le canal de sortie le permet, sinon copie par blocs gérée par le JDK
+ */
+@WebServlet(name = "ImageServlet", urlPatterns = "/images/*")
+public class ImageServlet extends HttpServlet {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final String CACHE_CONTROL = "public, max-age=31536000, immutable";
+
+    @Inject
+    private ImageStore imageStore;
+
+    @Inject
+    private CacheImages cacheImages;
+
+    @Override
+    protected void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        // Chemin attendu : /{taille}/{empreinte}.jpg
+        String chemin = request.getPathInfo();
+        String[] segments = chemin == null ? new String[0] : chemin.split("/");
+        if (segments.length != 3 || !segments[2].endsWith(".jpg")) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        TailleImage taille = TailleImage.depuisSegment(segments[1]);
+        String empreinte = segments[2].substring(0, segments[2].length() - 4);
+        Path fichier = taille == null ? null : imageStore.chemin(empreinte, taille);
+        if (fichier == null) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+
+        // Existence vérifiée avant l'ETag : une image absente répond 404, jamais 304
+        String cle = taille.getSegment() + "/" + empreinte;
+        byte[] enMemoire = taille.isCacheable() ? cacheImages.lire(cle) : null;
+        if (enMemoire == null && !Files.exists(fichier)) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+
+        String etag = "\"" + empreinte + "-" + taille.getSegment() + "\"";
+        response.setHeader("ETag", etag);
+        response.setHeader("Cache-Control", CACHE_CONTROL);
+        if (correspond(request.getHeader("If-None-Match"), etag)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        if (enMemoire == null && taille.isCacheable()) {
+            enMemoire = Files.readAllBytes(fichier);
+            cacheImages.ajouter(cle, enMemoire);
+        }
+
+        response.setContentType("image/jpeg");
+        if (enMemoire != null) {
+            response.setContentLength(enMemoire.length);
+            response.getOutputStream().write(enMemoire);
+            return;
+        }
+
+        try (FileChannel canal = FileChannel.open(fichier, StandardOpenOption.READ)) {
+            long longueur = canal.size();
+            response.setContentLengthLong(longueur);
+            OutputStream sortie = response.getOutputStream();
+            WritableByteChannel destination = Channels.newChannel(sortie);
+            long position = 0;
+            while (position < longueur) {
+                position += canal.transferTo(position, longueur - position, destination);
+            }
+        }
+    }
+
+    /**
+     * If-None-Match peut contenir plusieurs ETags séparés par des virgules, ou *
+     */
+    private static boolean correspond(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String valeur : ifNoneMatch.split(",")) {
+            String candidat = valeur.trim();
+            if (candidat.equals("*") || candidat.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,201 @@
+package ma.fstt.image;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import ma.fstt.config.Parametres;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.regex.Pattern;
+
+/**
+ * Stockage local des images de produits, adressé par contenu
+ * Chaque image est identifiée par l'empreinte SHA-256 de son fichier original :
+ * deux envois identiques donnent la même image, et un fichier stocké ne change jamais
+ * (ce qui permet une mise en cache navigateur illimitée).
+ *
+ * Arborescence : {repertoire}/originaux/ab/{empreinte}
+ *                {repertoire}/{taille}/ab/{empreinte}.jpg
+ */
+@ApplicationScoped
+public class ImageStore {
+
+    private static final Pattern EMPREINTE = Pattern.compile("[0-9a-f]{64}");
+    private static final float QUALITE_JPEG = 0.85f;
+    private static final long PIXELS_MAX = Parametres.nombre("images.pixels.max", 40_000_000);
+
+    private final Path repertoire = Paths.get(Parametres.texte("images.repertoire",
+            System.getProperty("user.home") + "/atelier3/images"));
+
+    /**
+     * Enregistre une image et génère toutes ses tailles
+     *
+     * @return empreinte SHA-256 de l'image (à stocker dans Produit.image)
+     * @throws IOException si le fichier n'est pas une image lisible
+     */
+    public String enregistrer(InputStream contenu) throws IOException {
+        Files.createDirectories(repertoire.resolve("tmp"));
+        Path temporaire = Files.createTempFile(repertoire.resolve("tmp"), "envoi", ".tmp");
+        try {
+            // Copie en flux en calculant l'empreinte au passage
+            MessageDigest sha256 = sha256();
+            try (InputStream entree = new DigestInputStream(contenu, sha256)) {
+                Files.copy(entree, temporaire, StandardCopyOption.REPLACE_EXISTING);
+            }
+            String empreinte = HexFormat.of().formatHex(sha256.digest());
+
+            verifierDimensions(temporaire);
+            BufferedImage image = ImageIO.read(temporaire.toFile());
+            if (image == null) {
+                throw new IOException("Format d'image non reconnu");
+            }
+
+            Path original = cheminOriginal(empreinte);
+            if (!Files.exists(original)) {
+                Files.createDirectories(original.getParent());
+                deplacer(temporaire, original);
+            }
+            for (TailleImage taille : TailleImage.values()) {
+                Path chemin = chemin(empreinte, taille);
+                if (!Files.exists(chemin)) {
+                    ecrireMiniature(image, taille.getDimension(), chemin);
+                }
+            }
+            return empreinte;
+        } finally {
+            Files.deleteIfExists(temporaire);
+        }
+    }
+
+    /**
+     * Lit les dimensions dans l'en-tête, sans décoder les pixels : une image trop grande
+     * est refusée avant d'allouer sa mémoire
+     */
+    private void verifierDimensions(Path fichier) throws IOException {
+        try (ImageInputStream flux = ImageIO.createImageInputStream(fichier.toFile())) {
+            Iterator<ImageReader> lecteurs = flux == null ? null : ImageIO.getImageReaders(flux);
+            if (lecteurs == null || !lecteurs.hasNext()) {
+                throw new IOException("Format d'image non reconnu");
+            }
+            ImageReader lecteur = lecteurs.next();
+            try {
+                lecteur.setInput(flux, true, true);
+                long pixels = (long) lecteur.getWidth(0) * lecteur.getHeight(0);
+                if (pixels > PIXELS_MAX) {
+                    throw new IOException("Image trop grande : " + lecteur.getWidth(0) + "x" + lecteur.getHeight(0));
+                }
+            } finally {
+                lecteur.dispose();
+            }
+        }
+    }
+
+    /**
+     * Fichier d'une taille donnée, ou null si l'empreinte est invalide
+     */
+    public Path chemin(String empreinte, TailleImage taille) {
+        if (!estEmpreinte(empreinte)) {
+            return null;
+        }
+        return repertoire.resolve(taille.getSegment()).resolve(empreinte.substring(0, 2)).resolve(empreinte + ".jpg");
+    }
+
+    public static boolean estEmpreinte(String valeur) {
+        return valeur != null && EMPREINTE.matcher(valeur).matches();
+    }
+
+    private Path cheminOriginal(String empreinte) {
+        return repertoire.resolve("originaux").resolve(empreinte.substring(0, 2)).resolve(empreinte);
+    }
+
+    /**
+     * Redimensionne (sans agrandir) en gardant les proportions et écrit un JPEG
+     * Écrit dans un fichier temporaire puis déplace : un lecteur ne voit jamais un fichier partiel.
+     */
+    private void ecrireMiniature(BufferedImage source, int dimension, Path destination) throws IOException {
+        double echelle = Math.min(1.0, (double) dimension / Math.max(source.getWidth(), source.getHeight()));
+        int largeur = Math.max(1, (int) Math.round(source.getWidth() * echelle));
+        int hauteur = Math.max(1, (int) Math.round(source.getHeight() * echelle));
+
+        BufferedImage courante = source;
+        // Réductions successives par moitié : meilleur rendu qu'une seule réduction bilinéaire
+        while (courante.getWidth() / 2 >= largeur && courante.getHeight() / 2 >= hauteur) {
+            courante = redimensionner(courante, courante.getWidth() / 2, courante.getHeight() / 2);
+        }
+        courante = redimensionner(courante, largeur, hauteur);
+
+        Files.createDirectories(destination.getParent());
+        Path temporaire = Files.createTempFile(destination.getParent(), "miniature", ".tmp");
+        try {
+            ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+            ImageWriteParam parametres = writer.getDefaultWriteParam();
+            parametres.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            parametres.setCompressionQuality(QUALITE_JPEG);
+            try (OutputStream sortie = Files.newOutputStream(temporaire);
+                 ImageOutputStream flux = ImageIO.createImageOutputStream(sortie)) {
+                writer.setOutput(flux);
+                writer.write(null, new IIOImage(courante, null, null), parametres);
+            } finally {
+                writer.dispose();
+            }
+            deplacer(temporaire, destination);
+        } finally {
+            Files.deleteIfExists(temporaire);
+        }
+    }
+
+    /**
+     * Copie redimensionnée sur fond blanc (le JPEG n'a pas de transparence)
+     */
+    private BufferedImage redimensionner(BufferedImage source, int largeur, int hauteur) {
+        BufferedImage resultat = new BufferedImage(largeur, hauteur, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = resultat.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.setColor(Color.WHITE);
+            graphics.fillRect(0, 0, largeur, hauteur);
+            graphics.drawImage(source, 0, 0, largeur, hauteur, null);
+        } finally {
+            graphics.dispose();
+        }
+        return resultat;
+    }
+
+    private static void deplacer(Path source, Path destination) throws IOException {
+        try {
+            Files.move(source, destination, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, destination, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 indisponible", e);
+        }
+    }
+}
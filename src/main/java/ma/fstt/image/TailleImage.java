@@ -0,0 +1,38 @@
+package ma.fstt.image;
+
+import lombok.Getter;
+
+import java.util.Locale;
+
+/**
+ * Tailles d'images générées à l'enregistrement d'une photo de produit
+ * La dimension est le plus grand côté, en pixels. Le fichier original est conservé
+ * à part (ImageStore) et n'est pas servi tel quel.
+ */
+@Getter
+public enum TailleImage {
+    MINIATURE(80, true),  // Tableau admin, panier
+    CARTE(240, true),     // Grille de la vitrine
+    GRANDE(800, false);
+
+    private final int dimension;
+    private final boolean cacheable; // Gardée dans le cache mémoire des images les plus demandées
+
+    TailleImage(int dimension, boolean cacheable) {
+        this.dimension = dimension;
+        this.cacheable = cacheable;
+    }
+
+    public String getSegment() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+
+    public static TailleImage depuisSegment(String segment) {
+        for (TailleImage taille : values()) {
+            if (taille.getSegment().equals(segment)) {
+                return taille;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,98 @@
+package ma.fstt.importation;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.PersistenceUnit;
+import jakarta.transaction.Transactional;
+import ma.fstt.model.Categorie;
+import ma.fstt.model.Produit;
+import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Écriture d'un lot de produits importés, dans sa propre transaction
+ * Session sans état (ni contexte de persistance ni cache) : les produits existants sont relus
+ * en une requête par référence, puis insertions et mises à jour partent en lots JDBC.
+ */
+@ApplicationScoped
+public class EcritureLotProduits {
+
+    @PersistenceUnit(unitName = "mycnx")
+    private EntityManagerFactory emf;
+
+    @PersistenceContext(unitName = "mycnx")
+    private EntityManager em;
+
+    /**
+     * @param categories nom de catégorie (minuscules) -> identifiant
+     * @return {produits ajoutés, produits modifiés}
+     */
+    @Transactional(Transactional.TxType.REQUIRES_NEW)
+    public int[] ecrire(Collection<LigneImport> lot, Map<String, Long> categories) {
+        try (StatelessSession session = emf.unwrap(SessionFactory.class).openStatelessSession()) {
+            session.setJdbcBatchSize(lot.size());
+
+            Map<String, LigneImport> parReference = new HashMap<>();
+            lot.forEach(ligne -> parReference.put(ligne.getReference(), ligne)); // La dernière occurrence l'emporte
+            List<Produit> existants = session.createSelectionQuery(
+                            "SELECT p FROM Produit p LEFT JOIN FETCH p.categorie WHERE p.reference IN :references", Produit.class)
+                    .setParameter("references", parReference.keySet())
+                    .getResultList();
+
+            for (Produit produit : existants) {
+                appliquer(produit, parReference.remove(produit.getReference()), categories);
+            }
+            List<Produit> nouveaux = new ArrayList<>(parReference.size());
+            for (LigneImport ligne : parReference.values()) {
+                Produit produit = new Produit();
+                produit.setReference(ligne.getReference());
+                appliquer(produit, ligne, categories);
+                nouveaux.add(produit);
+            }
+
+            session.updateMultiple(existants);
+            session.insertMultiple(nouveaux);
+            return new int[]{nouveaux.size(), existants.size()};
+        }
+    }
+
+    /**
+     * Crée une catégorie absente du catalogue (nom tel qu'il apparaît dans le fichier)
+     */
+    @Transactional(Transactional.TxType.REQUIRES_NEW)
+    public Long creerCategorie(String nom) {
+        Categorie categorie = new Categorie();
+        categorie.setNom(nom.length() > 100 ? nom.substring(0, 100) : nom);
+        em.persist(categorie);
+        return categorie.getId();
+    }
+
+    /**
+     * Les champs absents du fichier (image stockée, photo, catégorie) sont conservés
+     */
+    private static void appliquer(Produit produit, LigneImport ligne, Map<String, Long> categories) {
+        produit.setNom(ligne.getNom());
+        produit.setDescription(ligne.getDescription());
+        produit.setPrix(ligne.getPrix());
+        produit.setStock(ligne.getStock());
+        if (ligne.getPhoto() != null) {
+            produit.setPhoto(ligne.getPhoto());
+        }
+        Long categorieId = ligne.getCategorie() != null
+                ? categories.get(ligne.getCategorie().toLowerCase(Locale.ROOT)) : null;
+        if (categorieId != null) {
+            Categorie categorie = new Categorie();
+            categorie.setId(categorieId); // Seul l'identifiant sert à écrire la clé étrangère
+            produit.setCategorie(categorie);
+        }
+    }
+}
@@ -0,0 +1,251 @@
+package ma.fstt.importation;
+
+import jakarta.annotation.Resource;
+import jakarta.enterprise.concurrent.ManagedExecutorService;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.PersistenceUnit;
+import ma.fstt.model.Categorie;
+import ma.fstt.model.Produit;
+import ma.fstt.search.FacettesProduits;
+import ma.fstt.search.IndexProduits;
+import ma.fstt.service.CatalogueService;
+import ma.fstt.service.CategorieService;
+import org.hibernate.SessionFactory;
+
+import java.io.BufferedReader;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Import en masse de produits (CSV ou JSON)
+ *
+ * Le fichier est lu en flux (LecteurCsv / LecteurJson) sur un thread géré par le serveur ;
+ * les produits sont écrits par lots de TAILLE_LOT, chacun dans sa transaction (EcritureLotProduits).
+ * La mémoire utilisée ne dépend pas de la taille du fichier : un lot et la table des catégories.
+ * La référence fournisseur identifie un produit : elle ajoute ou met à jour.
+ * À la fin, le catalogue partagé, l'index de recherche et les compteurs sont reconstruits.
+ */
+@ApplicationScoped
+public class ImportProduits {
+
+    private static final Logger LOGGER = Logger.getLogger(ImportProduits.class.getName());
+
+    private static final int TAILLE_LOT = 500;
+    private static final int SUIVIS_GARDES = 10;
+
+    @Resource
+    private ManagedExecutorService executeur;
+
+    @PersistenceUnit(unitName = "mycnx")
+    private EntityManagerFactory emf;
+
+    @Inject
+    private EcritureLotProduits ecritureLot;
+
+    @Inject
+    private CatalogueService catalogueService;
+
+    @Inject
+    private CategorieService categorieService;
+
+    @Inject
+    private IndexProduits indexProduits;
+
+    @Inject
+    private FacettesProduits facettesProduits;
+
+    private final AtomicLong numeros = new AtomicLong();
+    private final Deque<SuiviImport> suivis = new ConcurrentLinkedDeque<>();
+
+    /**
+     * Lance l'import d'un fichier déposé (supprimé à la fin de l'import)
+     */
+    public SuiviImport lancer(Path fichier, String nomOriginal) throws IOException {
+        SuiviImport suivi = new SuiviImport(numeros.incrementAndGet(), nomOriginal, Files.size(fichier));
+        suivis.addFirst(suivi);
+        while (suivis.size() > SUIVIS_GARDES) {
+            suivis.pollLast();
+        }
+        boolean json = nomOriginal.toLowerCase(Locale.ROOT).endsWith(".json");
+        executeur.execute(() -> importer(fichier, json, suivi));
+        return suivi;
+    }
+
+    /**
+     * Imports récents, le plus récent en premier
+     */
+    public List<SuiviImport> getSuivis() {
+        return new ArrayList<>(suivis);
+    }
+
+    private void importer(Path fichier, boolean json, SuiviImport suivi) {
+        suivi.commencer();
+        SuiviImport.Etat etatFinal = SuiviImport.Etat.TERMINE;
+        try (CompteurOctets octets = new CompteurOctets(Files.newInputStream(fichier));
+             BufferedReader texte = new BufferedReader(new InputStreamReader(octets, StandardCharsets.UTF_8), 64 * 1024);
+             LecteurProduits lecteur = json ? new LecteurJson(texte) : new LecteurCsv(texte)) {
+
+            Map<String, Long> categories = new ConcurrentHashMap<>();
+            for (Categorie categorie : catalogueService.getSnapshot().getCategories()) {
+                categories.putIfAbsent(categorie.getNom().toLowerCase(Locale.ROOT), categorie.getId());
+            }
+
+            List<LigneImport> lot = new ArrayList<>(TAILLE_LOT);
+            while (true) {
+                LigneImport ligne;
+                try {
+                    ligne = lecteur.suivante();
+                } catch (LigneInvalideException e) {
+                    suivi.lue(octets.lus);
+                    suivi.rejeter(e.getNumero(), e.getMessage());
+                    continue;
+                }
+                if (ligne == null) {
+                    break;
+                }
+                suivi.lue(octets.lus);
+                if (ligne.getCategorie() != null && !categorie(ligne, categories, suivi)) {
+                    continue;
+                }
+                lot.add(ligne);
+                if (lot.size() == TAILLE_LOT) {
+                    ecrire(lot, categories, suivi);
+                }
+            }
+            ecrire(lot, categories, suivi);
+        } catch (Exception e) {
+            LOGGER.log(Level.SEVERE, "Import " + suivi.getFichier() + " interrompu", e);
+            suivi.erreur("Import interrompu : " + e.getMessage());
+            etatFinal = SuiviImport.Etat.ECHEC;
+        } finally {
+            try {
+                Files.deleteIfExists(fichier);
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, "Fichier d'import non supprimé : " + fichier, e);
+            }
+            rafraichir();
+            suivi.terminer(etatFinal);
+            LOGGER.info("Import " + suivi.getFichier() + " : " + suivi.getAjoutes() + " ajoutés, "
+                    + suivi.getModifies() + " modifiés, " + suivi.getRejetees() + " rejetés, "
+                    + suivi.getDebit() + " lignes/s");
+        }
+    }
+
+    /**
+     * Trouve ou crée la catégorie d'une ligne (création dans sa propre transaction, hors de la table :
+     * un échec ne rejette que la ligne et l'import continue)
+     *
+     * @return faux si la catégorie n'a pas pu être créée (ligne rejetée)
+     */
+    private boolean categorie(LigneImport ligne, Map<String, Long> categories, SuiviImport suivi) {
+        String cle = ligne.getCategorie().toLowerCase(Locale.ROOT);
+        if (categories.containsKey(cle)) {
+            return true;
+        }
+        try {
+            categories.put(cle, ecritureLot.creerCategorie(ligne.getCategorie()));
+            return true;
+        } catch (Exception e) {
+            suivi.rejeter(ligne.getNumero(), "catégorie " + ligne.getCategorie() + " non créée : " + cause(e));
+            return false;
+        }
+    }
+
+    /**
+     * Écrit un lot ; s'il échoue (contrainte, donnée refusée par la base), ses lignes sont
+     * réessayées une par une pour n'écarter que les fautives
+     */
+    private void ecrire(List<LigneImport> lot, Map<String, Long> categories, SuiviImport suivi) {
+        if (lot.isEmpty()) {
+            return;
+        }
+        try {
+            int[] resultat = ecritureLot.ecrire(lot, categories);
+            suivi.lot(resultat[0], resultat[1]);
+        } catch (Exception e) {
+            for (LigneImport ligne : lot) {
+                try {
+                    int[] resultat = ecritureLot.ecrire(List.of(ligne), categories);
+                    suivi.lot(resultat[0], resultat[1]);
+                } catch (Exception erreurLigne) {
+                    suivi.rejeter(ligne.getNumero(), "refusée par la base : " + cause(erreurLigne));
+                }
+            }
+        }
+        lot.clear();
+    }
+
+    /**
+     * Les produits ont été écrits hors du contexte de persistance : caches et structures
+     * en mémoire sont reconstruits une fois pour tout l'import. Chaque structure est
+     * reconstruite à côté de celle qui est servie puis publiée d'un bloc : la boutique
+     * garde l'ancien catalogue, jamais un catalogue vide, pendant le rafraîchissement.
+     */
+    private void rafraichir() {
+        try {
+            SessionFactory sessionFactory = emf.unwrap(SessionFactory.class);
+            sessionFactory.getCache().evictEntityData(Produit.class);
+            sessionFactory.getCache().evictEntityData(Categorie.class);
+            sessionFactory.getCache().evictQueryRegion(CatalogueService.REGION_REQUETES);
+            catalogueService.recharger();
+            categorieService.initialiser();
+            indexProduits.reconstruire();
+            facettesProduits.reconstruire();
+        } catch (Exception e) {
+            LOGGER.log(Level.SEVERE, "Erreur lors du rafraîchissement du catalogue après import", e);
+        }
+    }
+
+    private static String cause(Throwable erreur) {
+        while (erreur.getCause() != null) {
+            erreur = erreur.getCause();
+        }
+        return erreur.getMessage();
+    }
+
+    /**
+     * Compte les octets lus, pour l'avancement
+     */
+    private static final class CompteurOctets extends FilterInputStream {
+        private volatile long lus;
+
+        private CompteurOctets(InputStream entree) {
+            super(entree);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int octet = super.read();
+            if (octet >= 0) {
+                lus++;
+            }
+            return octet;
+        }
+
+        @Override
+        public int read(byte[] tampon, int debut, int longueur) throws IOException {
+            int n = super.read(tampon, debut, longueur);
+            if (n > 0) {
+                lus += n;
+            }
+            return n;
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package ma.fstt.importation;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Lecture en flux d'un fichier CSV (RFC 4180) dont la première ligne nomme les colonnes
+ * Séparateur ";" ou ",", deviné d'après l'en-tête ; les champs entre guillemets peuvent
+ * contenir le séparateur, des guillemets doublés ("") et des retours à la ligne.
+ * Un enregistrement est borné à MAX_ENREGISTREMENT caractères : au-delà (guillemet jamais
+ * refermé, par exemple), la ligne est rejetée et la lecture reprend à la ligne suivante,
+ * la mémoire utilisée ne dépend donc pas de la taille du fichier.
+ */
+public class LecteurCsv extends LecteurProduits {
+
+    // Largement au-dessus d'une ligne valide (nom 200, description 1000, référence 64 caractères...)
+    private static final int MAX_ENREGISTREMENT = 16 * 1024;
+
+    private final Reader entree;
+    private final char separateur;
+    private final String[] colonnes;
+    private long numero = 1; // Ligne physique courante (l'en-tête est la ligne 1)
+    private int suivant = -2; // Caractère lu d'avance (-2 : aucun)
+
+    public LecteurCsv(Reader entree) throws IOException {
+        this.entree = entree;
+        String entete = lireLigneBrute();
+        if (entete == null) {
+            throw new IOException("Fichier CSV vide");
+        }
+        if (entete.startsWith("\uFEFF")) {
+            entete = entete.substring(1); // BOM UTF-8
+        }
+        this.separateur = entete.indexOf(';') >= 0 ? ';' : ',';
+        String[] noms = entete.split(String.valueOf(separateur), -1);
+        this.colonnes = new String[noms.length];
+        for (int i = 0; i < noms.length; i++) {
+            colonnes[i] = noms[i].trim().replace("\"", "").toLowerCase(Locale.ROOT);
+        }
+    }
+
+    @Override
+    public LigneImport suivante() throws IOException, LigneInvalideException {
+        List<String> champs;
+        long debut;
+        do {
+            debut = numero + 1;
+            champs = lireEnregistrement(debut);
+            if (champs == null) {
+                return null;
+            }
+        } while (champs.size() == 1 && champs.get(0).isBlank()); // Lignes vides ignorées
+
+        Map<String, String> valeurs = new HashMap<>();
+        for (int i = 0; i < colonnes.length && i < champs.size(); i++) {
+            valeurs.put(colonnes[i], champs.get(i));
+        }
+        return valider(debut, valeurs);
+    }
+
+    @Override
+    public void close() throws IOException {
+        entree.close();
+    }
+
+    /**
+     * Un enregistrement (éventuellement sur plusieurs lignes physiques)
+     *
+     * @param debut numéro de la ligne où commence l'enregistrement (pour le rejet)
+     */
+    private List<String> lireEnregistrement(long debut) throws IOException, LigneInvalideException {
+        int c = lire();
+        if (c == -1) {
+            return null;
+        }
+        List<String> champs = new ArrayList<>();
+        StringBuilder champ = new StringBuilder();
+        boolean guillemets = false;
+        int longueur = 0;
+        while (true) {
+            if (++longueur > MAX_ENREGISTREMENT) {
+                if (c != '\n') {
+                    ignorerLigne();
+                }
+                numero++;
+                throw new LigneInvalideException(debut,
+                        "enregistrement trop long (" + MAX_ENREGISTREMENT + " caractères au plus), guillemet non refermé ?");
+            }
+            if (c == -1) {
+                champs.add(champ.toString());
+                return champs;
+            }
+            if (guillemets) {
+                if (c == '"') {
+                    int d = lire();
+                    if (d == '"') {
+                        champ.append('"');
+                    } else {
+                        guillemets = false;
+                        c = d;
+                        continue;
+                    }
+                } else {
+                    if (c == '\n') {
+                        numero++;
+                    }
+                    champ.append((char) c);
+                }
+            } else if (c == '"' && champ.length() == 0) {
+                guillemets = true;
+            } else if (c == separateur) {
+                champs.add(champ.toString());
+                champ.setLength(0);
+            } else if (c == '\r' || c == '\n') {
+                if (c == '\r') {
+                    int d = lire();
+                    if (d != '\n') {
+                        suivant = d;
+                    }
+                }
+                numero++;
+                champs.add(champ.toString());
+                return champs;
+            } else {
+                champ.append((char) c);
+            }
+            c = lire();
+        }
+    }
+
+    /**
+     * Saute la fin de la ligne physique courante
+     */
+    private void ignorerLigne() throws IOException {
+        int c;
+        while ((c = lire()) != -1 && c != '\n') {
+            // Rien à garder
+        }
+    }
+
+    private String lireLigneBrute() throws IOException {
+        StringBuilder ligne = new StringBuilder();
+        int c;
+        while ((c = lire()) != -1 && c != '\n') {
+            if (c != '\r') {
+                ligne.append((char) c);
+            }
+            if (ligne.length() > MAX_ENREGISTREMENT) {
+                throw new IOException("En-tête CSV trop long");
+            }
+        }
+        return c == -1 && ligne.length() == 0 ? null : ligne.toString();
+    }
+
+    private int lire() throws IOException {
+        if (suivant != -2) {
+            int c = suivant;
+            suivant = -2;
+            return c;
+        }
+        return entree.read();
+    }
+}
@@ -0,0 +1,79 @@
+package ma.fstt.importation;
+
+import jakarta.json.Json;
+import jakarta.json.JsonException;
+import jakarta.json.JsonObject;
+import jakarta.json.JsonString;
+import jakarta.json.JsonValue;
+import jakarta.json.stream.JsonParser;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Lecture en flux d'un tableau JSON d'objets produits : [{"reference": "...", "nom": "...", ...}, ...]
+ * Un seul objet est construit en mémoire à la fois.
+ */
+public class LecteurJson extends LecteurProduits {
+
+    private final JsonParser parser;
+    private long rang;
+
+    public LecteurJson(Reader entree) throws IOException {
+        this.parser = Json.createParser(entree);
+        try {
+            if (!parser.hasNext() || parser.next() != JsonParser.Event.START_ARRAY) {
+                throw new IOException("Le fichier JSON doit contenir un tableau d'objets");
+            }
+        } catch (JsonException e) {
+            throw new IOException("JSON invalide : " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public LigneImport suivante() throws IOException, LigneInvalideException {
+        try {
+            while (parser.hasNext()) {
+                JsonParser.Event evenement = parser.next();
+                if (evenement == JsonParser.Event.END_ARRAY) {
+                    return null;
+                }
+                rang++;
+                if (evenement != JsonParser.Event.START_OBJECT) {
+                    if (evenement == JsonParser.Event.START_ARRAY) {
+                        parser.skipArray();
+                    }
+                    throw new LigneInvalideException(rang, "objet attendu");
+                }
+                JsonObject objet = parser.getObject();
+                Map<String, String> champs = new HashMap<>();
+                for (Map.Entry<String, JsonValue> champ : objet.entrySet()) {
+                    champs.put(champ.getKey().toLowerCase(Locale.ROOT), texte(champ.getValue()));
+                }
+                return valider(rang, champs);
+            }
+            return null;
+        } catch (JsonException e) {
+            throw new IOException("JSON invalide après l'élément " + rang + " : " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void close() {
+        parser.close();
+    }
+
+    private static String texte(JsonValue valeur) {
+        switch (valeur.getValueType()) {
+            case NULL:
+                return null;
+            case STRING:
+                return ((JsonString) valeur).getString();
+            default:
+                return valeur.toString();
+        }
+    }
+}
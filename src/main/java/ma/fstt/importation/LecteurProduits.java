@@ -0,0 +1,63 @@
+package ma.fstt.importation;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Lecture en flux d'un fichier de produits : une ligne à la fois, quelle que soit la taille du fichier
+ * Champs reconnus : reference, nom, description, prix, stock, categorie, photo.
+ */
+public abstract class LecteurProduits implements Closeable {
+
+    /**
+     * Produit suivant
+     *
+     * @return null à la fin du fichier
+     * @throws LigneInvalideException la ligne est ignorée, la lecture peut continuer
+     */
+    public abstract LigneImport suivante() throws IOException, LigneInvalideException;
+
+    /**
+     * Validation commune aux formats : référence, nom et prix obligatoires
+     */
+    protected static LigneImport valider(long numero, Map<String, String> champs) throws LigneInvalideException {
+        String reference = texte(champs.get("reference"));
+        String nom = texte(champs.get("nom"));
+        if (reference == null) {
+            throw new LigneInvalideException(numero, "référence manquante");
+        }
+        if (reference.length() > 64) {
+            throw new LigneInvalideException(numero, "référence trop longue (64 caractères au plus)");
+        }
+        if (nom == null) {
+            throw new LigneInvalideException(numero, "nom manquant");
+        }
+        double prix;
+        int stock;
+        try {
+            String valeurPrix = texte(champs.get("prix"));
+            if (valeurPrix == null) {
+                throw new LigneInvalideException(numero, "prix manquant");
+            }
+            prix = Double.parseDouble(valeurPrix.replace(',', '.'));
+            String valeurStock = texte(champs.get("stock"));
+            stock = valeurStock != null ? Integer.parseInt(valeurStock) : 0;
+        } catch (NumberFormatException e) {
+            throw new LigneInvalideException(numero, "nombre invalide : " + e.getMessage());
+        }
+        if (prix < 0 || stock < 0) {
+            throw new LigneInvalideException(numero, "prix et stock doivent être positifs");
+        }
+        return new LigneImport(numero, reference, tronquer(nom, 200), tronquer(texte(champs.get("description")), 1000),
+                prix, stock, texte(champs.get("categorie")), tronquer(texte(champs.get("photo")), 500));
+    }
+
+    private static String texte(String valeur) {
+        return valeur == null || valeur.isBlank() ? null : valeur.trim();
+    }
+
+    private static String tronquer(String valeur, int longueur) {
+        return valeur != null && valeur.length() > longueur ? valeur.substring(0, longueur) : valeur;
+    }
+}
@@ -0,0 +1,21 @@
+package ma.fstt.importation;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Un produit lu dans un fichier d'import, déjà validé
+ */
+@Getter
+@AllArgsConstructor
+public class LigneImport {
+
+    private final long numero; // Ligne (CSV) ou rang de l'objet (JSON) dans le fichier
+    private final String reference;
+    private final String nom;
+    private final String description;
+    private final double prix;
+    private final int stock;
+    private final String categorie; // Nom de la catégorie, facultatif
+    private final String photo;
+}
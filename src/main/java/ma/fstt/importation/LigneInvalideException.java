@@ -0,0 +1,20 @@
+package ma.fstt.importation;
+
+/**
+ * Ligne du fichier d'import rejetée (champ manquant ou invalide) ; l'import continue
+ */
+public class LigneInvalideException extends Exception {
+
+    private static final long serialVersionUID = 1L;
+
+    private final long numero;
+
+    public LigneInvalideException(long numero, String message) {
+        super(message);
+        this.numero = numero;
+    }
+
+    public long getNumero() {
+        return numero;
+    }
+}
@@ -0,0 +1,136 @@
+package ma.fstt.importation;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Avancement d'un import, lu par la page d'administration pendant qu'il s'exécute
+ * Seules les dernières erreurs sont gardées (le nombre total reste exact).
+ */
+public class SuiviImport implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+    private static final int ERREURS_GARDEES = 100;
+
+    public enum Etat { EN_ATTENTE, EN_COURS, TERMINE, ECHEC }
+
+    private final long id;
+    private final String fichier;
+    private final long taille;
+    private final LocalDateTime debut = LocalDateTime.now();
+    private volatile LocalDateTime fin;
+    private volatile Etat etat = Etat.EN_ATTENTE;
+
+    private final AtomicLong octetsLus = new AtomicLong();
+    private final AtomicLong lues = new AtomicLong();
+    private final AtomicLong ajoutes = new AtomicLong();
+    private final AtomicLong modifies = new AtomicLong();
+    private final AtomicLong rejetees = new AtomicLong();
+    private final List<String> erreurs = new ArrayList<>();
+    private volatile long debutNanos = System.nanoTime();
+    private volatile long dureeNanos;
+
+    SuiviImport(long id, String fichier, long taille) {
+        this.id = id;
+        this.fichier = fichier;
+        this.taille = taille;
+    }
+
+    void commencer() {
+        etat = Etat.EN_COURS;
+        debutNanos = System.nanoTime();
+    }
+
+    void terminer(Etat etatFinal) {
+        dureeNanos = System.nanoTime() - debutNanos;
+        fin = LocalDateTime.now();
+        etat = etatFinal;
+    }
+
+    void lue(long octets) {
+        lues.incrementAndGet();
+        octetsLus.set(octets);
+    }
+
+    void lot(int nouveaux, int existants) {
+        ajoutes.addAndGet(nouveaux);
+        modifies.addAndGet(existants);
+    }
+
+    void rejeter(long numero, String raison) {
+        rejetees.incrementAndGet();
+        erreur("Ligne " + numero + " : " + raison);
+    }
+
+    synchronized void erreur(String message) {
+        if (erreurs.size() == ERREURS_GARDEES) {
+            erreurs.remove(0);
+        }
+        erreurs.add(message);
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public String getFichier() {
+        return fichier;
+    }
+
+    public Etat getEtat() {
+        return etat;
+    }
+
+    public LocalDateTime getDebut() {
+        return debut;
+    }
+
+    public LocalDateTime getFin() {
+        return fin;
+    }
+
+    public long getLues() {
+        return lues.get();
+    }
+
+    public long getAjoutes() {
+        return ajoutes.get();
+    }
+
+    public long getModifies() {
+        return modifies.get();
+    }
+
+    public long getRejetees() {
+        return rejetees.get();
+    }
+
+    public synchronized List<String> getErreurs() {
+        return new ArrayList<>(erreurs);
+    }
+
+    /**
+     * Avancement en pourcentage, d'après les octets lus
+     */
+    public int getPourcentage() {
+        if (etat == Etat.TERMINE) {
+            return 100;
+        }
+        return taille > 0 ? (int) Math.min(99, octetsLus.get() * 100 / taille) : 0;
+    }
+
+    /**
+     * Débit en lignes par seconde
+     */
+    public long getDebit() {
+        long nanos = etat == Etat.EN_COURS ? System.nanoTime() - debutNanos : dureeNanos;
+        return nanos > 0 ? lues.get() * 1_000_000_000L / nanos : 0;
+    }
+
+    public boolean isActif() {
+        return etat == Etat.EN_ATTENTE || etat == Etat.EN_COURS;
+    }
+}
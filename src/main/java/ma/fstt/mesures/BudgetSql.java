@@ -0,0 +1,149 @@
+package ma.fstt.mesures;
+
+import ma.fstt.config.Parametres;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compte des accès à la base pendant une requête HTTP (instructions JDBC, entités chargées,
+ * collections initialisées) et vérification du budget de la vue
+ *
+ * Le budget d'une vue se règle par sql.budget.{vue} (ex. sql.budget./admin-commandes.xhtml=30),
+ * sql.budget.defaut sinon. Une même instruction exécutée plus de sql.repetitions.max fois dans
+ * la requête signale un chargement N+1. En mode strict (sql.budget.strict=true, pour les tests)
+ * le premier dépassement fait échouer l'instruction, et la requête échoue aussi en fin de filtre
+ * si l'exception a été interceptée en chemin ; sinon il est journalisé en fin de requête.
+ *
+ * Un BudgetSql n'est utilisé que par le thread de sa requête : aucun verrou.
+ */
+public final class BudgetSql {
+
+    private static final ThreadLocal<BudgetSql> COURANT = new ThreadLocal<>();
+
+    private static final int BUDGET_DEFAUT = (int) Parametres.nombre("sql.budget.defaut", 50);
+    private static final int REPETITIONS_MAX = (int) Parametres.nombre("sql.repetitions.max", 10);
+    private static final boolean STRICT = Parametres.booleen("sql.budget.strict", false);
+    // Instructions distinctes retenues par requête (au-delà, seules les totaux sont comptés)
+    private static final int INSTRUCTIONS_DISTINCTES_MAX = 200;
+
+    private final String vue;
+    private final int budget;
+
+    private int instructions;
+    private int entites;
+    private int collections;
+    private final Map<String, Integer> repetitions = new HashMap<>();
+    private final List<String> actions = new ArrayList<>();
+    private String depassement;
+
+    private BudgetSql(String vue) {
+        this.vue = vue;
+        this.budget = (int) Parametres.nombre("sql.budget." + vue, BUDGET_DEFAUT);
+    }
+
+    static BudgetSql ouvrir(String vue) {
+        BudgetSql budget = new BudgetSql(vue);
+        COURANT.set(budget);
+        return budget;
+    }
+
+    static void fermer() {
+        COURANT.remove();
+    }
+
+    /**
+     * Budget de la requête en cours sur ce thread (null hors requête : timers, pipeline...)
+     */
+    static BudgetSql courant() {
+        return COURANT.get();
+    }
+
+    void instruction(String sql) {
+        instructions++;
+        Integer fois = repetitions.get(sql);
+        if (fois != null) {
+            repetitions.put(sql, ++fois);
+            if (fois == REPETITIONS_MAX + 1) {
+                depasser("instruction répétée " + fois + " fois (N+1 probable) : " + abreger(sql));
+            }
+        } else if (repetitions.size() < INSTRUCTIONS_DISTINCTES_MAX) {
+            repetitions.put(sql, 1);
+        }
+        if (instructions == budget + 1) {
+            depasser("plus de " + budget + " instructions SQL");
+        }
+    }
+
+    void entiteChargee() {
+        entites++;
+    }
+
+    void collectionInitialisee() {
+        collections++;
+    }
+
+    /**
+     * Compteurs actuels, pour calculer la part d'une action (voir IntercepteurMesure)
+     */
+    int[] instantane() {
+        return new int[]{instructions, entites, collections};
+    }
+
+    void action(String nom, int[] avant) {
+        actions.add(nom + " : " + (instructions - avant[0]) + " instructions, "
+                + (entites - avant[1]) + " entités, " + (collections - avant[2]) + " collections");
+    }
+
+    String getVue() {
+        return vue;
+    }
+
+    boolean estDepasse() {
+        return depassement != null;
+    }
+
+    String getDepassement() {
+        return depassement;
+    }
+
+    static boolean estStrict() {
+        return STRICT;
+    }
+
+    /**
+     * Résumé pour le journal : totaux, actions et instructions les plus répétées
+     */
+    String resume() {
+        StringBuilder texte = new StringBuilder(vue).append(" : ")
+                .append(instructions).append(" instructions (budget ").append(budget).append("), ")
+                .append(entites).append(" entités chargées, ")
+                .append(collections).append(" collections initialisées");
+        if (depassement != null) {
+            texte.append("\n  dépassement : ").append(depassement);
+        }
+        actions.forEach(action -> texte.append("\n  action ").append(action));
+        repetitions.entrySet().stream()
+                .filter(e -> e.getValue() > 1)
+                .sorted(Map.Entry.<String, Integer>comparingByValue().reversed())
+                .limit(5)
+                .forEach(e -> texte.append("\n  ").append(e.getValue()).append(" × ").append(abreger(e.getKey())));
+        return texte.toString();
+    }
+
+    private void depasser(String raison) {
+        if (depassement == null) {
+            depassement = raison;
+        }
+        if (STRICT) {
+            throw new BudgetSqlDepasseException(vue + " : " + raison);
+        }
+    }
+
+    private static String abreger(String sql) {
+        String uneLigne = sql.replaceAll("\\s+", " ").trim();
+        return uneLigne.length() > 200 ? uneLigne.substring(0, 200) + "…" : uneLigne;
+    }
+}
@@ -0,0 +1,13 @@
+package ma.fstt.mesures;
+
+/**
+ * Levée en mode strict quand une requête dépasse le budget SQL de sa vue
+ */
+public class BudgetSqlDepasseException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public BudgetSqlDepasseException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,96 @@
+package ma.fstt.mesures;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.ejb.Schedule;
+import jakarta.ejb.Singleton;
+import jakarta.ejb.TransactionAttribute;
+import jakarta.ejb.TransactionAttributeType;
+import ma.fstt.config.Parametres;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.logging.FileHandler;
+import java.util.logging.Formatter;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+/**
+ * Tâches planifiées du journal SQL :
+ * - toutes les 2 secondes, écrit les exécutions en file dans le fichier tournant
+ *   (journal.sql.fichier, journal.sql.octets par fichier, journal.sql.fichiers gardés)
+ * - toutes les 15 minutes, ajoute le rapport des instructions au plus grand temps cumulé
+ */
+@Singleton
+public class EcritureJournalSql {
+
+    private static final Logger LOGGER = Logger.getLogger(EcritureJournalSql.class.getName());
+
+    private static final int TAILLE_RAPPORT = (int) Parametres.nombre("journal.sql.rapport", 10);
+
+    private FileHandler fichier;
+
+    @PostConstruct
+    public void ouvrir() {
+        String chemin = Parametres.texte("journal.sql.fichier", "${jboss.server.data.dir}/atelier3/requetes-lentes.log");
+        try {
+            Path parent = Paths.get(chemin).toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            fichier = new FileHandler(chemin, (int) Parametres.nombre("journal.sql.octets", 10 * 1024 * 1024),
+                    (int) Parametres.nombre("journal.sql.fichiers", 5), true);
+            fichier.setFormatter(new Formatter() {
+                @Override
+                public String format(LogRecord enregistrement) {
+                    return enregistrement.getMessage() + System.lineSeparator();
+                }
+            });
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Journal SQL impossible à ouvrir : " + chemin, e);
+        }
+    }
+
+    @PreDestroy
+    public void fermer() {
+        if (fichier != null) {
+            ecrire();
+            fichier.close();
+        }
+    }
+
+    @Schedule(hour = "*", minute = "*", second = "*/2", persistent = false)
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED) // Écriture de fichier : aucune transaction
+    public void ecrire() {
+        if (fichier == null) {
+            JournalSql.vider(execution -> { });
+            return;
+        }
+        JournalSql.vider(execution -> fichier.publish(new LogRecord(Level.INFO, execution.toString())));
+        long perdues = JournalSql.perdues();
+        if (perdues > 0) {
+            fichier.publish(new LogRecord(Level.INFO, "-- " + perdues + " exécution(s) non journalisée(s) : file pleine"));
+        }
+        fichier.flush();
+    }
+
+    @Schedule(hour = "*", minute = "*/15", persistent = false)
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+    public void rapporter() {
+        List<String> rapport = JournalSql.rapport(TAILLE_RAPPORT);
+        if (rapport.isEmpty()) {
+            return;
+        }
+        StringBuilder texte = new StringBuilder("-- Instructions au plus grand temps cumulé :");
+        rapport.forEach(ligne -> texte.append(System.lineSeparator()).append(ligne));
+        if (fichier != null) {
+            fichier.publish(new LogRecord(Level.INFO, texte.toString()));
+            fichier.flush();
+        }
+        LOGGER.info(texte.toString());
+    }
+}
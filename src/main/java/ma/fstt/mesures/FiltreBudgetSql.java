@@ -0,0 +1,40 @@
+package ma.fstt.mesures;
+
+import jakarta.servlet.*;
+import jakarta.servlet.annotation.WebFilter;
+import jakarta.servlet.http.HttpServletRequest;
+
+import java.io.IOException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Ouvre le budget SQL de chaque requête JSF et journalise les dépassements
+ * (WARNING ; le détail de chaque requête est disponible au niveau FINE)
+ * En mode strict, un dépassement fait échouer la requête même si l'exception levée par
+ * l'instruction a été interceptée par un bean (catch (Exception e) des actions JSF).
+ */
+@WebFilter(filterName = "FiltreBudgetSql", urlPatterns = "*.xhtml")
+public class FiltreBudgetSql implements Filter {
+
+    private static final Logger LOGGER = Logger.getLogger(FiltreBudgetSql.class.getName());
+
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+            throws IOException, ServletException {
+        BudgetSql budget = BudgetSql.ouvrir(((HttpServletRequest) request).getServletPath());
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            BudgetSql.fermer();
+            if (budget.estDepasse()) {
+                LOGGER.warning("Budget SQL dépassé — " + budget.resume());
+            } else if (LOGGER.isLoggable(Level.FINE)) {
+                LOGGER.fine(budget.resume());
+            }
+        }
+        if (budget.estDepasse() && BudgetSql.estStrict()) {
+            throw new BudgetSqlDepasseException(budget.getVue() + " : " + budget.getDepassement());
+        }
+    }
+}
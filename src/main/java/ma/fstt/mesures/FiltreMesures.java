@@ -0,0 +1,33 @@
+package ma.fstt.mesures;
+
+import jakarta.inject.Inject;
+import jakarta.servlet.*;
+import jakarta.servlet.annotation.WebFilter;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.io.IOException;
+
+/**
+ * Mesure la durée de chaque requête JSF, par vue
+ * Les vues inexistantes (404) sont regroupées sous "autre" : le nombre de séries reste borné.
+ */
+@WebFilter(filterName = "FiltreMesures", urlPatterns = "*.xhtml")
+public class FiltreMesures implements Filter {
+
+    @Inject
+    private Mesures mesures;
+
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+            throws IOException, ServletException {
+        long debut = System.nanoTime();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            String vue = ((HttpServletResponse) response).getStatus() == HttpServletResponse.SC_NOT_FOUND
+                    ? "autre" : ((HttpServletRequest) request).getServletPath();
+            mesures.vue(vue).enregistrer(System.nanoTime() - debut);
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package ma.fstt.mesures;
+
+import org.hibernate.HibernateException;
+import org.hibernate.cfg.JdbcSettings;
+import org.hibernate.engine.jdbc.connections.spi.ConnectionProvider;
+import org.hibernate.service.UnknownUnwrapTypeException;
+import org.hibernate.service.spi.Configurable;
+
+import javax.naming.InitialContext;
+import javax.naming.NamingException;
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Map;
+
+/**
+ * Fournisseur de connexions Hibernate (déclaré dans persistence.xml) : enveloppe la datasource
+ * JTA du serveur pour chronométrer les connexions (journal des requêtes lentes)
+ * N'implémente que l'interface publique ConnectionProvider ; la datasource est celle que
+ * le serveur passe à Hibernate, ou relue dans JNDI si seul son nom est connu.
+ */
+public class FournisseurConnexionsMesure implements ConnectionProvider, Configurable {
+
+    private static final long serialVersionUID = 1L;
+
+    private transient DataSource dataSource;
+
+    @Override
+    public void configure(Map<String, Object> parametres) {
+        Object valeur = parametres.get(JdbcSettings.JAKARTA_JTA_DATASOURCE);
+        if (valeur == null) {
+            valeur = parametres.get(JdbcSettings.JAKARTA_NON_JTA_DATASOURCE);
+        }
+        if (valeur instanceof DataSource) {
+            dataSource = (DataSource) valeur;
+        } else if (valeur instanceof String) {
+            try {
+                dataSource = (DataSource) new InitialContext().lookup((String) valeur);
+            } catch (NamingException e) {
+                throw new HibernateException("Datasource introuvable : " + valeur, e);
+            }
+        } else {
+            throw new HibernateException("Aucune datasource configurée pour " + getClass().getSimpleName());
+        }
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return JdbcMesure.connexion(dataSource.getConnection());
+    }
+
+    @Override
+    public void closeConnection(Connection connexion) throws SQLException {
+        JdbcMesure.reelle(connexion).close();
+    }
+
+    @Override
+    public boolean supportsAggressiveRelease() {
+        return true; // Connexions gérées par le serveur (JTA) : rendues après chaque instruction
+    }
+
+    @Override
+    public boolean isUnwrappableAs(Class<?> type) {
+        return type.isInstance(this) || DataSource.class.isAssignableFrom(type);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T unwrap(Class<T> type) {
+        if (type.isInstance(this)) {
+            return (T) this;
+        }
+        if (DataSource.class.isAssignableFrom(type)) {
+            return (T) dataSource;
+        }
+        throw new UnknownUnwrapTypeException(type);
+    }
+}
@@ -0,0 +1,59 @@
+package ma.fstt.mesures;
+
+import java.io.PrintWriter;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histogramme de durées, sans verrou
+ * Une durée incrémente un compteur LongAdder par tranche (contention répartie entre threads) ;
+ * les cumuls attendus par Prometheus ne sont calculés qu'à la lecture.
+ */
+public final class Histogramme {
+
+    // Bornes supérieures des tranches, en secondes (la dernière tranche, +Inf, est implicite)
+    private static final double[] BORNES = {0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10};
+    private static final long[] BORNES_NANOS = new long[BORNES.length];
+
+    static {
+        for (int i = 0; i < BORNES.length; i++) {
+            BORNES_NANOS[i] = (long) (BORNES[i] * 1_000_000_000L);
+        }
+    }
+
+    private final LongAdder[] tranches = new LongAdder[BORNES.length + 1];
+    private final LongAdder sommeNanos = new LongAdder();
+
+    public Histogramme() {
+        for (int i = 0; i < tranches.length; i++) {
+            tranches[i] = new LongAdder();
+        }
+    }
+
+    public void enregistrer(long nanos) {
+        int i = 0;
+        while (i < BORNES_NANOS.length && nanos > BORNES_NANOS[i]) {
+            i++;
+        }
+        tranches[i].increment();
+        sommeNanos.add(nanos);
+    }
+
+    /**
+     * Écrit les lignes _bucket, _sum et _count au format texte Prometheus
+     *
+     * @param etiquettes étiquettes déjà formatées (ex. vue="/index.xhtml"), sans accolades
+     */
+    void ecrire(PrintWriter sortie, String nom, String etiquettes) {
+        String prefixe = etiquettes.isEmpty() ? "" : etiquettes + ",";
+        long cumul = 0;
+        for (int i = 0; i < BORNES.length; i++) {
+            cumul += tranches[i].sum();
+            sortie.println(nom + "_bucket{" + prefixe + "le=\"" + BORNES[i] + "\"} " + cumul);
+        }
+        cumul += tranches[BORNES.length].sum();
+        sortie.println(nom + "_bucket{" + prefixe + "le=\"+Inf\"} " + cumul);
+        String accolades = etiquettes.isEmpty() ? "" : "{" + etiquettes + "}";
+        sortie.println(nom + "_sum" + accolades + " " + sommeNanos.sum() / 1e9);
+        sortie.println(nom + "_count" + accolades + " " + cumul);
+    }
+}
@@ -0,0 +1,22 @@
+package ma.fstt.mesures;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ * Voit passer chaque instruction SQL préparée par Hibernate et la compte dans le budget
+ * de la requête HTTP en cours (déclaré dans persistence.xml)
+ * L'instruction n'est jamais modifiée.
+ */
+public class InspecteurSql implements StatementInspector {
+
+    private static final long serialVersionUID = 1L;
+
+    @Override
+    public String inspect(String sql) {
+        BudgetSql budget = BudgetSql.courant();
+        if (budget != null) {
+            budget.instruction(sql);
+        }
+        return sql;
+    }
+}
@@ -0,0 +1,675 @@
+package ma.fstt.mesures;
+
+import java.io.InputStream;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.net.URL;
+import java.sql.*;
+import java.util.Calendar;
+import java.util.Map;
+
+/**
+ * PreparedStatement qui chronomètre ses exécutions pour JournalSql
+ * Délégation écrite en clair plutôt qu'un Proxy : les setXxx de chaque paramètre ne passent
+ * ni par la réflexion ni par un tableau d'arguments. Seule l'exécution est mesurée.
+ */
+final class InstructionPrepareeMesuree implements PreparedStatement {
+
+    private final PreparedStatement cible;
+    private final JdbcMesure.Suivi suivi;
+
+    InstructionPrepareeMesuree(PreparedStatement cible, String sql) {
+        this.cible = cible;
+        this.suivi = new JdbcMesure.Suivi(sql);
+    }
+
+    private <T> T executer(String sqlAppel, Execution<T> execution) throws SQLException {
+        String instruction = suivi.instruction(sqlAppel);
+        String forme = suivi.forme();
+        long debut = System.nanoTime();
+        T resultat = execution.executer();
+        long nanos = System.nanoTime() - debut;
+        suivi.executee();
+        JournalSql.enregistrer(instruction, forme, nanos, JdbcMesure.Suivi.lignes(resultat));
+        return resultat;
+    }
+
+    private ResultSet lire(String sqlAppel, Execution<ResultSet> execution) throws SQLException {
+        String instruction = suivi.instruction(sqlAppel);
+        String forme = suivi.forme();
+        long debut = System.nanoTime();
+        ResultSet resultat = execution.executer();
+        long nanos = System.nanoTime() - debut;
+        suivi.executee();
+        return new ResultatMesure(resultat, instruction, forme, nanos);
+    }
+
+    @FunctionalInterface
+    private interface Execution<T> {
+        T executer() throws SQLException;
+    }
+
+    @Override
+    public ResultSet executeQuery() throws SQLException {
+        return lire(null, () -> cible.executeQuery());
+    }
+
+    @Override
+    public int executeUpdate() throws SQLException {
+        return executer(null, () -> cible.executeUpdate());
+    }
+
+    @Override
+    public void setNull(int parameterIndex, int sqlType) throws SQLException {
+        suivi.lier(parameterIndex, "null");
+        cible.setNull(parameterIndex, sqlType);
+    }
+
+    @Override
+    public void setBoolean(int parameterIndex, boolean x) throws SQLException {
+        suivi.lier(parameterIndex, "Boolean");
+        cible.setBoolean(parameterIndex, x);
+    }
+
+    @Override
+    public void setByte(int parameterIndex, byte x) throws SQLException {
+        suivi.lier(parameterIndex, "Byte");
+        cible.setByte(parameterIndex, x);
+    }
+
+    @Override
+    public void setShort(int parameterIndex, short x) throws SQLException {
+        suivi.lier(parameterIndex, "Short");
+        cible.setShort(parameterIndex, x);
+    }
+
+    @Override
+    public void setInt(int parameterIndex, int x) throws SQLException {
+        suivi.lier(parameterIndex, "Integer");
+        cible.setInt(parameterIndex, x);
+    }
+
+    @Override
+    public void setLong(int parameterIndex, long x) throws SQLException {
+        suivi.lier(parameterIndex, "Long");
+        cible.setLong(parameterIndex, x);
+    }
+
+    @Override
+    public void setFloat(int parameterIndex, float x) throws SQLException {
+        suivi.lier(parameterIndex, "Float");
+        cible.setFloat(parameterIndex, x);
+    }
+
+    @Override
+    public void setDouble(int parameterIndex, double x) throws SQLException {
+        suivi.lier(parameterIndex, "Double");
+        cible.setDouble(parameterIndex, x);
+    }
+
+    @Override
+    public void setBigDecimal(int parameterIndex, BigDecimal x) throws SQLException {
+        suivi.lier(parameterIndex, JdbcMesure.type(x));
+        cible.setBigDecimal(parameterIndex, x);
+    }
+
+    @Override
+    public void setString(int parameterIndex, String x) throws SQLException {
+        suivi.lier(parameterIndex, JdbcMesure.type(x));
+        cible.setString(parameterIndex, x);
+    }
+
+    @Override
+    public void setBytes(int parameterIndex, byte[] x) throws SQLException {
+        suivi.lier(parameterIndex, JdbcMesure.type(x));
+        cible.setBytes(parameterIndex, x);
+    }
+
+    @Override
+    public void setDate(int parameterIndex, Date x) throws SQLException {
+        suivi.lier(parameterIndex, JdbcMesure.type(x));
+        cible.setDate(parameterIndex, x);
+    }
+
+    @Override
+    public void setTime(int parameterIndex, Time x) throws SQLException {
+        suivi.lier(parameterIndex, JdbcMesure.type(x));
+        cible.setTime(parameterIndex, x);
+    }
+
+    @Override
+    public void setTimestamp(int parameterIndex, Timestamp x) throws SQLException {
+        suivi.lier(parameterIndex, JdbcMesure.type(x));
+        cible.setTimestamp(parameterIndex, x);
+    }
+
+    @Override
+    public void setAsciiStream(int parameterIndex, InputStream x, int length) throws SQLException {
+        suivi.lier(parameterIndex, JdbcMesure.type(x));
+        cible.setAsciiStream(parameterIndex, x, length);
+    }
+
+    @Deprecated
+    @Override
+    public void setUnicodeStream(int parameterIndex, InputStream x, int length) throws SQLException {
+        suivi.lier(parameterIndex, JdbcMesure.type(x));
+        cible.setUnicodeStream(parameterIndex, x, length);
+    }
+
+    @Override
+    public void setBinaryStream(int parameterIndex, InputStream x, int length) throws SQLException {
+        suivi.lier(parameterIndex, JdbcMesure.type(x));
+        cible.setBinaryStream(parameterIndex, x, length);
+    }
+
+    @Override
+    public void clearParameters() throws SQLException {
+        suivi.effacer();
+        cible.clearParameters();
+    }
+
+    @Override
+    public void setObject(int parameterIndex, Object x, int targetSqlType) throws SQLException {
+        suivi.lier(parameterIndex, JdbcMesure.type(x));
+        cible.setObject(parameterIndex, x, targetSqlType);
+    }
+
+    @Override
+    public void setObject(int parameterIndex, Object x) throws SQLException {
+        suivi.lier(parameterIndex, JdbcMesure.type(x));
+        cible.setObject(parameterIndex, x);
+    }
+
+    @Override
+    public boolean execute() throws SQLException {
+        return executer(null, () -> cible.execute());
+    }
+
+    @Override
+    public void addBatch() throws SQLException {
+        suivi.lot();
+        cible.addBatch();
+    }
+
+    @Override
+    public void setCharacterStream(int parameterIndex, Reader reader, int length) throws SQLException {
+        suivi.lier(parameterIndex, JdbcMesure.type(reader));
+        cible.setCharacterStream(parameterIndex, reader, length);
+    }
+
+    @Override
+    public void setRef(int parameterIndex, Ref x) throws SQLException {
+        suivi.lier(parameterIndex, JdbcMesure.type(x));
+        cible.setRef(parameterIndex, x);
+    }
+
+    @Override
+    public void setBlob(int parameterIndex, Blob x) throws SQLException {
+        suivi.lier(parameterIndex, JdbcMesure.type(x));
+        cible.setBlob(parameterIndex, x);
+    }
+
+    @Override
+    public void setClob(int parameterIndex, Clob x) throws SQLException {
+        suivi.lier(parameterIndex, JdbcMesure.type(x));
+        cible.setClob(parameterIndex, x);
+    }
+
+    @Override
+    public void setArray(int parameterIndex, Array x) throws SQLException {
+        suivi.lier(parameterIndex, JdbcMesure.type(x));
+        cible.setArray(parameterIndex, x);
+    }
+
+    @Override
+    public ResultSetMetaData getMetaData() throws SQLException {
+        return cible.getMetaData();
+    }
+
+    @Override
+    public void setDate(int parameterIndex, Date x, Calendar cal) throws SQLException {
+        suivi.lier(parameterIndex, JdbcMesure.type(x));
+        cible.setDate(parameterIndex, x, cal);
+    }
+
+    @Override
+    public void setTime(int parameterIndex, Time x, Calendar cal) throws SQLException {
+        suivi.lier(parameterIndex, JdbcMesure.type(x));
+        cible.setTime(parameterIndex, x, cal);
+    }
+
+    @Override
+    public void setTimestamp(int parameterIndex, Timestamp x, Calendar cal) throws SQLException {
+        suivi.lier(parameterIndex, JdbcMesure.type(x));
+        cible.setTimestamp(parameterIndex, x, cal);
+    }
+
+    @Override
+    public void setNull(int parameterIndex, int sqlType, String typeName) throws SQLException {
+        suivi.lier(parameterIndex, "null");
+        cible.setNull(parameterIndex, sqlType, typeName);
+    }
+
+    @Override
+    public void setURL(int parameterIndex, URL x) throws SQLException {
+        suivi.lier(parameterIndex, JdbcMesure.type(x));
+        cible.setURL(parameterIndex, x);
+    }
+
+    @Override
+    public ParameterMetaData getParameterMetaData() throws SQLException {
+        return cible.getParameterMetaData();
+    }
+
+    @Override
+    public void setRowId(int parameterIndex, RowId x) throws SQLException {
+        suivi.lier(parameterIndex, JdbcMesure.type(x));
+        cible.setRowId(parameterIndex, x);
+    }
+
+    @Override
+    public void setNString(int parameterIndex, String value) throws SQLException {
+        suivi.lier(parameterIndex, JdbcMesure.type(value));
+        cible.setNString(parameterIndex, value);
+    }
+
+    @Override
+    public void setNCharacterStream(int parameterIndex, Reader value, long length) throws SQLException {
+        suivi.lier(parameterIndex, JdbcMesure.type(value));
+        cible.setNCharacterStream(parameterIndex, value, length);
+    }
+
+    @Override
+    public void setNClob(int parameterIndex, NClob value) throws SQLException {
+        suivi.lier(parameterIndex, JdbcMesure.type(value));
+        cible.setNClob(parameterIndex, value);
+    }
+
+    @Override
+    public void setClob(int parameterIndex, Reader reader, long length) throws SQLException {
+        suivi.lier(parameterIndex, JdbcMesure.type(reader));
+        cible.setClob(parameterIndex, reader, length);
+    }
+
+    @Override
+    public void setBlob(int parameterIndex, InputStream inputStream, long length) throws SQLException {
+        suivi.lier(parameterIndex, JdbcMesure.type(inputStream));
+        cible.setBlob(parameterIndex, inputStream, length);
+    }
+
+    @Override
+    public void setNClob(int parameterIndex, Reader reader, long length) throws SQLException {
+        suivi.lier(parameterIndex, JdbcMesure.type(reader));
+        cible.setNClob(parameterIndex, reader, length);
+    }
+
+    @Override
+    public void setSQLXML(int parameterIndex, SQLXML xmlObject) throws SQLException {
+        suivi.lier(parameterIndex, JdbcMesure.type(xmlObject));
+        cible.setSQLXML(parameterIndex, xmlObject);
+    }
+
+    @Override
+    public void setObject(int parameterIndex, Object x, int targetSqlType, int scaleOrLength) throws SQLException {
+        suivi.lier(parameterIndex, JdbcMesure.type(x));
+        cible.setObject(parameterIndex, x, targetSqlType, scaleOrLength);
+    }
+
+    @Override
+    public void setAsciiStream(int parameterIndex, InputStream x, long length) throws SQLException {
+        suivi.lier(parameterIndex, JdbcMesure.type(x));
+        cible.setAsciiStream(parameterIndex, x, length);
+    }
+
+    @Override
+    public void setBinaryStream(int parameterIndex, InputStream x, long length) throws SQLException {
+        suivi.lier(parameterIndex, JdbcMesure.type(x));
+        cible.setBinaryStream(parameterIndex, x, length);
+    }
+
+    @Override
+    public void setCharacterStream(int parameterIndex, Reader reader, long length) throws SQLException {
+        suivi.lier(parameterIndex, JdbcMesure.type(reader));
+        cible.setCharacterStream(parameterIndex, reader, length);
+    }
+
+    @Override
+    public void setAsciiStream(int parameterIndex, InputStream x) throws SQLException {
+        suivi.lier(parameterIndex, JdbcMesure.type(x));
+        cible.setAsciiStream(parameterIndex, x);
+    }
+
+    @Override
+    public void setBinaryStream(int parameterIndex, InputStream x) throws SQLException {
+        suivi.lier(parameterIndex, JdbcMesure.type(x));
+        cible.setBinaryStream(parameterIndex, x);
+    }
+
+    @Override
+    public void setCharacterStream(int parameterIndex, Reader reader) throws SQLException {
+        suivi.lier(parameterIndex, JdbcMesure.type(reader));
+        cible.setCharacterStream(parameterIndex, reader);
+    }
+
+    @Override
+    public void setNCharacterStream(int parameterIndex, Reader value) throws SQLException {
+        suivi.lier(parameterIndex, JdbcMesure.type(value));
+        cible.setNCharacterStream(parameterIndex, value);
+    }
+
+    @Override
+    public void setClob(int parameterIndex, Reader reader) throws SQLException {
+        suivi.lier(parameterIndex, JdbcMesure.type(reader));
+        cible.setClob(parameterIndex, reader);
+    }
+
+    @Override
+    public void setBlob(int parameterIndex, InputStream inputStream) throws SQLException {
+        suivi.lier(parameterIndex, JdbcMesure.type(inputStream));
+        cible.setBlob(parameterIndex, inputStream);
+    }
+
+    @Override
+    public void setNClob(int parameterIndex, Reader reader) throws SQLException {
+        suivi.lier(parameterIndex, JdbcMesure.type(reader));
+        cible.setNClob(parameterIndex, reader);
+    }
+
+    @Override
+    public void setObject(int parameterIndex, Object x, SQLType targetSqlType, int scaleOrLength) throws SQLException {
+        suivi.lier(parameterIndex, JdbcMesure.type(x));
+        cible.setObject(parameterIndex, x, targetSqlType, scaleOrLength);
+    }
+
+    @Override
+    public void setObject(int parameterIndex, Object x, SQLType targetSqlType) throws SQLException {
+        suivi.lier(parameterIndex, JdbcMesure.type(x));
+        cible.setObject(parameterIndex, x, targetSqlType);
+    }
+
+    @Override
+    public long executeLargeUpdate() throws SQLException {
+        return executer(null, () -> cible.executeLargeUpdate());
+    }
+
+    @Override
+    public ResultSet executeQuery(String sql) throws SQLException {
+        return lire(sql, () -> cible.executeQuery(sql));
+    }
+
+    @Override
+    public int executeUpdate(String sql) throws SQLException {
+        return executer(sql, () -> cible.executeUpdate(sql));
+    }
+
+    @Override
+    public void close() throws SQLException {
+        cible.close();
+    }
+
+    @Override
+    public int getMaxFieldSize() throws SQLException {
+        return cible.getMaxFieldSize();
+    }
+
+    @Override
+    public void setMaxFieldSize(int max) throws SQLException {
+        cible.setMaxFieldSize(max);
+    }
+
+    @Override
+    public int getMaxRows() throws SQLException {
+        return cible.getMaxRows();
+    }
+
+    @Override
+    public void setMaxRows(int max) throws SQLException {
+        cible.setMaxRows(max);
+    }
+
+    @Override
+    public void setEscapeProcessing(boolean enable) throws SQLException {
+        cible.setEscapeProcessing(enable);
+    }
+
+    @Override
+    public int getQueryTimeout() throws SQLException {
+        return cible.getQueryTimeout();
+    }
+
+    @Override
+    public void setQueryTimeout(int seconds) throws SQLException {
+        cible.setQueryTimeout(seconds);
+    }
+
+    @Override
+    public void cancel() throws SQLException {
+        cible.cancel();
+    }
+
+    @Override
+    public SQLWarning getWarnings() throws SQLException {
+        return cible.getWarnings();
+    }
+
+    @Override
+    public void clearWarnings() throws SQLException {
+        cible.clearWarnings();
+    }
+
+    @Override
+    public void setCursorName(String name) throws SQLException {
+        cible.setCursorName(name);
+    }
+
+    @Override
+    public boolean execute(String sql) throws SQLException {
+        return executer(sql, () -> cible.execute(sql));
+    }
+
+    @Override
+    public ResultSet getResultSet() throws SQLException {
+        return cible.getResultSet();
+    }
+
+    @Override
+    public int getUpdateCount() throws SQLException {
+        return cible.getUpdateCount();
+    }
+
+    @Override
+    public boolean getMoreResults() throws SQLException {
+        return cible.getMoreResults();
+    }
+
+    @Override
+    public void setFetchDirection(int direction) throws SQLException {
+        cible.setFetchDirection(direction);
+    }
+
+    @Override
+    public int getFetchDirection() throws SQLException {
+        return cible.getFetchDirection();
+    }
+
+    @Override
+    public void setFetchSize(int rows) throws SQLException {
+        cible.setFetchSize(rows);
+    }
+
+    @Override
+    public int getFetchSize() throws SQLException {
+        return cible.getFetchSize();
+    }
+
+    @Override
+    public int getResultSetConcurrency() throws SQLException {
+        return cible.getResultSetConcurrency();
+    }
+
+    @Override
+    public int getResultSetType() throws SQLException {
+        return cible.getResultSetType();
+    }
+
+    @Override
+    public void addBatch(String sql) throws SQLException {
+        suivi.lot();
+        cible.addBatch(sql);
+    }
+
+    @Override
+    public void clearBatch() throws SQLException {
+        cible.clearBatch();
+    }
+
+    @Override
+    public int[] executeBatch() throws SQLException {
+        return executer(null, () -> cible.executeBatch());
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return cible.getConnection();
+    }
+
+    @Override
+    public boolean getMoreResults(int current) throws SQLException {
+        return cible.getMoreResults(current);
+    }
+
+    @Override
+    public ResultSet getGeneratedKeys() throws SQLException {
+        return cible.getGeneratedKeys();
+    }
+
+    @Override
+    public int executeUpdate(String sql, int autoGeneratedKeys) throws SQLException {
+        return executer(sql, () -> cible.executeUpdate(sql, autoGeneratedKeys));
+    }
+
+    @Override
+    public int executeUpdate(String sql, int[] columnIndexes) throws SQLException {
+        return executer(sql, () -> cible.executeUpdate(sql, columnIndexes));
+    }
+
+    @Override
+    public int executeUpdate(String sql, String[] columnNames) throws SQLException {
+        return executer(sql, () -> cible.executeUpdate(sql, columnNames));
+    }
+
+    @Override
+    public boolean execute(String sql, int autoGeneratedKeys) throws SQLException {
+        return executer(sql, () -> cible.execute(sql, autoGeneratedKeys));
+    }
+
+    @Override
+    public boolean execute(String sql, int[] columnIndexes) throws SQLException {
+        return executer(sql, () -> cible.execute(sql, columnIndexes));
+    }
+
+    @Override
+    public boolean execute(String sql, String[] columnNames) throws SQLException {
+        return executer(sql, () -> cible.execute(sql, columnNames));
+    }
+
+    @Override
+    public int getResultSetHoldability() throws SQLException {
+        return cible.getResultSetHoldability();
+    }
+
+    @Override
+    public boolean isClosed() throws SQLException {
+        return cible.isClosed();
+    }
+
+    @Override
+    public void setPoolable(boolean poolable) throws SQLException {
+        cible.setPoolable(poolable);
+    }
+
+    @Override
+    public boolean isPoolable() throws SQLException {
+        return cible.isPoolable();
+    }
+
+    @Override
+    public void closeOnCompletion() throws SQLException {
+        cible.closeOnCompletion();
+    }
+
+    @Override
+    public boolean isCloseOnCompletion() throws SQLException {
+        return cible.isCloseOnCompletion();
+    }
+
+    @Override
+    public long getLargeUpdateCount() throws SQLException {
+        return cible.getLargeUpdateCount();
+    }
+
+    @Override
+    public void setLargeMaxRows(long max) throws SQLException {
+        cible.setLargeMaxRows(max);
+    }
+
+    @Override
+    public long getLargeMaxRows() throws SQLException {
+        return cible.getLargeMaxRows();
+    }
+
+    @Override
+    public long[] executeLargeBatch() throws SQLException {
+        return executer(null, () -> cible.executeLargeBatch());
+    }
+
+    @Override
+    public long executeLargeUpdate(String sql) throws SQLException {
+        return executer(sql, () -> cible.executeLargeUpdate(sql));
+    }
+
+    @Override
+    public long executeLargeUpdate(String sql, int autoGeneratedKeys) throws SQLException {
+        return executer(sql, () -> cible.executeLargeUpdate(sql, autoGeneratedKeys));
+    }
+
+    @Override
+    public long executeLargeUpdate(String sql, int[] columnIndexes) throws SQLException {
+        return executer(sql, () -> cible.executeLargeUpdate(sql, columnIndexes));
+    }
+
+    @Override
+    public long executeLargeUpdate(String sql, String[] columnNames) throws SQLException {
+        return executer(sql, () -> cible.executeLargeUpdate(sql, columnNames));
+    }
+
+    @Override
+    public String enquoteLiteral(String val) throws SQLException {
+        return cible.enquoteLiteral(val);
+    }
+
+    @Override
+    public String enquoteIdentifier(String identifier, boolean alwaysQuote) throws SQLException {
+        return cible.enquoteIdentifier(identifier, alwaysQuote);
+    }
+
+    @Override
+    public boolean isSimpleIdentifier(String identifier) throws SQLException {
+        return cible.isSimpleIdentifier(identifier);
+    }
+
+    @Override
+    public String enquoteNCharLiteral(String val) throws SQLException {
+        return cible.enquoteNCharLiteral(val);
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        return cible.unwrap(iface);
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        return cible.isWrapperFor(iface);
+    }
+}
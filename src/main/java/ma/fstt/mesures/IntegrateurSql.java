@@ -0,0 +1,46 @@
+package ma.fstt.mesures;
+
+import org.hibernate.boot.Metadata;
+import org.hibernate.boot.spi.BootstrapContext;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.InitializeCollectionEvent;
+import org.hibernate.event.spi.InitializeCollectionEventListener;
+import org.hibernate.event.spi.PostLoadEvent;
+import org.hibernate.event.spi.PostLoadEventListener;
+import org.hibernate.integrator.spi.Integrator;
+
+/**
+ * Compte les entités chargées et les collections initialisées dans le budget de la requête
+ * (déclaré dans META-INF/services/org.hibernate.integrator.spi.Integrator)
+ */
+public class IntegrateurSql implements Integrator {
+
+    @Override
+    public void integrate(Metadata metadata, BootstrapContext bootstrapContext, SessionFactoryImplementor sessionFactory) {
+        EventListenerRegistry registre = sessionFactory.getServiceRegistry().requireService(EventListenerRegistry.class);
+        registre.appendListeners(EventType.POST_LOAD, new Chargements());
+        registre.appendListeners(EventType.INIT_COLLECTION, new Collections());
+    }
+
+    private static final class Chargements implements PostLoadEventListener {
+        @Override
+        public void onPostLoad(PostLoadEvent event) {
+            BudgetSql budget = BudgetSql.courant();
+            if (budget != null) {
+                budget.entiteChargee();
+            }
+        }
+    }
+
+    private static final class Collections implements InitializeCollectionEventListener {
+        @Override
+        public void onInitializeCollection(InitializeCollectionEvent event) {
+            BudgetSql budget = BudgetSql.courant();
+            if (budget != null) {
+                budget.collectionInitialisee();
+            }
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package ma.fstt.mesures;
+
+import jakarta.annotation.Priority;
+import jakarta.inject.Inject;
+import jakarta.interceptor.AroundInvoke;
+import jakarta.interceptor.Interceptor;
+import jakarta.interceptor.InvocationContext;
+
+import java.io.Serializable;
+
+/**
+ * Enregistre la durée des actions annotées @Mesure, et leur part du budget SQL de la requête
+ * Pendant l'action, les requêtes du journal SQL lent lui sont attribuées.
+ * Priorité la plus basse : l'intercepteur entoure @Transactional, le commit est donc compté.
+ */
+@Mesure
+@Interceptor
+@Priority(Interceptor.Priority.PLATFORM_BEFORE)
+public class IntercepteurMesure implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    @Inject
+    private Mesures mesures;
+
+    @AroundInvoke
+    public Object mesurer(InvocationContext contexte) throws Exception {
+        String action = contexte.getMethod().getDeclaringClass().getSimpleName() + "." + contexte.getMethod().getName();
+        String origine = JournalSql.origine();
+        JournalSql.origine(action);
+        BudgetSql budget = BudgetSql.courant();
+        int[] avant = budget != null ? budget.instantane() : null;
+        long debut = System.nanoTime();
+        try {
+            return contexte.proceed();
+        } finally {
+            mesures.action(contexte.getMethod()).enregistrer(System.nanoTime() - debut);
+            JournalSql.origine(origine);
+            if (budget != null) {
+                budget.action(action, avant);
+            }
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package ma.fstt.mesures;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.Arrays;
+
+/**
+ * Enveloppes JDBC qui chronomètrent les exécutions pour JournalSql
+ *
+ * - Durée : appel execute / executeQuery / executeUpdate / executeBatch
+ * - Forme des paramètres : type de chaque valeur liée (Long, String, null...), jamais la valeur
+ * - Lignes : lignes modifiées, ou lignes lues dans le ResultSet (comptées jusqu'à sa fermeture)
+ *
+ * La connexion est enveloppée par un Proxy (un appel par instruction préparée). PreparedStatement
+ * et ResultSet, appelés pour chaque paramètre et chaque colonne, le sont par des classes de
+ * délégation (InstructionPrepareeMesuree, ResultatMesure).
+ */
+final class JdbcMesure {
+
+    private JdbcMesure() {
+    }
+
+    static Connection connexion(Connection connexion) {
+        return (Connection) Proxy.newProxyInstance(JdbcMesure.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, new ConnexionMesuree(connexion));
+    }
+
+    static Connection reelle(Connection connexion) {
+        if (Proxy.isProxyClass(connexion.getClass())
+                && Proxy.getInvocationHandler(connexion) instanceof ConnexionMesuree) {
+            return ((ConnexionMesuree) Proxy.getInvocationHandler(connexion)).cible;
+        }
+        return connexion;
+    }
+
+    private static Object appeler(Object cible, Method methode, Object[] args) throws Throwable {
+        try {
+            return methode.invoke(cible, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Type d'une valeur liée (jamais la valeur elle-même)
+     */
+    static String type(Object valeur) {
+        return valeur == null ? "null" : valeur.getClass().getSimpleName();
+    }
+
+    private static final class ConnexionMesuree implements InvocationHandler {
+        private final Connection cible;
+
+        private ConnexionMesuree(Connection cible) {
+            this.cible = cible;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method methode, Object[] args) throws Throwable {
+            Object resultat = appeler(cible, methode, args);
+            String nom = methode.getName();
+            if (resultat instanceof Statement && (nom.startsWith("prepare") || nom.equals("createStatement"))) {
+                String sql = args != null && args.length > 0 && args[0] instanceof String ? (String) args[0] : null;
+                if (resultat instanceof PreparedStatement && !(resultat instanceof CallableStatement)) {
+                    return new InstructionPrepareeMesuree((PreparedStatement) resultat, sql);
+                }
+                // Instructions simples et procédures stockées, rares : un Proxy suffit
+                Class<?> type = resultat instanceof CallableStatement ? CallableStatement.class : Statement.class;
+                return Proxy.newProxyInstance(JdbcMesure.class.getClassLoader(),
+                        new Class<?>[]{type}, new InstructionMesuree((Statement) resultat, sql));
+            }
+            return resultat;
+        }
+    }
+
+    private static final class InstructionMesuree implements InvocationHandler {
+        private final Statement cible;
+        private final Suivi suivi;
+
+        private InstructionMesuree(Statement cible, String sql) {
+            this.cible = cible;
+            this.suivi = new Suivi(sql);
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method methode, Object[] args) throws Throwable {
+            String nom = methode.getName();
+            if (nom.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer) {
+                suivi.lier((Integer) args[0], nom.equals("setNull") ? "null" : type(args[1]));
+            } else if (nom.equals("addBatch")) {
+                suivi.lot();
+            } else if (nom.equals("clearParameters")) {
+                suivi.effacer();
+            }
+            if (!nom.startsWith("execute")) {
+                return appeler(cible, methode, args);
+            }
+
+            String instruction = suivi.instruction(args != null && args.length > 0 ? String.valueOf(args[0]) : null);
+            String forme = suivi.forme();
+            long debut = System.nanoTime();
+            Object resultat = appeler(cible, methode, args);
+            long nanos = System.nanoTime() - debut;
+            suivi.executee();
+
+            if (resultat instanceof ResultSet) {
+                return new ResultatMesure((ResultSet) resultat, instruction, forme, nanos);
+            }
+            JournalSql.enregistrer(instruction, forme, nanos, Suivi.lignes(resultat));
+            return resultat;
+        }
+    }
+
+    /**
+     * Ce qu'une instruction retient entre deux exécutions : son SQL, le type des paramètres liés
+     * et le nombre de addBatch
+     */
+    static final class Suivi {
+        private final String sql;
+        private String[] parametres = new String[8];
+        private int nombreParametres;
+        private int lots; // Nombre de addBatch depuis la dernière exécution
+
+        Suivi(String sql) {
+            this.sql = sql;
+        }
+
+        void lier(int index, String type) {
+            if (index > parametres.length) {
+                parametres = Arrays.copyOf(parametres, Math.max(index, parametres.length * 2));
+            }
+            parametres[index - 1] = type;
+            nombreParametres = Math.max(nombreParametres, index);
+        }
+
+        void lot() {
+            lots++;
+        }
+
+        void effacer() {
+            nombreParametres = 0;
+        }
+
+        /**
+         * SQL préparé, ou à défaut celui passé à l'exécution (instruction simple)
+         */
+        String instruction(String sqlAppel) {
+            return sql != null ? sql : sqlAppel != null ? sqlAppel : "?";
+        }
+
+        String forme() {
+            StringBuilder forme = new StringBuilder("(");
+            for (int i = 0; i < nombreParametres; i++) {
+                forme.append(i > 0 ? ", " : "").append(parametres[i]);
+            }
+            forme.append(')');
+            if (lots > 0) {
+                forme.append(" × ").append(lots);
+            }
+            return forme.toString();
+        }
+
+        void executee() {
+            lots = 0;
+        }
+
+        static long lignes(Object resultat) {
+            if (resultat instanceof Number) {
+                return ((Number) resultat).longValue();
+            }
+            if (resultat instanceof int[]) {
+                long total = 0;
+                for (int n : (int[]) resultat) {
+                    total += Math.max(n, 0);
+                }
+                return total;
+            }
+            if (resultat instanceof long[]) {
+                return Arrays.stream((long[]) resultat).map(n -> Math.max(n, 0)).sum();
+            }
+            return 0;
+        }
+    }
+}
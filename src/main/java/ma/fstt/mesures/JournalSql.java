@@ -0,0 +1,159 @@
+package ma.fstt.mesures;
+
+import ma.fstt.config.Parametres;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Journal des requêtes SQL lentes (remplace hibernate.show_sql)
+ *
+ * Chaque exécution JDBC (voir JdbcMesure) est ajoutée aux totaux par instruction, pour le
+ * rapport des plus coûteuses. Seules les exécutions au-delà de journal.sql.seuil.ms, et un
+ * échantillon des autres (journal.sql.echantillon), entrent dans la file d'écriture : file sans
+ * verrou et bornée (au-delà, l'exécution est comptée comme perdue plutôt que de ralentir la
+ * requête). EcritureJournalSql vide la file dans le fichier tournant.
+ *
+ * Classe statique : les connexions sont enveloppées par Hibernate, hors de CDI.
+ */
+public final class JournalSql {
+
+    private static final long SEUIL_NANOS = Parametres.nombre("journal.sql.seuil.ms", 100) * 1_000_000;
+    private static final double ECHANTILLON = Double.parseDouble(Parametres.texte("journal.sql.echantillon", "0.01"));
+    private static final int CAPACITE_FILE = (int) Parametres.nombre("journal.sql.file", 10_000);
+    // Instructions distinctes suivies pour le rapport (le SQL d'Hibernate est paramétré, donc en nombre fini)
+    private static final int INSTRUCTIONS_MAX = 2_000;
+
+    private static final ConcurrentLinkedQueue<Execution> FILE = new ConcurrentLinkedQueue<>();
+    private static final AtomicInteger TAILLE_FILE = new AtomicInteger();
+    private static final LongAdder PERDUES = new LongAdder();
+    private static final ConcurrentHashMap<String, Totaux> TOTAUX = new ConcurrentHashMap<>();
+
+    // Méthode de bean en cours sur ce thread (posée par IntercepteurMesure)
+    private static final ThreadLocal<String> ORIGINE = new ThreadLocal<>();
+
+    private JournalSql() {
+    }
+
+    /**
+     * Une exécution terminée : durée, forme des paramètres et nombre de lignes
+     */
+    public static final class Execution {
+        final long horodatage = System.currentTimeMillis();
+        final String sql;
+        final String parametres;
+        final long nanos;
+        final long lignes;
+        final String origine;
+
+        private Execution(String sql, String parametres, long nanos, long lignes, String origine) {
+            this.sql = sql;
+            this.parametres = parametres;
+            this.nanos = nanos;
+            this.lignes = lignes;
+            this.origine = origine;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%tFT%<tT.%<tL %8.1f ms %6d ligne(s) [%s] %s %s",
+                    horodatage, nanos / 1e6, lignes, origine, parametres, sql.replaceAll("\\s+", " "));
+        }
+    }
+
+    /**
+     * Totaux d'une instruction depuis le démarrage
+     */
+    static final class Totaux {
+        final String sql;
+        final LongAdder executions = new LongAdder();
+        final LongAdder nanos = new LongAdder();
+        final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+        private Totaux(String sql) {
+            this.sql = sql;
+        }
+    }
+
+    static String origine() {
+        return ORIGINE.get();
+    }
+
+    static void origine(String origine) {
+        if (origine == null) {
+            ORIGINE.remove();
+        } else {
+            ORIGINE.set(origine);
+        }
+    }
+
+    static void enregistrer(String sql, String parametres, long nanos, long lignes) {
+        Totaux totaux = TOTAUX.get(sql);
+        if (totaux == null && TOTAUX.size() < INSTRUCTIONS_MAX) {
+            totaux = TOTAUX.computeIfAbsent(sql, Totaux::new);
+        }
+        if (totaux != null) {
+            totaux.executions.increment();
+            totaux.nanos.add(nanos);
+            totaux.max.accumulate(nanos);
+        }
+
+        if (nanos < SEUIL_NANOS && ThreadLocalRandom.current().nextDouble() >= ECHANTILLON) {
+            return;
+        }
+        if (TAILLE_FILE.incrementAndGet() > CAPACITE_FILE) {
+            TAILLE_FILE.decrementAndGet();
+            PERDUES.increment();
+            return;
+        }
+        String origine = ORIGINE.get();
+        if (origine == null) {
+            BudgetSql budget = BudgetSql.courant();
+            origine = budget != null ? budget.getVue() : Thread.currentThread().getName();
+        }
+        FILE.offer(new Execution(sql, parametres, nanos, lignes, origine));
+    }
+
+    /**
+     * Retire de la file les exécutions en attente d'écriture
+     */
+    static void vider(Consumer<Execution> ecriture) {
+        Execution execution;
+        while ((execution = FILE.poll()) != null) {
+            TAILLE_FILE.decrementAndGet();
+            ecriture.accept(execution);
+        }
+    }
+
+    /**
+     * Exécutions écartées (file pleine) depuis la dernière lecture
+     */
+    static long perdues() {
+        return PERDUES.sumThenReset();
+    }
+
+    /**
+     * Les instructions au plus grand temps cumulé
+     */
+    static List<String> rapport(int nombre) {
+        List<Totaux> tous = new ArrayList<>(TOTAUX.values());
+        tous.sort(Comparator.comparingLong((Totaux t) -> t.nanos.sum()).reversed());
+        List<String> lignes = new ArrayList<>();
+        for (Totaux totaux : tous.subList(0, Math.min(nombre, tous.size()))) {
+            long executions = totaux.executions.sum();
+            long nanos = totaux.nanos.sum();
+            lignes.add(String.format("%10.1f ms au total %8d exécution(s) %8.2f ms en moyenne %8.1f ms au plus  %s",
+                    nanos / 1e6, executions, executions > 0 ? nanos / 1e6 / executions : 0,
+                    totaux.max.get() / 1e6, totaux.sql.replaceAll("\\s+", " ")));
+        }
+        return lignes;
+    }
+}
@@ -0,0 +1,175 @@
+package ma.fstt.mesures;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.enterprise.event.TransactionPhase;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.PersistenceUnit;
+import ma.fstt.config.Parametres;
+import ma.fstt.service.CommandeEvenement;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Mesures de l'application, exposées au format Prometheus par ServletMesures
+ *
+ * - Durée des requêtes par vue JSF (FiltreMesures) et des actions annotées @Mesure
+ * - Compteurs métier : commandes, chiffre d'affaires, ajouts au panier, recherches sans résultat
+ * - JPA : statistiques Hibernate (déjà activées pour le cache) lues au moment de l'export
+ * - Pool de connexions : statistiques de la datasource WildFly (JMX), si elles sont activées
+ *
+ * L'enregistrement ne fait qu'incrémenter des LongAdder ; tout le formatage a lieu à l'export.
+ */
+@ApplicationScoped
+public class Mesures {
+
+    private static final Logger LOGGER = Logger.getLogger(Mesures.class.getName());
+
+    private static final String PREFIXE = "atelier3_";
+    private static final String DATASOURCE = Parametres.texte("mesures.datasource", "MySqlDS");
+
+    @PersistenceUnit(unitName = "mycnx")
+    private EntityManagerFactory emf;
+
+    private final ConcurrentHashMap<String, Histogramme> vues = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Method, Histogramme> actionsParMethode = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Histogramme> actions = new ConcurrentHashMap<>();
+
+    private final LongAdder commandes = new LongAdder();
+    private final LongAdder chiffreAffairesCentimes = new LongAdder();
+    private final LongAdder ajoutsPanier = new LongAdder();
+    private final LongAdder recherchesSansResultat = new LongAdder();
+
+    public Histogramme vue(String vue) {
+        return vues.computeIfAbsent(vue, v -> new Histogramme());
+    }
+
+    /**
+     * Histogramme d'une action (une seule recherche par méthode, sans construire de chaîne)
+     */
+    public Histogramme action(Method methode) {
+        Histogramme histogramme = actionsParMethode.get(methode);
+        if (histogramme == null) {
+            String nom = methode.getDeclaringClass().getSimpleName() + "." + methode.getName();
+            histogramme = actionsParMethode.computeIfAbsent(methode,
+                    m -> actions.computeIfAbsent(nom, n -> new Histogramme()));
+        }
+        return histogramme;
+    }
+
+    public void ajoutPanier() {
+        ajoutsPanier.increment();
+    }
+
+    public void rechercheSansResultat() {
+        recherchesSansResultat.increment();
+    }
+
+    /**
+     * Une commande n'est comptée qu'une fois sa transaction validée
+     */
+    public void surCommandeCreee(@Observes(during = TransactionPhase.AFTER_SUCCESS) CommandeEvenement evenement) {
+        commandes.increment();
+        chiffreAffairesCentimes.add(evenement.getMontantCentimes());
+    }
+
+    /**
+     * Export au format texte Prometheus (version 0.0.4)
+     */
+    public void ecrire(PrintWriter sortie) {
+        entete(sortie, "requete_duree_secondes", "histogram", "Durée des requêtes par vue JSF");
+        new TreeMap<>(vues).forEach((vue, h) -> h.ecrire(sortie, PREFIXE + "requete_duree_secondes", "vue=\"" + echapper(vue) + "\""));
+        entete(sortie, "action_duree_secondes", "histogram", "Durée des actions des beans");
+        new TreeMap<>(actions).forEach((action, h) -> h.ecrire(sortie, PREFIXE + "action_duree_secondes", "action=\"" + echapper(action) + "\""));
+
+        compteur(sortie, "commandes_total", "Commandes enregistrées", commandes.sum());
+        compteur(sortie, "chiffre_affaires_centimes_total", "Montant des commandes enregistrées (centimes)", chiffreAffairesCentimes.sum());
+        compteur(sortie, "ajouts_panier_total", "Produits ajoutés au panier", ajoutsPanier.sum());
+        compteur(sortie, "recherches_sans_resultat_total", "Recherches par mot-clé sans résultat", recherchesSansResultat.sum());
+
+        ecrireJpa(sortie);
+        ecrirePool(sortie);
+    }
+
+    private void ecrireJpa(PrintWriter sortie) {
+        Statistics statistiques = emf.unwrap(SessionFactory.class).getStatistics();
+        if (!statistiques.isStatisticsEnabled()) {
+            return;
+        }
+        compteur(sortie, "jpa_requetes_total", "Requêtes JPQL/HQL exécutées", statistiques.getQueryExecutionCount());
+        jauge(sortie, "jpa_requete_duree_max_secondes", "Durée de la requête la plus lente", statistiques.getQueryExecutionMaxTime() / 1000.0);
+        compteur(sortie, "jpa_instructions_preparees_total", "Instructions JDBC préparées", statistiques.getPrepareStatementCount());
+        compteur(sortie, "jpa_connexions_total", "Connexions obtenues par Hibernate", statistiques.getConnectCount());
+        compteur(sortie, "jpa_transactions_total", "Transactions terminées", statistiques.getTransactionCount());
+        compteur(sortie, "jpa_flush_total", "Flush de sessions", statistiques.getFlushCount());
+        compteur(sortie, "jpa_entites_chargees_total", "Entités chargées", statistiques.getEntityLoadCount());
+        compteur(sortie, "jpa_cache_succes_total", "Succès du cache de second niveau", statistiques.getSecondLevelCacheHitCount());
+        compteur(sortie, "jpa_cache_echecs_total", "Échecs du cache de second niveau", statistiques.getSecondLevelCacheMissCount());
+    }
+
+    /**
+     * Statistiques du pool (datasource avec statistics-enabled=true) ; absentes sinon
+     */
+    private void ecrirePool(PrintWriter sortie) {
+        try {
+            MBeanServer serveur = ManagementFactory.getPlatformMBeanServer();
+            ObjectName nom = new ObjectName("jboss.as:subsystem=datasources,data-source=" + DATASOURCE + ",statistics=pool");
+            if (!serveur.isRegistered(nom)) {
+                return;
+            }
+            Map<String, String> attributs = new TreeMap<>(Map.of(
+                    "activeCount", "pool_connexions_actives",
+                    "inUseCount", "pool_connexions_utilisees",
+                    "availableCount", "pool_connexions_disponibles",
+                    "waitCount", "pool_attentes"));
+            for (Map.Entry<String, String> attribut : attributs.entrySet()) {
+                jauge(sortie, attribut.getValue(), "Pool " + DATASOURCE + " : " + attribut.getKey(),
+                        nombre(serveur.getAttribute(nom, attribut.getKey())));
+            }
+            jauge(sortie, "pool_attente_moyenne_secondes", "Attente moyenne d'une connexion",
+                    nombre(serveur.getAttribute(nom, "averageBlockingTime")) / 1000.0);
+            jauge(sortie, "pool_attente_max_secondes", "Attente maximale d'une connexion",
+                    nombre(serveur.getAttribute(nom, "maxWaitTime")) / 1000.0);
+        } catch (Exception e) {
+            LOGGER.log(Level.FINE, "Statistiques du pool " + DATASOURCE + " indisponibles", e);
+        }
+    }
+
+    private static double nombre(Object valeur) {
+        if (valeur instanceof Number) {
+            return ((Number) valeur).doubleValue();
+        }
+        return valeur != null ? Double.parseDouble(valeur.toString()) : 0;
+    }
+
+    private static void entete(PrintWriter sortie, String nom, String type, String aide) {
+        sortie.println("# HELP " + PREFIXE + nom + " " + aide);
+        sortie.println("# TYPE " + PREFIXE + nom + " " + type);
+    }
+
+    private static void compteur(PrintWriter sortie, String nom, String aide, long valeur) {
+        entete(sortie, nom, "counter", aide);
+        sortie.println(PREFIXE + nom + " " + valeur);
+    }
+
+    private static void jauge(PrintWriter sortie, String nom, String aide, double valeur) {
+        entete(sortie, nom, "gauge", aide);
+        sortie.println(PREFIXE + nom + " " + valeur);
+    }
+
+    private static String echapper(String valeur) {
+        return valeur.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+}
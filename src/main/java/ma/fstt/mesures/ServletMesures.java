@@ -0,0 +1,58 @@
+package ma.fstt.mesures;
+
+import jakarta.inject.Inject;
+import jakarta.servlet.annotation.WebServlet;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import ma.fstt.config.Parametres;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+/**
+ * Point d'export Prometheus : GET /metrics
+ * L'en-tête "Authorization: Bearer <jeton>" est exigé ; tant que mesures.jeton n'est pas défini,
+ * le point d'export est fermé (403).
+ */
+@WebServlet(name = "ServletMesures", urlPatterns = "/metrics")
+public class ServletMesures extends HttpServlet {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final String JETON = Parametres.texte("mesures.jeton", "");
+
+    @Inject
+    private Mesures mesures;
+
+    @Override
+    protected void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        if (JETON.isEmpty()) {
+            response.sendError(HttpServletResponse.SC_FORBIDDEN);
+            return;
+        }
+        if (!autorise(request.getHeader("Authorization"))) {
+            response.setHeader("WWW-Authenticate", "Bearer");
+            response.sendError(HttpServletResponse.SC_UNAUTHORIZED);
+            return;
+        }
+        response.setContentType("text/plain; version=0.0.4; charset=UTF-8");
+        response.setHeader("Cache-Control", "no-store");
+        PrintWriter sortie = response.getWriter();
+        mesures.ecrire(sortie);
+        sortie.flush();
+    }
+
+    /**
+     * Comparaison en temps constant : la durée de la réponse ne révèle pas le début du jeton
+     */
+    private static boolean autorise(String autorisation) {
+        if (autorisation == null) {
+            return false;
+        }
+        return MessageDigest.isEqual(("Bearer " + JETON).getBytes(StandardCharsets.UTF_8),
+                autorisation.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -5,7 +5,9 @@ import lombok.*;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Set;
 
 /**
  * Entité Commande
@@ -13,7 +15,12 @@ import java.util.List;
  * Créée quand l'utilisateur valide son panier
  */
 @Entity
-@Table(name = "commandes")
+@Table(name = "commandes", indexes = {
+        // Pagination par clé de l'écran admin, avec ou sans filtre de statut / client
+        @Index(name = "idx_commandes_date_id", columnList = "dateCommande, id"),
+        @Index(name = "idx_commandes_statut_date_id", columnList = "statut, dateCommande, id"),
+        @Index(name = "idx_commandes_internaute_date_id", columnList = "internaute_id, dateCommande, id")
+})
 @Getter
 @Setter
 @NoArgsConstructor
@@ -22,7 +29,9 @@ import java.util.List;
 public class Commande {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "commandes_id")
+    @TableGenerator(name = "commandes_id", table = "generateurs_id", pkColumnName = "entite",
+            valueColumnName = "prochain", pkColumnValue = "commandes", allocationSize = 50)
     private Long id;
 
     @Column(nullable = false)
@@ -58,6 +67,8 @@ public class Commande {
 
     /**
      * Énumération pour le statut de la commande
+     * Les transitions autorisées suivent le cycle de vie : une commande n'est annulable
+     * qu'avant son expédition, et une commande livrée ou annulée ne change plus.
      */
     public enum StatutCommande {
         EN_ATTENTE,      // Commande créée, en attente de confirmation
@@ -65,6 +76,36 @@ public class Commande {
         EN_PREPARATION,  // En cours de préparation
         EXPEDIEE,        // Commande expédiée
         LIVREE,          // Commande livrée
-        ANNULEE          // Commande annulée
+        ANNULEE;         // Commande annulée
+
+        /**
+         * Statuts que l'on peut atteindre depuis celui-ci
+         */
+        public Set<StatutCommande> suivants() {
+            return switch (this) {
+                case EN_ATTENTE -> EnumSet.of(CONFIRMEE, ANNULEE);
+                case CONFIRMEE -> EnumSet.of(EN_PREPARATION, ANNULEE);
+                case EN_PREPARATION -> EnumSet.of(EXPEDIEE, ANNULEE);
+                case EXPEDIEE -> EnumSet.of(LIVREE);
+                case LIVREE, ANNULEE -> EnumSet.noneOf(StatutCommande.class);
+            };
+        }
+
+        public boolean peutPasserA(StatutCommande statut) {
+            return suivants().contains(statut);
+        }
+
+        /**
+         * Statuts depuis lesquels on peut atteindre celui-ci (condition des mises à jour en masse)
+         */
+        public Set<StatutCommande> precedents() {
+            Set<StatutCommande> precedents = EnumSet.noneOf(StatutCommande.class);
+            for (StatutCommande statut : values()) {
+                if (statut.peutPasserA(this)) {
+                    precedents.add(statut);
+                }
+            }
+            return precedents;
+        }
     }
 }
\ No newline at end of file
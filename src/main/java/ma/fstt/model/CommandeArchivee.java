@@ -0,0 +1,51 @@
+package ma.fstt.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.Immutable;
+
+import java.time.LocalDateTime;
+
+/**
+ * Entité CommandeArchivee
+ * Commande terminée (livrée ou annulée) et ancienne, déplacée hors de la table commandes
+ * par l'archivage planifié : les tables des commandes en cours et leurs index restent petits.
+ * Mêmes colonnes et même identifiant que la commande d'origine ; jamais modifiée.
+ */
+@Entity
+@Immutable
+@Table(name = "commandes_archive", indexes = {
+        // Historique complet d'un client, de la plus récente à la plus ancienne
+        @Index(name = "idx_commandes_archive_internaute_date_id", columnList = "internaute_id, dateCommande, id"),
+        @Index(name = "idx_commandes_archive_date_id", columnList = "dateCommande, id")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@ToString(exclude = "internaute")
+public class CommandeArchivee {
+
+    @Id
+    private Long id; // Identifiant de la commande d'origine
+
+    @Column(nullable = false)
+    private LocalDateTime dateCommande;
+
+    @Column(nullable = false)
+    private Double montantTotal;
+
+    @Column(nullable = false, length = 50)
+    @Enumerated(EnumType.STRING)
+    private Commande.StatutCommande statut;
+
+    @Column(length = 300)
+    private String adresseLivraison;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "internaute_id", nullable = false)
+    private Internaute internaute;
+
+    @Column(nullable = false)
+    private LocalDateTime dateArchivage;
+}
@@ -0,0 +1,97 @@
+package ma.fstt.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Entité EvenementCommande
+ * Boîte d'envoi (outbox) du traitement des commandes : une ligne par étape à exécuter.
+ * Elle est écrite dans la même transaction que la commande ; le pipeline la traite ensuite,
+ * en dehors de la requête du client, et la réessaie en cas d'échec.
+ */
+@Entity
+@Table(name = "evenements_commande", indexes = {
+        // Recherche des événements à traiter, dans l'ordre d'arrivée
+        @Index(name = "idx_evenements_commande_statut_essai", columnList = "statut, prochainEssai, id")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@ToString
+public class EvenementCommande {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "evenements_commande_id")
+    @TableGenerator(name = "evenements_commande_id", table = "generateurs_id", pkColumnName = "entite",
+            valueColumnName = "prochain", pkColumnValue = "evenements_commande", allocationSize = 50)
+    private Long id;
+
+    @Column(name = "commande_id", nullable = false)
+    private Long commandeId;
+
+    @Column(nullable = false, length = 50)
+    @Enumerated(EnumType.STRING)
+    private Etape etape;
+
+    @Column(nullable = false, length = 20)
+    @Enumerated(EnumType.STRING)
+    private Statut statut = Statut.A_TRAITER;
+
+    @Column(nullable = false)
+    private Integer tentatives = 0;
+
+    @Column(nullable = false)
+    private LocalDateTime prochainEssai;
+
+    @Column(nullable = false)
+    private LocalDateTime dateCreation;
+
+    private LocalDateTime finBail; // EN_COURS : au-delà, l'exécutant est considéré comme perdu
+
+    @Column(length = 500)
+    private String derniereErreur;
+
+    public EvenementCommande(Long commandeId, Etape etape) {
+        this.commandeId = commandeId;
+        this.etape = etape;
+    }
+
+    @PrePersist
+    protected void onCreate() {
+        dateCreation = LocalDateTime.now();
+        if (prochainEssai == null) {
+            prochainEssai = dateCreation;
+        }
+    }
+
+    /**
+     * Étapes du traitement d'une commande, avec le statut attendu et le statut obtenu
+     * (la suite, expédition et livraison, reste manuelle depuis l'écran admin)
+     */
+    @Getter
+    @AllArgsConstructor
+    public enum Etape {
+        CONFIRMATION(Commande.StatutCommande.EN_ATTENTE, Commande.StatutCommande.CONFIRMEE),
+        PREPARATION(Commande.StatutCommande.CONFIRMEE, Commande.StatutCommande.EN_PREPARATION);
+
+        private final Commande.StatutCommande statutAttendu;
+        private final Commande.StatutCommande statutSuivant;
+
+        /**
+         * Étape qui suit celle-ci (null si c'est la dernière étape automatique)
+         */
+        public Etape suivante() {
+            return ordinal() + 1 < values().length ? values()[ordinal() + 1] : null;
+        }
+    }
+
+    public enum Statut {
+        A_TRAITER,  // En attente (ou en attente d'un nouvel essai)
+        EN_COURS,   // Pris par un exécutant, jusqu'à la fin de son bail
+        TRAITE,     // Terminé
+        ECHEC       // Abandonné après le nombre maximal d'essais
+    }
+}
@@ -10,7 +10,9 @@ import java.util.List;
  * Entité Internaute
  */
 @Entity
-@Table(name = "internautes")
+@Table(name = "internautes", indexes = {
+        @Index(name = "idx_internautes_nom", columnList = "nom")
+})
 @Getter
 @Setter
 @NoArgsConstructor
@@ -19,7 +19,9 @@ import lombok.*;
 public class LigneCommande {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "lignes_commande_id")
+    @TableGenerator(name = "lignes_commande_id", table = "generateurs_id", pkColumnName = "entite",
+            valueColumnName = "prochain", pkColumnValue = "lignes_commande", allocationSize = 50)
     private Long id;
 
     @Column(nullable = false)
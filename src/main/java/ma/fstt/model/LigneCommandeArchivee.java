@@ -0,0 +1,40 @@
+package ma.fstt.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.Immutable;
+
+/**
+ * Entité LigneCommandeArchivee
+ * Ligne d'une commande archivée ; le nom du produit est recopié à l'archivage
+ * pour que l'historique reste lisible si le produit est supprimé du catalogue.
+ */
+@Entity
+@Immutable
+@Table(name = "lignes_commande_archive")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@ToString(exclude = "commande")
+public class LigneCommandeArchivee {
+
+    @Id
+    private Long id; // Identifiant de la ligne d'origine
+
+    @Column(nullable = false)
+    private Integer quantite;
+
+    @Column(nullable = false)
+    private Double prixUnitaire;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "commande_id", nullable = false)
+    private CommandeArchivee commande;
+
+    @Column(name = "produit_id", nullable = false)
+    private Long produitId; // Sans clé étrangère : le produit peut disparaître du catalogue
+
+    @Column(name = "produit_nom", nullable = false, length = 200)
+    private String produitNom;
+}
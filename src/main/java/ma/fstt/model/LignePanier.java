@@ -9,7 +9,9 @@ import lombok.*;
  * Exemple : 3x iPhone 15 Pro
  */
 @Entity
-@Table(name = "lignes_panier")
+@Table(name = "lignes_panier", uniqueConstraints =
+        // Une ligne par produit et par panier (les écritures différées s'appuient dessus)
+        @UniqueConstraint(name = "uk_lignes_panier_panier_produit", columnNames = {"panier_id", "produit_id"}))
 @Getter
 @Setter
 @NoArgsConstructor
@@ -18,7 +20,9 @@ import lombok.*;
 public class LignePanier {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "lignes_panier_id")
+    @TableGenerator(name = "lignes_panier_id", table = "generateurs_id", pkColumnName = "entite",
+            valueColumnName = "prochain", pkColumnValue = "lignes_panier", allocationSize = 50)
     private Long id;
 
     @Column(nullable = false)
@@ -41,4 +45,4 @@ public class LignePanier {
     public Double getSousTotal() {
         return produit.getPrix() * quantite;
     }
-}
\ No newline at end of file
+}
\ No newline at end of file
@@ -12,7 +12,10 @@ import java.util.List;
  * Représente le panier d'achat d'un utilisateur
  */
 @Entity
-@Table(name = "paniers")
+@Table(name = "paniers", indexes = {
+        // Purge des paniers désactivés ou abandonnés
+        @Index(name = "idx_paniers_actif_modification", columnList = "actif, dateModification")
+})
 @Getter
 @Setter
 @NoArgsConstructor
@@ -21,12 +24,16 @@ import java.util.List;
 public class Panier {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "paniers_id")
+    @TableGenerator(name = "paniers_id", table = "generateurs_id", pkColumnName = "entite",
+            valueColumnName = "prochain", pkColumnValue = "paniers", allocationSize = 50)
     private Long id;
 
     @Column(nullable = false)
     private LocalDateTime dateCreation;
 
+    private LocalDateTime dateModification; // Dernière écriture des lignes, ou désactivation
+
     @Column(nullable = false)
     private Boolean actif = true; // true = panier actif, false = transformé en commande
 
@@ -41,11 +48,12 @@ public class Panier {
 
     /**
      * Méthode appelée automatiquement avant la persistance
-     * Initialise la date de création
+     * Initialise les dates de création et de modification
      */
     @PrePersist
     protected void onCreate() {
         dateCreation = LocalDateTime.now();
+        dateModification = dateCreation;
     }
 
     /**
@@ -65,4 +73,4 @@ public class Panier {
                 .mapToInt(LignePanier::getQuantite)
                 .sum();
     }
-}
\ No newline at end of file
+}
\ No newline at end of file
@@ -2,13 +2,19 @@ package ma.fstt.model;
 
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 /**
  * Entité Produit
  * Représente un produit dans la vitrine du site e-commerce
  */
 @Entity
-@Table(name = "produits")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "produits")
+@Table(name = "produits", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_produits_reference", columnNames = "reference")
+})
 @Getter
 @Setter
 @NoArgsConstructor
@@ -17,9 +23,14 @@ import lombok.*;
 public class Produit {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "produits_id")
+    @TableGenerator(name = "produits_id", table = "generateurs_id", pkColumnName = "entite",
+            valueColumnName = "prochain", pkColumnValue = "produits", allocationSize = 50)
     private Long id;
 
+    @Column(length = 64)
+    private String reference; // Référence fournisseur (clé des imports en masse), facultative
+
     @Column(nullable = false, length = 200)
     private String nom;
 
@@ -33,7 +44,10 @@ public class Produit {
     private Integer stock = 0; // Quantité disponible en stock
 
     @Column(length = 500)
-    private String photo; // URL ou chemin de l'image du produit
+    private String photo; // Ancienne URL de l'image (produits créés avant le stockage des images)
+
+    @Column(length = 64)
+    private String image; // Empreinte SHA-256 de l'image dans le stockage local (ImageStore)
 
     // Relation ManyToOne : Un produit appartient à une catégorie
     @ManyToOne(fetch = FetchType.EAGER)
@@ -0,0 +1,53 @@
+package ma.fstt.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Entité ResumeClient
+ * Résumé dénormalisé des commandes d'un internaute (nombre, montant dépensé, dernière commande)
+ * Tenu à jour dans la transaction qui crée une commande ou change son statut,
+ * pour que l'affichage soit une simple lecture par clé primaire.
+ */
+@Entity
+@Table(name = "resumes_clients")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@ToString
+public class ResumeClient {
+
+    @Id
+    @Column(name = "internaute_id")
+    private Long internauteId; // Même identifiant que l'internaute
+
+    @Column(nullable = false)
+    private Integer nombreCommandes = 0;
+
+    @Column(nullable = false)
+    private Long montantDepenseCentimes = 0L; // Commandes annulées exclues ; en centimes, sans erreur d'arrondi cumulée
+
+    private Long derniereCommandeId;
+
+    private LocalDateTime derniereCommandeDate;
+
+    @Column(length = 50)
+    @Enumerated(EnumType.STRING)
+    private Commande.StatutCommande dernierStatut;
+
+    public double getMontantDepense() {
+        return montantDepenseCentimes / 100.0;
+    }
+
+    /**
+     * Résumé d'un internaute qui n'a encore rien commandé
+     */
+    public static ResumeClient vide(Long internauteId) {
+        ResumeClient resume = new ResumeClient();
+        resume.setInternauteId(internauteId);
+        return resume;
+    }
+}
@@ -0,0 +1,56 @@
+package ma.fstt.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+
+/**
+ * Entité VenteJourCategorie
+ * Chiffres de vente d'une journée pour une catégorie (cumul dénormalisé, commandes annulées exclues)
+ * Tenu à jour dans la transaction qui crée ou annule une commande (voir ma.fstt.ventes.CumulsVentes)
+ * et recalculé depuis l'historique par ReconstructionVentes : le tableau de bord ne lit que ces cumuls.
+ */
+@Entity
+@Table(name = "ventes_jour_categorie")
+@IdClass(VenteJourCategorie.Cle.class)
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@ToString
+public class VenteJourCategorie {
+
+    @Id
+    private LocalDate jour; // Jour de la commande
+
+    @Id
+    @Column(name = "categorie_id")
+    private Long categorieId; // Identifiant de la catégorie (0 = produits sans catégorie)
+
+    @Column(name = "nombre_commandes", nullable = false)
+    private Long nombreCommandes = 0L;
+
+    @Column(nullable = false)
+    private Long quantite = 0L;
+
+    @Column(name = "montant_centimes", nullable = false)
+    private Long montantCentimes = 0L; // En centimes : les ajouts et retraits successifs restent exacts
+
+    /**
+     * Clé composée (jour, categorieId)
+     */
+    @Getter
+    @Setter
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @EqualsAndHashCode
+    public static class Cle implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private LocalDate jour;
+        private Long categorieId;
+    }
+}
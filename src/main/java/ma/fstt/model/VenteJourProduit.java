@@ -0,0 +1,56 @@
+package ma.fstt.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+
+/**
+ * Entité VenteJourProduit
+ * Chiffres de vente d'une journée pour un produit (cumul dénormalisé, commandes annulées exclues)
+ * Tenu à jour dans la transaction qui crée ou annule une commande (voir ma.fstt.ventes.CumulsVentes)
+ * et recalculé depuis l'historique par ReconstructionVentes : le tableau de bord ne lit que ces cumuls.
+ */
+@Entity
+@Table(name = "ventes_jour_produit")
+@IdClass(VenteJourProduit.Cle.class)
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@ToString
+public class VenteJourProduit {
+
+    @Id
+    private LocalDate jour; // Jour de la commande
+
+    @Id
+    @Column(name = "produit_id")
+    private Long produitId; // Identifiant du produit
+
+    @Column(name = "nombre_commandes", nullable = false)
+    private Long nombreCommandes = 0L;
+
+    @Column(nullable = false)
+    private Long quantite = 0L;
+
+    @Column(name = "montant_centimes", nullable = false)
+    private Long montantCentimes = 0L; // En centimes : les ajouts et retraits successifs restent exacts
+
+    /**
+     * Clé composée (jour, produitId)
+     */
+    @Getter
+    @Setter
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @EqualsAndHashCode
+    public static class Cle implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private LocalDate jour;
+        private Long produitId;
+    }
+}
@@ -0,0 +1,54 @@
+package ma.fstt.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+
+/**
+ * Entité VenteJourStatut
+ * Commandes d'une journée par statut (nombre et montant, commandes annulées comprises)
+ * Tenu à jour dans la transaction qui crée une commande ou change son statut
+ * (voir ma.fstt.ventes.CumulsVentes) : une commande passe d'un statut à l'autre.
+ */
+@Entity
+@Table(name = "ventes_jour_statut")
+@IdClass(VenteJourStatut.Cle.class)
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@ToString
+public class VenteJourStatut {
+
+    @Id
+    private LocalDate jour; // Jour de la commande
+
+    @Id
+    @Column(length = 50)
+    @Enumerated(EnumType.STRING)
+    private Commande.StatutCommande statut;
+
+    @Column(name = "nombre_commandes", nullable = false)
+    private Long nombreCommandes = 0L;
+
+    @Column(name = "montant_centimes", nullable = false)
+    private Long montantCentimes = 0L;
+
+    /**
+     * Clé composée (jour, statut)
+     */
+    @Getter
+    @Setter
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @EqualsAndHashCode
+    public static class Cle implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private LocalDate jour;
+        private Commande.StatutCommande statut;
+    }
+}
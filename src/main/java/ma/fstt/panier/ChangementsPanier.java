@@ -0,0 +1,19 @@
+package ma.fstt.panier;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.Map;
+
+/**
+ * Modifications d'un panier à écrire en base, figées au moment de l'écriture
+ */
+@Getter
+@AllArgsConstructor
+public class ChangementsPanier {
+
+    private final PanierMemoire panier;
+    private final Long panierId;
+    private final long version;
+    private final Map<Long, Integer> quantites; // produitId -> quantité finale (0 = supprimer)
+}
@@ -0,0 +1,54 @@
+package ma.fstt.panier;
+
+import jakarta.ejb.Schedule;
+import jakarta.ejb.Singleton;
+import jakarta.ejb.TransactionAttribute;
+import jakarta.ejb.TransactionAttributeType;
+import jakarta.inject.Inject;
+import ma.fstt.service.CatalogueService;
+
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Tâche planifiée : écrit en base, par lots, les paniers modifiés depuis la dernière écriture
+ * Un lot en échec est réessayé panier par panier, pour qu'un panier en erreur ne bloque pas les autres.
+ */
+@Singleton
+public class EcriturePaniers {
+
+    private static final Logger LOGGER = Logger.getLogger(EcriturePaniers.class.getName());
+
+    private static final int TAILLE_LOT = 100;
+
+    @Inject
+    private PanierService panierService;
+
+    @Inject
+    private CatalogueService catalogueService;
+
+    @Schedule(hour = "*", minute = "*", second = "*/30", persistent = false)
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED) // Une transaction par lot
+    public void ecrire() {
+        // Catalogue pas encore chargé : les modifications attendent la prochaine exécution
+        if (catalogueService.getSnapshot().getProduits().isEmpty()) {
+            return;
+        }
+        List<ChangementsPanier> lot = panierService.changementsEnAttente(TAILLE_LOT);
+        while (!lot.isEmpty()) {
+            try {
+                panierService.ecrire(lot);
+                lot.forEach(changements -> changements.getPanier().confirmer(changements));
+            } catch (Exception e) {
+                LOGGER.log(Level.WARNING, "Écriture groupée des paniers en échec, reprise panier par panier", e);
+                lot.forEach(changements -> panierService.ecrireMaintenant(changements.getPanier()));
+                return; // Le reste attendra la prochaine exécution
+            }
+            if (lot.size() < TAILLE_LOT) {
+                return;
+            }
+            lot = panierService.changementsEnAttente(TAILLE_LOT);
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package ma.fstt.panier;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.Setter;
+import ma.fstt.model.Produit;
+
+import java.io.Serializable;
+
+/**
+ * Ligne du panier telle qu'affichée : produit du catalogue partagé et quantité
+ * (la quantité est modifiable par le champ de saisie, puis appliquée au panier)
+ */
+@Getter
+@Setter
+@AllArgsConstructor
+public class LignePanierVue implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private Produit produit;
+    private Integer quantite;
+
+    public Long getProduitId() {
+        return produit.getId();
+    }
+
+    public double getSousTotal() {
+        return (long) PanierMemoire.centimes(produit.getPrix()) * quantite / 100.0;
+    }
+}
@@ -0,0 +1,262 @@
+package ma.fstt.panier;
+
+import ma.fstt.model.Produit;
+import ma.fstt.service.CatalogueSnapshot;
+
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Panier de session tenu en mémoire (produitId -> quantité)
+ * Les clics du client ne touchent que cette structure ; les produits modifiés depuis la
+ * dernière écriture sont notés avec un numéro de version, et PanierService les écrit en base
+ * par lots. Une écriture ne retire une modification qu'une fois validée (confirmer) : si elle
+ * échoue, la modification reste en attente et sera réécrite.
+ * Le nombre d'articles et le total (en centimes) sont tenus à jour à chaque modification :
+ * les lire ne parcourt pas les lignes. Ils ne sont recalculés que si un prix du catalogue change.
+ * En session sérialisée (passivation, réplication), le panier s'écrit sous forme de tableaux
+ * de primitifs (FormeSerialisee) plutôt que de tables de hachage d'objets.
+ */
+public class PanierMemoire implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final Long internauteId;
+    private Long panierId; // Ligne "paniers" correspondante (null tant que rien n'a été ajouté)
+
+    private final LinkedHashMap<Long, Integer> quantites = new LinkedHashMap<>();
+
+    // produitId -> version de la dernière modification non encore écrite
+    private final Map<Long, Long> modifications = new HashMap<>();
+    private long version;
+
+    // Totaux courants : prix unitaire retenu pour chaque produit, nombre d'articles, total
+    private final Map<Long, Integer> prixCentimes = new HashMap<>();
+    private volatile int nombreArticles;
+    private volatile long totalCentimes;
+    private volatile long versionPrix = -1; // Version des prix du catalogue utilisée pour le total
+
+    public PanierMemoire(Long internauteId, Long panierId) {
+        this.internauteId = internauteId;
+        this.panierId = panierId;
+    }
+
+    public Long getInternauteId() {
+        return internauteId;
+    }
+
+    public synchronized Long getPanierId() {
+        return panierId;
+    }
+
+    public synchronized void setPanierId(Long panierId) {
+        this.panierId = panierId;
+    }
+
+    /**
+     * Numéro incrémenté à chaque modification du contenu
+     */
+    public synchronized long getVersion() {
+        return version;
+    }
+
+    public synchronized int quantite(Long produitId) {
+        return quantites.getOrDefault(produitId, 0);
+    }
+
+    /**
+     * Fixe la quantité d'un produit (0 retire le produit) au prix unitaire donné
+     */
+    public synchronized void definir(Long produitId, int quantite, int prixUnitaireCentimes) {
+        Integer ancienne = quantite > 0 ? quantites.put(produitId, quantite) : quantites.remove(produitId);
+        int ancienneQuantite = ancienne != null ? ancienne : 0;
+        if (ancienneQuantite != quantite) {
+            modifications.put(produitId, ++version);
+        }
+        Integer ancienPrix = quantite > 0 ? prixCentimes.put(produitId, prixUnitaireCentimes) : prixCentimes.remove(produitId);
+        nombreArticles += quantite - ancienneQuantite;
+        totalCentimes += (long) quantite * prixUnitaireCentimes
+                - (long) ancienneQuantite * (ancienPrix != null ? ancienPrix : 0);
+    }
+
+    public synchronized void vider() {
+        for (Long produitId : quantites.keySet()) {
+            modifications.put(produitId, ++version);
+        }
+        quantites.clear();
+        prixCentimes.clear();
+        nombreArticles = 0;
+        totalCentimes = 0;
+    }
+
+    /**
+     * Nombre d'articles (somme des quantités)
+     */
+    public int getNombreArticles() {
+        return nombreArticles;
+    }
+
+    /**
+     * Total du panier en centimes, aux prix de la dernière version du catalogue vue
+     */
+    public long getTotalCentimes() {
+        return totalCentimes;
+    }
+
+    /**
+     * Recalcule les totaux si les prix du catalogue ont changé depuis le dernier calcul
+     * (sinon simple comparaison de versions). Un produit retiré du catalogue quitte le panier ;
+     * un catalogue vide (pas encore chargé) ne retire rien et n'est pas retenu comme calculé.
+     *
+     * @return produits retirés du panier (à libérer et à écrire par l'appelant)
+     */
+    public List<Long> actualiserPrix(CatalogueSnapshot catalogue) {
+        if (catalogue.getVersionPrix() == versionPrix) {
+            return List.of();
+        }
+        synchronized (this) {
+            if (catalogue.getVersionPrix() == versionPrix || catalogue.getProduits().isEmpty()) {
+                return List.of();
+            }
+            List<Long> retires = new ArrayList<>();
+            int articles = 0;
+            long total = 0;
+            for (Long produitId : List.copyOf(quantites.keySet())) {
+                Produit produit = catalogue.getProduit(produitId);
+                if (produit == null) {
+                    quantites.remove(produitId);
+                    prixCentimes.remove(produitId);
+                    modifications.put(produitId, ++version);
+                    retires.add(produitId);
+                    continue;
+                }
+                int prix = centimes(produit.getPrix());
+                prixCentimes.put(produitId, prix);
+                articles += quantites.get(produitId);
+                total += (long) quantites.get(produitId) * prix;
+            }
+            nombreArticles = articles;
+            totalCentimes = total;
+            versionPrix = catalogue.getVersionPrix();
+            return retires;
+        }
+    }
+
+    /**
+     * Prix en centimes (arrondi au centime le plus proche)
+     */
+    public static int centimes(Double prix) {
+        return prix != null ? (int) Math.round(prix * 100) : 0;
+    }
+
+    /**
+     * Chargement initial depuis la base (ne crée aucune modification à écrire)
+     */
+    synchronized void charger(Long produitId, int quantite) {
+        quantites.put(produitId, quantite);
+    }
+
+    /**
+     * Copie du contenu, dans l'ordre d'ajout
+     */
+    public synchronized Map<Long, Integer> contenu() {
+        return new LinkedHashMap<>(quantites);
+    }
+
+    public synchronized boolean estVide() {
+        return quantites.isEmpty();
+    }
+
+    public synchronized boolean aEcrire() {
+        return !modifications.isEmpty();
+    }
+
+    /**
+     * Modifications en attente, en quantités absolues (0 = ligne à supprimer) :
+     * réécrire deux fois les mêmes changements donne le même résultat
+     *
+     * @return null si rien n'est à écrire
+     */
+    public synchronized ChangementsPanier changements() {
+        if (modifications.isEmpty() || panierId == null) {
+            return null;
+        }
+        Map<Long, Integer> aEcrire = new HashMap<>();
+        for (Long produitId : modifications.keySet()) {
+            aEcrire.put(produitId, quantites.getOrDefault(produitId, 0));
+        }
+        return new ChangementsPanier(this, panierId, version, aEcrire);
+    }
+
+    /**
+     * Retire les modifications écrites (celles faites depuis restent en attente)
+     */
+    public synchronized void confirmer(ChangementsPanier changements) {
+        modifications.values().removeIf(v -> v <= changements.getVersion());
+    }
+
+    private Object writeReplace() {
+        return new FormeSerialisee(this);
+    }
+
+    private void readObject(ObjectInputStream in) throws InvalidObjectException {
+        throw new InvalidObjectException("Un panier se relit par sa forme sérialisée");
+    }
+
+    /**
+     * Forme sérialisée compacte : lignes et modifications en tableaux parallèles
+     * Les totaux ne sont pas écrits ; ils sont recalculés au premier affichage (actualiserPrix).
+     */
+    private static final class FormeSerialisee implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final long internauteId;
+        private final long panierId; // -1 : pas encore de ligne "paniers"
+        private final long version;
+        private final long[] produits;
+        private final int[] quantites;
+        private final long[] produitsModifies;
+        private final long[] versionsModifications;
+
+        private FormeSerialisee(PanierMemoire panier) {
+            synchronized (panier) {
+                internauteId = panier.internauteId;
+                panierId = panier.panierId != null ? panier.panierId : -1;
+                version = panier.version;
+                produits = new long[panier.quantites.size()];
+                quantites = new int[produits.length];
+                int i = 0;
+                for (Map.Entry<Long, Integer> entree : panier.quantites.entrySet()) {
+                    produits[i] = entree.getKey();
+                    quantites[i++] = entree.getValue();
+                }
+                produitsModifies = new long[panier.modifications.size()];
+                versionsModifications = new long[produitsModifies.length];
+                i = 0;
+                for (Map.Entry<Long, Long> entree : panier.modifications.entrySet()) {
+                    produitsModifies[i] = entree.getKey();
+                    versionsModifications[i++] = entree.getValue();
+                }
+            }
+        }
+
+        private Object readResolve() {
+            PanierMemoire panier = new PanierMemoire(internauteId, panierId >= 0 ? panierId : null);
+            for (int i = 0; i < produits.length; i++) {
+                panier.quantites.put(produits[i], quantites[i]);
+            }
+            for (int i = 0; i < produitsModifies.length; i++) {
+                panier.modifications.put(produitsModifies[i], versionsModifications[i]);
+            }
+            panier.version = version;
+            return panier;
+        }
+    }
+}
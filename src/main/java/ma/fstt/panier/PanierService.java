@@ -0,0 +1,283 @@
+package ma.fstt.panier;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.transaction.Transactional;
+import ma.fstt.config.Parametres;
+import ma.fstt.model.Internaute;
+import ma.fstt.model.LignePanier;
+import ma.fstt.model.Panier;
+import ma.fstt.model.Produit;
+import ma.fstt.service.CatalogueService;
+import ma.fstt.service.CatalogueSnapshot;
+import org.hibernate.query.NativeQuery;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Persistance différée (write-behind) des paniers de session
+ * Les paniers modifiés sont inscrits ici ; EcriturePaniers les écrit périodiquement par lots,
+ * et ils sont aussi écrits à la fin de la session et à la validation de la commande.
+ * Chaque écriture est une transaction : en cas d'arrêt brutal, la base contient l'état
+ * d'un panier à sa dernière écriture réussie, jamais un état partiel.
+ */
+@ApplicationScoped
+public class PanierService {
+
+    private static final Logger LOGGER = Logger.getLogger(PanierService.class.getName());
+
+    // Écritures individuelles en échec avant d'abandonner un panier (session expirée, panier disparu...)
+    private static final int TENTATIVES = (int) Parametres.nombre("paniers.ecriture.tentatives", 10);
+
+    @PersistenceContext(unitName = "mycnx")
+    private EntityManager em;
+
+    @Inject
+    private CatalogueService catalogueService;
+
+    // Paniers ayant des modifications non écrites
+    private final Set<PanierMemoire> enAttente = ConcurrentHashMap.newKeySet();
+
+    // Échecs consécutifs d'écriture par panier
+    private final Map<PanierMemoire, Integer> echecs = new ConcurrentHashMap<>();
+
+    /**
+     * Charge le panier actif d'un internaute (une seule requête, aucune transaction)
+     */
+    public PanierMemoire charger(Long internauteId) {
+        List<Object[]> lignes = em.createQuery(
+                        "SELECT p.id, l.produit.id, l.quantite FROM Panier p LEFT JOIN p.lignesPanier l"
+                                + " WHERE p.internaute.id = :internauteId AND p.actif = true ORDER BY p.id, l.id",
+                        Object[].class)
+                .setParameter("internauteId", internauteId)
+                .getResultList();
+        if (lignes.isEmpty()) {
+            return new PanierMemoire(internauteId, null);
+        }
+        PanierMemoire panier = new PanierMemoire(internauteId, (Long) lignes.get(0)[0]);
+        for (Object[] ligne : lignes) {
+            if (ligne[1] != null && ligne[0].equals(panier.getPanierId())) {
+                panier.charger((Long) ligne[1], (Integer) ligne[2]);
+            }
+        }
+        return panier;
+    }
+
+    /**
+     * Crée la ligne "paniers" au premier ajout (une seule fois par panier)
+     */
+    @Transactional
+    public Long creerPanier(Long internauteId) {
+        Panier panier = new Panier();
+        panier.setInternaute(em.getReference(Internaute.class, internauteId));
+        em.persist(panier);
+        return panier.getId();
+    }
+
+    /**
+     * Inscrit un panier modifié pour la prochaine écriture
+     */
+    public void signaler(PanierMemoire panier) {
+        enAttente.add(panier);
+    }
+
+    public void oublier(PanierMemoire panier) {
+        enAttente.remove(panier);
+        echecs.remove(panier);
+    }
+
+    /**
+     * Identifiants des paniers dont des modifications attendent leur écriture (exclus de la purge)
+     */
+    public Set<Long> paniersEnAttente() {
+        Set<Long> ids = new HashSet<>();
+        for (PanierMemoire panier : enAttente) {
+            Long panierId = panier.getPanierId();
+            if (panierId != null) {
+                ids.add(panierId);
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * Modifications en attente, au plus "maximum" paniers
+     */
+    public List<ChangementsPanier> changementsEnAttente(int maximum) {
+        List<ChangementsPanier> lot = new ArrayList<>();
+        for (PanierMemoire panier : enAttente) {
+            ChangementsPanier changements = panier.changements();
+            if (changements == null) {
+                enAttente.remove(panier);
+            } else {
+                lot.add(changements);
+                if (lot.size() >= maximum) {
+                    break;
+                }
+            }
+        }
+        return lot;
+    }
+
+    /**
+     * Écrit les modifications de plusieurs paniers (une requête de lecture, puis des écritures en lot)
+     * Rejoint la transaction de l'appelant s'il y en a une (validation de commande).
+     */
+    @Transactional
+    public void ecrire(List<ChangementsPanier> lot) {
+        if (lot.isEmpty()) {
+            return;
+        }
+        List<Long> panierIds = lot.stream().map(ChangementsPanier::getPanierId).toList();
+        // Date de dernière modification : un panier sans écriture depuis longtemps est abandonné (purge planifiée)
+        // Faite avant la lecture des lignes : la ligne "paniers" verrouillée, une purge concurrente est sérialisée.
+        LocalDateTime maintenant = LocalDateTime.now();
+        int modifies = em.createQuery("UPDATE Panier p SET p.dateModification = :maintenant WHERE p.id IN :panierIds")
+                .setParameter("maintenant", maintenant)
+                .setParameter("panierIds", panierIds)
+                .executeUpdate();
+        Set<Long> recrees = modifies < panierIds.size() ? recreerPaniers(lot, maintenant) : Set.of();
+
+        Map<Long, Map<Long, LignePanier>> existantes = new HashMap<>();
+        for (LignePanier ligne : em.createQuery(
+                        "SELECT l FROM LignePanier l JOIN FETCH l.produit WHERE l.panier.id IN :panierIds",
+                        LignePanier.class)
+                .setParameter("panierIds", panierIds)
+                .getResultList()) {
+            existantes.computeIfAbsent(ligne.getPanier().getId(), id -> new HashMap<>())
+                    .put(ligne.getProduit().getId(), ligne);
+        }
+
+        // Un panier recréé est vide en base : tout son contenu est réécrit, pas seulement les modifications
+        Map<ChangementsPanier, Map<Long, Integer>> aEcrire = new HashMap<>();
+        for (ChangementsPanier changements : lot) {
+            aEcrire.put(changements, recrees.contains(changements.getPanierId())
+                    ? changements.getPanier().contenu() : changements.getQuantites());
+        }
+
+        Set<Long> supprimes = produitsSupprimes(aEcrire.values());
+        for (ChangementsPanier changements : lot) {
+            Map<Long, LignePanier> lignes = existantes.getOrDefault(changements.getPanierId(), Map.of());
+            for (Map.Entry<Long, Integer> entree : aEcrire.get(changements).entrySet()) {
+                LignePanier ligne = lignes.get(entree.getKey());
+                // Un produit supprimé entre-temps n'est pas réécrit (sa ligne part avec lui)
+                int quantite = supprimes.contains(entree.getKey()) ? 0 : entree.getValue();
+                if (quantite <= 0) {
+                    if (ligne != null) {
+                        em.remove(ligne);
+                    }
+                } else if (ligne != null) {
+                    ligne.setQuantite(quantite);
+                } else {
+                    LignePanier nouvelle = new LignePanier();
+                    nouvelle.setPanier(em.getReference(Panier.class, changements.getPanierId()));
+                    nouvelle.setProduit(em.getReference(Produit.class, entree.getKey()));
+                    nouvelle.setQuantite(quantite);
+                    em.persist(nouvelle);
+                }
+            }
+        }
+    }
+
+    /**
+     * Recrée les lignes "paniers" disparues (purge d'un panier abandonné encore tenu par une session)
+     * Le même identifiant est repris : la session continue d'écrire dans son panier.
+     */
+    private Set<Long> recreerPaniers(List<ChangementsPanier> lot, LocalDateTime maintenant) {
+        Set<Long> presents = new HashSet<>(em.createQuery(
+                        "SELECT p.id FROM Panier p WHERE p.id IN :panierIds", Long.class)
+                .setParameter("panierIds", lot.stream().map(ChangementsPanier::getPanierId).toList())
+                .getResultList());
+        Set<Long> recrees = new HashSet<>();
+        for (ChangementsPanier changements : lot) {
+            if (presents.contains(changements.getPanierId()) || !recrees.add(changements.getPanierId())) {
+                continue;
+            }
+            em.createNativeQuery("INSERT INTO paniers (id, internaute_id, actif, dateCreation, dateModification)"
+                            + " VALUES (:id, :internauteId, TRUE, :maintenant, :maintenant)")
+                    .unwrap(NativeQuery.class)
+                    .addSynchronizedEntityClass(Panier.class)
+                    .setParameter("id", changements.getPanierId())
+                    .setParameter("internauteId", changements.getPanier().getInternauteId())
+                    .setParameter("maintenant", maintenant)
+                    .executeUpdate();
+            LOGGER.log(Level.WARNING, "Panier " + changements.getPanierId() + " purgé alors qu'une session le tenait : recréé");
+        }
+        return recrees;
+    }
+
+    /**
+     * Produits à écrire qui n'existent plus
+     * L'absence du catalogue en mémoire ne suffit pas (catalogue pas encore chargé ou pas encore
+     * à jour d'un produit créé) : seuls les produits absents de la base sont écartés.
+     */
+    private Set<Long> produitsSupprimes(Collection<Map<Long, Integer>> aEcrire) {
+        CatalogueSnapshot catalogue = catalogueService.getSnapshot();
+        Set<Long> inconnus = new HashSet<>();
+        for (Map<Long, Integer> quantites : aEcrire) {
+            quantites.forEach((produitId, quantite) -> {
+                if (quantite > 0 && catalogue.getProduit(produitId) == null) {
+                    inconnus.add(produitId);
+                }
+            });
+        }
+        if (!inconnus.isEmpty()) {
+            inconnus.removeAll(em.createQuery("SELECT p.id FROM Produit p WHERE p.id IN :ids", Long.class)
+                    .setParameter("ids", inconnus)
+                    .getResultList());
+        }
+        return inconnus;
+    }
+
+    /**
+     * Écrit immédiatement un panier (fin de session)
+     * Après TENTATIVES échecs consécutifs, le panier n'est plus réessayé.
+     */
+    public void ecrireMaintenant(PanierMemoire panier) {
+        ChangementsPanier changements = panier.changements();
+        if (changements == null) {
+            oublier(panier);
+            return;
+        }
+        try {
+            ecrire(List.of(changements));
+            panier.confirmer(changements);
+            echecs.remove(panier);
+            if (!panier.aEcrire()) {
+                oublier(panier);
+            }
+        } catch (Exception e) {
+            int tentatives = echecs.merge(panier, 1, Integer::sum);
+            if (tentatives >= TENTATIVES) {
+                LOGGER.log(Level.SEVERE, "Écriture du panier " + changements.getPanierId() + " abandonnée après "
+                        + tentatives + " tentatives", e);
+                oublier(panier);
+            } else {
+                LOGGER.log(Level.WARNING, "Écriture du panier " + changements.getPanierId() + " reportée", e);
+            }
+        }
+    }
+
+    /**
+     * Désactive un panier transformé en commande
+     */
+    @Transactional(Transactional.TxType.MANDATORY)
+    public void desactiver(Long panierId) {
+        em.createQuery("UPDATE Panier p SET p.actif = false, p.dateModification = :maintenant WHERE p.id = :id")
+                .setParameter("maintenant", LocalDateTime.now())
+                .setParameter("id", panierId)
+                .executeUpdate();
+    }
+}
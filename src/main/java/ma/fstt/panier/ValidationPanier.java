@@ -0,0 +1,132 @@
+package ma.fstt.panier;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Event;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.transaction.Transactional;
+import ma.fstt.model.Commande;
+import ma.fstt.model.EvenementCommande;
+import ma.fstt.model.Internaute;
+import ma.fstt.model.LigneCommande;
+import ma.fstt.model.Produit;
+import ma.fstt.service.CommandeEvenement;
+import ma.fstt.service.ResumeClientService;
+import ma.fstt.service.StockEvenement;
+import ma.fstt.stock.ReservationStock;
+import ma.fstt.stock.ResultatReservation;
+import ma.fstt.stock.StockInsuffisantException;
+import ma.fstt.ventes.CumulsVentes;
+import org.hibernate.Session;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Transforme un panier en commande, en une transaction
+ * Le stock est réservé en dernier (décréments conditionnels, tout ou rien). Un échec, rupture
+ * ou erreur, annule toute la transaction par une exception : l'appelant, hors transaction,
+ * le signale au client et le panier en mémoire reste intact.
+ */
+@ApplicationScoped
+public class ValidationPanier {
+
+    @PersistenceContext(unitName = "mycnx")
+    private EntityManager em;
+
+    @Inject
+    private PanierService panierService;
+
+    @Inject
+    private ResumeClientService resumeClientService;
+
+    @Inject
+    private CumulsVentes cumulsVentes;
+
+    @Inject
+    private ReservationStock reservationStock;
+
+    @Inject
+    private Event<StockEvenement> evenementsStock;
+
+    @Inject
+    private Event<CommandeEvenement> evenementsCommande; // Réveille le pipeline des commandes après le commit
+
+    /**
+     * @return la commande enregistrée
+     * @throws StockInsuffisantException si un produit ne couvre plus la quantité demandée (rien n'est enregistré)
+     */
+    @Transactional(rollbackOn = StockInsuffisantException.class)
+    public Commande valider(PanierMemoire panier) throws StockInsuffisantException {
+        Map<Long, Integer> quantites = panier.contenu();
+
+        // Produits relus en une fois (cache de second niveau, puis une seule requête pour les absents)
+        Map<Long, Produit> produits = em.unwrap(Session.class)
+                .byMultipleIds(Produit.class)
+                .multiLoad(new ArrayList<>(quantites.keySet()))
+                .stream()
+                .filter(Objects::nonNull)
+                .collect(Collectors.toMap(Produit::getId, Function.identity()));
+
+        // Créer la commande
+        Commande commande = new Commande();
+        // La session ne garde qu'un résumé du client : l'entité est relue ici
+        Internaute internaute = em.find(Internaute.class, panier.getInternauteId());
+        commande.setInternaute(internaute);
+        commande.setAdresseLivraison(internaute.getAdresse());
+
+        // Copier les lignes du panier vers la commande (insérées en lot au flush)
+        long montantCentimes = 0;
+        for (Map.Entry<Long, Integer> entree : quantites.entrySet()) {
+            Produit produit = produits.get(entree.getKey());
+            if (produit == null) {
+                continue; // Produit supprimé entre-temps : la réservation échouera et le signalera
+            }
+
+            LigneCommande ligneCommande = new LigneCommande();
+            ligneCommande.setCommande(commande);
+            ligneCommande.setProduit(produit);
+            ligneCommande.setQuantite(entree.getValue());
+            ligneCommande.setPrixUnitaire(produit.getPrix());
+            montantCentimes += (long) PanierMemoire.centimes(produit.getPrix()) * entree.getValue();
+            commande.getLignesCommande().add(ligneCommande);
+        }
+        commande.setMontantTotal(montantCentimes / 100.0);
+        em.persist(commande); // Les lignes suivent par cascade
+
+        // La suite du traitement (confirmation, préparation...) passe par le pipeline des commandes
+        em.persist(new EvenementCommande(commande.getId(), EvenementCommande.Etape.CONFIRMATION));
+
+        // Mettre à jour le résumé du client dans la même transaction
+        resumeClientService.commandeCreee(commande);
+
+        // Écrire les dernières modifications du panier puis le désactiver
+        ChangementsPanier changements = panier.changements();
+        if (changements != null) {
+            panierService.ecrire(List.of(changements));
+        }
+        if (panier.getPanierId() != null) {
+            panierService.desactiver(panier.getPanierId());
+        }
+
+        // Écrire la commande avant de réserver : les lignes des produits très demandés
+        // ne restent verrouillées que le temps du commit
+        em.flush();
+        ResultatReservation reservation = reservationStock.reserver(quantites);
+        if (!reservation.isReussie()) {
+            throw new StockInsuffisantException(reservation.getRuptures());
+        }
+
+        // Cumuls du tableau de bord des ventes : en dernier, la ligne du jour est partagée par toutes les commandes
+        cumulsVentes.commandeCreee(commande);
+
+        evenementsStock.fire(new StockEvenement(quantites));
+        evenementsCommande.fire(new CommandeEvenement(commande.getId(), montantCentimes));
+        return commande;
+    }
+}
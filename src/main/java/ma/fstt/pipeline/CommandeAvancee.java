@@ -0,0 +1,20 @@
+package ma.fstt.pipeline;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import ma.fstt.model.Commande;
+import ma.fstt.model.EvenementCommande;
+
+/**
+ * Événement CDI émis, dans la transaction de l'étape, quand le pipeline fait avancer une commande
+ * Les traitements à ajouter après une commande (e-mail, facture...) observent cet événement :
+ * ils s'exécutent hors de la requête du client et profitent des nouveaux essais en cas d'erreur.
+ */
+@Getter
+@AllArgsConstructor
+public class CommandeAvancee {
+
+    private final Long commandeId;
+    private final EvenementCommande.Etape etape;
+    private final Commande.StatutCommande statut;
+}
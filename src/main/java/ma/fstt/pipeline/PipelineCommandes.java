@@ -0,0 +1,130 @@
+package ma.fstt.pipeline;
+
+import jakarta.annotation.Resource;
+import jakarta.enterprise.concurrent.ManagedExecutorService;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.context.Initialized;
+import jakarta.enterprise.event.Observes;
+import jakarta.enterprise.event.TransactionPhase;
+import jakarta.inject.Inject;
+import ma.fstt.config.Parametres;
+import ma.fstt.service.CommandeEvenement;
+
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Pipeline de traitement des commandes après la validation du panier
+ * La validation n'écrit qu'une ligne dans la boîte d'envoi (EvenementCommande) ; ce pipeline
+ * la lit et exécute les étapes sur l'exécuteur géré du serveur. Le nombre d'étapes en cours est
+ * borné : on ne prend en base que ce que les exécutants peuvent traiter, le reste attend dans
+ * la table (contre-pression), et rien n'est perdu si le serveur s'arrête.
+ */
+@ApplicationScoped
+public class PipelineCommandes {
+
+    private static final Logger LOGGER = Logger.getLogger(PipelineCommandes.class.getName());
+
+    private static final int EXECUTANTS = (int) Parametres.nombre("commandes.pipeline.executants", 4);
+    private static final int TENTATIVES_MAX = (int) Parametres.nombre("commandes.pipeline.tentatives", 5);
+
+    @Resource
+    private ManagedExecutorService executeur;
+
+    @Inject
+    private TraitementCommande traitement;
+
+    private final Semaphore places = new Semaphore(EXECUTANTS);
+    private final AtomicBoolean releveEnCours = new AtomicBoolean();
+
+    public void demarrer(@Observes @Initialized(ApplicationScoped.class) Object contexte) {
+        reprendre();
+    }
+
+    /**
+     * Reprend les étapes dont l'exécutant a disparu (bail expiré) : au démarrage, puis périodiquement
+     */
+    public void reprendre() {
+        try {
+            int reprises = traitement.reprendre();
+            if (reprises > 0) {
+                LOGGER.info("Pipeline des commandes : " + reprises + " étape(s) reprise(s)");
+            }
+        } catch (Exception e) {
+            LOGGER.log(Level.SEVERE, "Erreur lors de la reprise du pipeline des commandes", e);
+        }
+    }
+
+    /**
+     * Une commande vient d'être validée : inutile d'attendre le prochain relevé
+     */
+    public void surCommandeCreee(@Observes(during = TransactionPhase.AFTER_SUCCESS) CommandeEvenement evenement) {
+        reveiller();
+    }
+
+    /**
+     * Lance un relevé sur l'exécuteur (sans bloquer l'appelant)
+     */
+    public void reveiller() {
+        try {
+            executeur.execute(this::relever);
+        } catch (RejectedExecutionException e) {
+            // Exécuteur saturé : le relevé planifié prendra le relais
+        }
+    }
+
+    /**
+     * Prend les événements dus, autant qu'il y a d'exécutants libres, et les confie à l'exécuteur
+     * Un seul relevé à la fois.
+     */
+    public void relever() {
+        if (!releveEnCours.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            while (places.availablePermits() > 0) {
+                List<Long> evenementIds = traitement.prendre(places.availablePermits());
+                if (evenementIds.isEmpty()) {
+                    return;
+                }
+                for (Long evenementId : evenementIds) {
+                    places.acquireUninterruptibly();
+                    try {
+                        executeur.execute(() -> executer(evenementId));
+                    } catch (RejectedExecutionException e) {
+                        places.release();
+                        traitement.echouer(evenementId, "Exécuteur saturé", Integer.MAX_VALUE);
+                    }
+                }
+            }
+        } catch (Exception e) {
+            LOGGER.log(Level.SEVERE, "Erreur lors du relevé du pipeline des commandes", e);
+        } finally {
+            releveEnCours.set(false);
+        }
+    }
+
+    private void executer(Long evenementId) {
+        boolean reussi = false;
+        try {
+            traitement.executer(evenementId);
+            reussi = true;
+        } catch (Exception e) {
+            LOGGER.log(Level.WARNING, "Étape de commande en échec (événement " + evenementId + ")", e);
+            try {
+                traitement.echouer(evenementId, e.getMessage(), TENTATIVES_MAX);
+            } catch (Exception ex) {
+                LOGGER.log(Level.SEVERE, "Impossible d'enregistrer l'échec de l'événement " + evenementId, ex);
+            }
+        } finally {
+            places.release();
+        }
+        if (reussi) {
+            reveiller(); // L'étape suivante est peut-être déjà prête
+        }
+    }
+}
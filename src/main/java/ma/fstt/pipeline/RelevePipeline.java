@@ -0,0 +1,31 @@
+package ma.fstt.pipeline;
+
+import jakarta.ejb.Schedule;
+import jakarta.ejb.Singleton;
+import jakarta.ejb.TransactionAttribute;
+import jakarta.ejb.TransactionAttributeType;
+import jakarta.inject.Inject;
+
+/**
+ * Tâche planifiée : relève régulièrement la boîte d'envoi des commandes
+ * (nouveaux essais arrivés à échéance, commandes validées pendant que les exécutants étaient occupés)
+ * et, chaque minute, reprend les étapes dont le bail a expiré
+ */
+@Singleton
+public class RelevePipeline {
+
+    @Inject
+    private PipelineCommandes pipeline;
+
+    @Schedule(hour = "*", minute = "*", second = "*/5", persistent = false)
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED) // Chaque étape a sa transaction
+    public void relever() {
+        pipeline.relever();
+    }
+
+    @Schedule(hour = "*", minute = "*", persistent = false)
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+    public void reprendre() {
+        pipeline.reprendre();
+    }
+}
@@ -0,0 +1,130 @@
+package ma.fstt.pipeline;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Event;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.PersistenceContext;
+import jakarta.transaction.Transactional;
+import ma.fstt.config.Parametres;
+import ma.fstt.model.Commande;
+import ma.fstt.model.EvenementCommande;
+import ma.fstt.service.CommandeService;
+import org.hibernate.Timeouts;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * Transactions du pipeline des commandes : prise des événements, exécution d'une étape, échec
+ * Chaque méthode est une transaction indépendante ; une étape rejouée ne fait rien si la commande
+ * a déjà avancé (ou a été annulée entre-temps).
+ */
+@ApplicationScoped
+public class TraitementCommande {
+
+    private static final Logger LOGGER = Logger.getLogger(TraitementCommande.class.getName());
+
+    // Délai maximal entre deux essais
+    private static final long ATTENTE_MAX_SECONDES = 600;
+
+    // Durée pendant laquelle un événement pris reste réservé à son exécutant
+    private static final long BAIL_SECONDES = Parametres.nombre("commandes.pipeline.bail.secondes", 300);
+
+    @PersistenceContext(unitName = "mycnx")
+    private EntityManager em;
+
+    @Inject
+    private CommandeService commandeService;
+
+    @Inject
+    private Event<CommandeAvancee> evenements;
+
+    /**
+     * Prend au plus "maximum" événements à traiter et les marque EN_COURS, avec un bail
+     * (SKIP LOCKED : deux serveurs ne prennent jamais le même événement)
+     */
+    @Transactional(Transactional.TxType.REQUIRES_NEW)
+    public List<Long> prendre(int maximum) {
+        List<EvenementCommande> aTraiter = em.createQuery(
+                        "SELECT e FROM EvenementCommande e WHERE e.statut = :statut AND e.prochainEssai <= :maintenant"
+                                + " ORDER BY e.id", EvenementCommande.class)
+                .setParameter("statut", EvenementCommande.Statut.A_TRAITER)
+                .setParameter("maintenant", LocalDateTime.now())
+                .setMaxResults(maximum)
+                .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+                .setHint("jakarta.persistence.lock.timeout", Timeouts.SKIP_LOCKED_MILLI)
+                .getResultList();
+        LocalDateTime finBail = LocalDateTime.now().plusSeconds(BAIL_SECONDES);
+        aTraiter.forEach(e -> {
+            e.setStatut(EvenementCommande.Statut.EN_COURS);
+            e.setFinBail(finBail);
+        });
+        return aTraiter.stream().map(EvenementCommande::getId).toList();
+    }
+
+    /**
+     * Exécute l'étape d'un événement : statut de la commande, observateurs, étape suivante
+     */
+    @Transactional(Transactional.TxType.REQUIRES_NEW)
+    public void executer(Long evenementId) {
+        EvenementCommande evenement = em.find(EvenementCommande.class, evenementId);
+        if (evenement == null || evenement.getStatut() != EvenementCommande.Statut.EN_COURS) {
+            return;
+        }
+        EvenementCommande.Etape etape = evenement.getEtape();
+        Commande commande = em.find(Commande.class, evenement.getCommandeId());
+        // Mise à jour ciblée : sans effet si la commande a changé de statut entre-temps (annulée par exemple)
+        if (commande != null && commande.getStatut() == etape.getStatutAttendu()
+                && commandeService.changerStatut(commande.getId(), etape.getStatutSuivant())) {
+            evenements.fire(new CommandeAvancee(commande.getId(), etape, etape.getStatutSuivant()));
+            if (etape.suivante() != null) {
+                em.persist(new EvenementCommande(commande.getId(), etape.suivante()));
+            }
+        }
+        evenement.setStatut(EvenementCommande.Statut.TRAITE);
+        evenement.setFinBail(null);
+    }
+
+    /**
+     * Enregistre l'échec d'une étape : nouvel essai plus tard (attente doublée à chaque fois),
+     * ou abandon après le nombre maximal d'essais
+     */
+    @Transactional(Transactional.TxType.REQUIRES_NEW)
+    public void echouer(Long evenementId, String erreur, int tentativesMax) {
+        EvenementCommande evenement = em.find(EvenementCommande.class, evenementId);
+        if (evenement == null) {
+            return;
+        }
+        int tentatives = evenement.getTentatives() + 1;
+        evenement.setTentatives(tentatives);
+        evenement.setDerniereErreur(erreur != null && erreur.length() > 500 ? erreur.substring(0, 500) : erreur);
+        if (tentatives >= tentativesMax) {
+            evenement.setStatut(EvenementCommande.Statut.ECHEC);
+            LOGGER.severe("Étape " + evenement.getEtape() + " abandonnée pour la commande "
+                    + evenement.getCommandeId() + " : " + erreur);
+        } else {
+            long attente = Math.min(ATTENTE_MAX_SECONDES, 1L << Math.min(tentatives, 20));
+            evenement.setStatut(EvenementCommande.Statut.A_TRAITER);
+            evenement.setProchainEssai(LocalDateTime.now().plusSeconds(attente));
+        }
+        evenement.setFinBail(null);
+    }
+
+    /**
+     * Remet à traiter les événements EN_COURS dont le bail a expiré (serveur arrêté pendant
+     * leur traitement) ; ceux d'un exécutant encore actif, sur ce serveur ou un autre, ne sont pas touchés.
+     * Une étape reprise alors qu'elle s'est terminée entre-temps ne fait rien (voir executer).
+     */
+    @Transactional
+    public int reprendre() {
+        return em.createQuery("UPDATE EvenementCommande e SET e.statut = :aTraiter, e.finBail = NULL"
+                        + " WHERE e.statut = :enCours AND (e.finBail IS NULL OR e.finBail < :maintenant)")
+                .setParameter("aTraiter", EvenementCommande.Statut.A_TRAITER)
+                .setParameter("enCours", EvenementCommande.Statut.EN_COURS)
+                .setParameter("maintenant", LocalDateTime.now())
+                .executeUpdate();
+    }
+}
@@ -0,0 +1,109 @@
+package ma.fstt.search;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Analyseur de texte pour l'index de recherche
+ * Découpe le texte en mots, met en minuscules, supprime les accents,
+ * ignore les mots vides et applique une racinisation française légère.
+ * Le même analyseur est utilisé pour l'indexation et pour les requêtes.
+ */
+public final class AnalyseurFrancais {
+
+    private static final Set<String> MOTS_VIDES = Set.of(
+            "a", "au", "aux", "avec", "ce", "ces", "d", "dans", "de", "des", "du", "en", "et",
+            "il", "l", "la", "le", "les", "leur", "mais", "ou", "par", "pas", "pour", "qu", "que",
+            "qui", "sa", "se", "ses", "son", "sur", "un", "une", "vos", "votre", "y"
+    );
+
+    private AnalyseurFrancais() {
+    }
+
+    /**
+     * Transforme un texte en liste de termes indexables (doublons conservés)
+     */
+    public static List<String> analyser(String texte) {
+        List<String> termes = new ArrayList<>();
+        if (texte == null || texte.isBlank()) {
+            return termes;
+        }
+        for (String mot : decouper(replier(texte))) {
+            if (!MOTS_VIDES.contains(mot)) {
+                termes.add(raciniser(mot));
+            }
+        }
+        return termes;
+    }
+
+    /**
+     * Minuscules + suppression des accents et ligatures (é -> e, œ -> oe)
+     */
+    static String replier(String texte) {
+        String minuscules = texte.toLowerCase(Locale.FRENCH)
+                .replace("œ", "oe")
+                .replace("æ", "ae");
+        return Normalizer.normalize(minuscules, Normalizer.Form.NFD)
+                .replaceAll("\\p{M}+", "");
+    }
+
+    /**
+     * Découpe sur tout ce qui n'est ni lettre ni chiffre (apostrophes comprises : l'écran -> l, ecran)
+     */
+    private static List<String> decouper(String texte) {
+        List<String> mots = new ArrayList<>();
+        int debut = -1;
+        for (int i = 0; i <= texte.length(); i++) {
+            boolean lettre = i < texte.length() && Character.isLetterOrDigit(texte.charAt(i));
+            if (lettre && debut < 0) {
+                debut = i;
+            } else if (!lettre && debut >= 0) {
+                mots.add(texte.substring(debut, i));
+                debut = -1;
+            }
+        }
+        return mots;
+    }
+
+    /**
+     * Racinisation légère : pluriels, féminins et quelques suffixes courants
+     * Exemples : chevaux -> cheval, chaussures -> chaussur, sportive -> sportif
+     */
+    static String raciniser(String mot) {
+        if (mot.length() <= 3 || Character.isDigit(mot.charAt(0))) {
+            return mot;
+        }
+        String racine = mot;
+
+        // Pluriels
+        if (racine.endsWith("aux") && racine.length() > 4) {
+            racine = racine.substring(0, racine.length() - 3) + "al";
+        } else if (racine.endsWith("s") || racine.endsWith("x")) {
+            racine = racine.substring(0, racine.length() - 1);
+        }
+
+        // Suffixes dérivationnels et féminins
+        if (racine.endsWith("ement") && racine.length() > 7) {
+            racine = racine.substring(0, racine.length() - 5);
+        } else if (racine.endsWith("euse") && racine.length() > 5) {
+            racine = racine.substring(0, racine.length() - 2);
+        } else if (racine.endsWith("ive") && racine.length() > 4) {
+            racine = racine.substring(0, racine.length() - 2) + "f";
+        } else if (racine.endsWith("ienne") && racine.length() > 6) {
+            racine = racine.substring(0, racine.length() - 2);
+        } else if (racine.endsWith("iere") && racine.length() > 5) {
+            racine = racine.substring(0, racine.length() - 4) + "ier";
+        } else if (racine.endsWith("elle") && racine.length() > 5) {
+            racine = racine.substring(0, racine.length() - 2);
+        }
+
+        // e muet final
+        if (racine.endsWith("e") && racine.length() > 4) {
+            racine = racine.substring(0, racine.length() - 1);
+        }
+        return racine;
+    }
+}
@@ -0,0 +1,32 @@
+package ma.fstt.search;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.io.Serializable;
+import java.util.Map;
+
+/**
+ * Nombre de produits par valeur de facette pour une recherche donnée
+ * Chaque compteur tient compte de tous les autres filtres sauf celui de sa propre facette
+ * (on voit combien de produits on obtiendrait en changeant de catégorie, de tranche...).
+ */
+@Getter
+@AllArgsConstructor
+public class CompteursFacettes implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int total;                            // Nombre de résultats avec tous les filtres
+    private final Map<Long, Integer> parCategorie;      // categorieId -> nombre
+    private final Map<TranchePrix, Integer> parTranche; // tranche -> nombre
+    private final int enStock;
+
+    public int categorie(Long categorieId) {
+        return parCategorie.getOrDefault(categorieId, 0);
+    }
+
+    public int tranche(TranchePrix tranche) {
+        return parTranche.getOrDefault(tranche, 0);
+    }
+}
@@ -0,0 +1,440 @@
+package ma.fstt.search;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.context.Initialized;
+import jakarta.enterprise.event.Observes;
+import jakarta.enterprise.event.TransactionPhase;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import ma.fstt.model.Produit;
+import ma.fstt.service.CategorieEvenement;
+import ma.fstt.service.CritereProduit;
+import ma.fstt.service.ProduitEvenement;
+import ma.fstt.service.StockEvenement;
+import org.roaringbitmap.IntIterator;
+import org.roaringbitmap.RoaringBitmap;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Moteur de facettes du catalogue (mot-clé, catégorie, tranche de prix, en stock)
+ * Chaque produit reçoit un numéro d'ordre (ordinal) ; chaque valeur de facette est un
+ * bitmap compressé (RoaringBitmap) des ordinaux concernés. Un filtre combiné se résume
+ * à quelques ET entre bitmaps, et les compteurs de facettes à des cardinalités.
+ *
+ * Les bitmaps publiés ne sont jamais modifiés : une mise à jour clone ceux qui changent
+ * et publie un nouvel état, les lectures n'ont donc besoin d'aucun verrou.
+ * Les ordinaux suivent l'ordre des identifiants : parcourir un bitmap à l'envers
+ * donne les produits les plus récents d'abord.
+ */
+@ApplicationScoped
+public class FacettesProduits {
+
+    private static final Logger LOGGER = Logger.getLogger(FacettesProduits.class.getName());
+
+    @PersistenceContext(unitName = "mycnx")
+    private EntityManager em;
+
+    @Inject
+    private IndexProduits indexProduits;
+
+    // produitId -> ordinal ; un ordinal attribué ne change plus et n'est jamais réutilisé,
+    // la table peut donc être partagée entre les états publiés
+    private Map<Long, Integer> ordinaux = new ConcurrentHashMap<>();
+    private int prochainOrdinal;
+
+    // produitId -> valeurs de facettes actuelles, pour retirer l'ancien état lors d'une mise à jour
+    private final Map<Long, ValeursFacettes> valeurs = new HashMap<>();
+
+    private volatile Etat etat = Etat.vide();
+
+    public void demarrer(@Observes @Initialized(ApplicationScoped.class) Object contexte) {
+        reconstruire();
+    }
+
+    /**
+     * Reconstruit tous les bitmaps depuis la base (une requête de projection)
+     * Les bitmaps sont construits à côté de l'état publié, qui reste servi pendant la lecture
+     * et gardé si elle échoue ; le nouvel état est publié d'un bloc.
+     */
+    public synchronized void reconstruire() {
+        try {
+            List<Object[]> lignes = em.createQuery(
+                            "SELECT p.id, c.id, p.prix, p.stock FROM Produit p LEFT JOIN p.categorie c ORDER BY p.id",
+                            Object[].class)
+                    .getResultList();
+            // Les états publiés gardent leur propre table d'ordinaux : on peut repartir de zéro
+            ordinaux = new ConcurrentHashMap<>();
+            prochainOrdinal = 0;
+            valeurs.clear();
+            Constructeur constructeur = new Constructeur(Etat.vide());
+            for (Object[] ligne : lignes) {
+                constructeur.placer((Long) ligne[0], new ValeursFacettes((Long) ligne[1],
+                        TranchePrix.pour((Double) ligne[2]), (Integer) ligne[3]));
+            }
+            etat = constructeur.publier();
+            LOGGER.info("Facettes construites : " + etat.tous.getCardinality() + " produits");
+        } catch (Exception e) {
+            LOGGER.log(Level.SEVERE, "Erreur lors de la construction des facettes", e);
+        }
+    }
+
+    public synchronized void surProduitModifie(@Observes(during = TransactionPhase.AFTER_SUCCESS) ProduitEvenement evenement) {
+        Constructeur constructeur = new Constructeur(etat);
+        if (evenement.getType() == ProduitEvenement.Type.SUPPRESSION) {
+            constructeur.retirer(evenement.getProduitId());
+        } else {
+            Produit produit = evenement.getProduit();
+            constructeur.placer(produit.getId(), new ValeursFacettes(
+                    produit.getCategorie() != null ? produit.getCategorie().getId() : null,
+                    TranchePrix.pour(produit.getPrix()), produit.getStock()));
+        }
+        etat = constructeur.publier();
+    }
+
+    public synchronized void surStockModifie(@Observes(during = TransactionPhase.AFTER_SUCCESS) StockEvenement evenement) {
+        Constructeur constructeur = new Constructeur(etat);
+        evenement.getQuantitesRetirees().forEach((produitId, retiree) -> {
+            ValeursFacettes anciennes = valeurs.get(produitId);
+            if (anciennes == null) {
+                return;
+            }
+            ValeursFacettes nouvelles = new ValeursFacettes(anciennes.categorieId, anciennes.tranche,
+                    Math.max(0, anciennes.stock - retiree));
+            if (anciennes.enStock != nouvelles.enStock) {
+                constructeur.placer(produitId, nouvelles);
+            } else {
+                valeurs.put(produitId, nouvelles); // Bitmaps inchangés, seul le stock connu diminue
+            }
+        });
+        etat = constructeur.publier();
+    }
+
+    public synchronized void surCategorieModifiee(@Observes(during = TransactionPhase.AFTER_SUCCESS) CategorieEvenement evenement) {
+        if (!evenement.estSuppression()) {
+            return;
+        }
+        // Les produits de la catégorie sont supprimés en cascade
+        Constructeur constructeur = new Constructeur(etat);
+        List<Long> produits = new ArrayList<>();
+        valeurs.forEach((id, v) -> {
+            if (evenement.getCategorieId().equals(v.categorieId)) {
+                produits.add(id);
+            }
+        });
+        produits.forEach(constructeur::retirer);
+        etat = constructeur.publier();
+    }
+
+    /**
+     * Produits correspondant à tous les critères
+     */
+    public Selection selectionner(CritereProduit critere) {
+        Etat courant = etat;
+        Filtres filtres = new Filtres(courant, critere, rechercherMotCle(critere));
+        return new Selection(courant, filtres.tout(), filtres.scores);
+    }
+
+    /**
+     * Compteurs de chaque facette pour les critères donnés
+     */
+    public CompteursFacettes compter(CritereProduit critere) {
+        Etat courant = etat;
+        Filtres filtres = new Filtres(courant, critere, rechercherMotCle(critere));
+
+        RoaringBitmap horsCategorie = RoaringBitmap.and(RoaringBitmap.and(filtres.motCle, filtres.tranche), filtres.stock);
+        Map<Long, Integer> parCategorie = new HashMap<>();
+        courant.parCategorie.forEach((id, bitmap) ->
+                parCategorie.put(id, RoaringBitmap.andCardinality(horsCategorie, bitmap)));
+
+        RoaringBitmap horsTranche = RoaringBitmap.and(RoaringBitmap.and(filtres.motCle, filtres.categorie), filtres.stock);
+        Map<TranchePrix, Integer> parTranche = new EnumMap<>(TranchePrix.class);
+        for (TranchePrix tranche : TranchePrix.values()) {
+            parTranche.put(tranche, RoaringBitmap.andCardinality(horsTranche, courant.parTranche[tranche.ordinal()]));
+        }
+
+        RoaringBitmap horsStock = RoaringBitmap.and(RoaringBitmap.and(filtres.motCle, filtres.categorie), filtres.tranche);
+        int enStock = RoaringBitmap.andCardinality(horsStock, courant.enStock);
+
+        return new CompteursFacettes(filtres.tout().getCardinality(), parCategorie, parTranche, enStock);
+    }
+
+    /**
+     * Recherche par mot-clé : toutes les correspondances, les autres facettes (catégorie
+     * comprise) sont appliquées ensuite par les bitmaps
+     */
+    private Map<Long, Float> rechercherMotCle(CritereProduit critere) {
+        if (critere == null || !critere.aMotCle()) {
+            return null;
+        }
+        return indexProduits.rechercher(critere.getMotCle(), null);
+    }
+
+    /**
+     * Résultat d'un filtrage : bitmap des produits retenus et, pour une recherche par mot-clé,
+     * le score de pertinence de chaque correspondance
+     */
+    public static final class Selection {
+        private final Etat etat;
+        private final RoaringBitmap bitmap;
+        private final Map<Long, Float> scores;
+
+        private Selection(Etat etat, RoaringBitmap bitmap, Map<Long, Float> scores) {
+            this.etat = etat;
+            this.bitmap = bitmap;
+            this.scores = scores;
+        }
+
+        public int taille() {
+            return bitmap.getCardinality();
+        }
+
+        /**
+         * Identifiants d'une page, par pertinence (mot-clé) ou du plus récent au plus ancien
+         */
+        public List<Long> page(int premier, int taille) {
+            if (scores != null) {
+                return parPertinence(premier, taille);
+            }
+            List<Long> ids = new ArrayList<>(taille);
+            int cardinalite = bitmap.getCardinality();
+            for (int i = premier; i < cardinalite && ids.size() < taille; i++) {
+                ids.add(etat.idParOrdinal[bitmap.select(cardinalite - 1 - i)]);
+            }
+            return ids;
+        }
+
+        /**
+         * Page d'une recherche par mot-clé : seuls les premier + taille meilleurs produits
+         * retenus sont gardés (tas borné), puis triés par score décroissant,
+         * les plus récents d'abord à score égal
+         */
+        private List<Long> parPertinence(int premier, int taille) {
+            int garder = premier + taille;
+            Comparator<Long> pertinence = Comparator.<Long>comparingDouble(scores::get).reversed()
+                    .thenComparing(Comparator.<Long>reverseOrder());
+            PriorityQueue<Long> meilleurs = new PriorityQueue<>(garder + 1, pertinence.reversed());
+            IntIterator iterateur = bitmap.getIntIterator();
+            while (iterateur.hasNext()) {
+                meilleurs.add(etat.idParOrdinal[iterateur.next()]);
+                if (meilleurs.size() > garder) {
+                    meilleurs.poll(); // Le moins pertinent des retenus
+                }
+            }
+            List<Long> ids = new ArrayList<>(meilleurs);
+            ids.sort(pertinence);
+            return premier >= ids.size() ? List.of() : new ArrayList<>(ids.subList(premier, ids.size()));
+        }
+
+        /**
+         * Tous les identifiants retenus (pour un tri sur une colonne)
+         */
+        public List<Long> tous() {
+            List<Long> ids = new ArrayList<>(bitmap.getCardinality());
+            IntIterator iterateur = bitmap.getReverseIntIterator();
+            while (iterateur.hasNext()) {
+                ids.add(etat.idParOrdinal[iterateur.next()]);
+            }
+            return ids;
+        }
+    }
+
+    /**
+     * Bitmap de chaque facette pour des critères donnés (tous les produits si la facette n'est pas filtrée)
+     */
+    private static final class Filtres {
+        private final RoaringBitmap motCle;
+        private final RoaringBitmap categorie;
+        private final RoaringBitmap tranche;
+        private final RoaringBitmap stock;
+        private final Map<Long, Float> scores;
+
+        private Filtres(Etat etat, CritereProduit critere, Map<Long, Float> scores) {
+            this.scores = scores;
+            if (scores != null) {
+                RoaringBitmap resultats = new RoaringBitmap();
+                for (Long id : scores.keySet()) {
+                    Integer ordinal = etat.ordinal(id);
+                    if (ordinal != null) {
+                        resultats.add(ordinal);
+                    }
+                }
+                motCle = resultats;
+            } else {
+                motCle = etat.tous;
+            }
+            if (critere != null && critere.getCategorieId() != null) {
+                categorie = etat.parCategorie.getOrDefault(critere.getCategorieId(), new RoaringBitmap());
+            } else {
+                categorie = etat.tous;
+            }
+            tranche = critere != null && critere.getTranchePrix() != null
+                    ? etat.parTranche[critere.getTranchePrix().ordinal()]
+                    : etat.tous;
+            stock = critere != null && critere.isEnStockSeulement() ? etat.enStock : etat.tous;
+        }
+
+        private RoaringBitmap tout() {
+            return RoaringBitmap.and(RoaringBitmap.and(motCle, categorie), RoaringBitmap.and(tranche, stock));
+        }
+    }
+
+    /**
+     * Valeurs de facettes d'un produit ; le stock est gardé pour y soustraire les quantités vendues
+     */
+    private static final class ValeursFacettes {
+        private final Long categorieId;
+        private final TranchePrix tranche;
+        private final int stock;
+        private final boolean enStock;
+
+        private ValeursFacettes(Long categorieId, TranchePrix tranche, int stock) {
+            this.categorieId = categorieId;
+            this.tranche = tranche;
+            this.stock = stock;
+            this.enStock = stock > 0;
+        }
+    }
+
+    /**
+     * État publié : bitmaps immuables + table ordinal -> identifiant
+     */
+    private static final class Etat {
+        private final RoaringBitmap tous;
+        private final RoaringBitmap enStock;
+        private final Map<Long, RoaringBitmap> parCategorie;
+        private final RoaringBitmap[] parTranche;
+        private final long[] idParOrdinal;
+        private final Map<Long, Integer> ordinaux;
+
+        private Etat(RoaringBitmap tous, RoaringBitmap enStock, Map<Long, RoaringBitmap> parCategorie,
+                     RoaringBitmap[] parTranche, long[] idParOrdinal, Map<Long, Integer> ordinaux) {
+            this.tous = tous;
+            this.enStock = enStock;
+            this.parCategorie = parCategorie;
+            this.parTranche = parTranche;
+            this.idParOrdinal = idParOrdinal;
+            this.ordinaux = ordinaux;
+        }
+
+        private static Etat vide() {
+            RoaringBitmap[] tranches = new RoaringBitmap[TranchePrix.values().length];
+            Arrays.setAll(tranches, i -> new RoaringBitmap());
+            return new Etat(new RoaringBitmap(), new RoaringBitmap(), Map.of(), tranches, new long[0], Map.of());
+        }
+
+        private Integer ordinal(Long id) {
+            return ordinaux.get(id);
+        }
+    }
+
+    /**
+     * Prépare un nouvel état à partir du précédent : seuls les bitmaps touchés sont clonés
+     */
+    private final class Constructeur {
+        private final Etat base;
+        private RoaringBitmap tous;
+        private RoaringBitmap enStock;
+        private final Map<Long, RoaringBitmap> parCategorie;
+        private final RoaringBitmap[] parTranche;
+        private final boolean[] tranchesCopiees = new boolean[TranchePrix.values().length];
+        private final Map<Long, Boolean> categoriesCopiees = new HashMap<>();
+        private long[] idParOrdinal;
+
+        private Constructeur(Etat base) {
+            this.base = base;
+            this.tous = base.tous;
+            this.enStock = base.enStock;
+            this.parCategorie = new HashMap<>(base.parCategorie);
+            this.parTranche = base.parTranche.clone();
+            this.idParOrdinal = base.idParOrdinal;
+        }
+
+        private void placer(Long produitId, ValeursFacettes nouvelles) {
+            retirer(produitId);
+            Integer ordinal = ordinaux.get(produitId);
+            if (ordinal == null) {
+                ordinal = prochainOrdinal++;
+                ordinaux.put(produitId, ordinal);
+            }
+            if (ordinal >= idParOrdinal.length) {
+                idParOrdinal = Arrays.copyOf(idParOrdinal, Math.max(16, ordinal * 2));
+            }
+            idParOrdinal[ordinal] = produitId;
+
+            tous().add(ordinal);
+            if (nouvelles.enStock) {
+                enStock().add(ordinal);
+            }
+            tranche(nouvelles.tranche).add(ordinal);
+            if (nouvelles.categorieId != null) {
+                categorie(nouvelles.categorieId).add(ordinal);
+            }
+            valeurs.put(produitId, nouvelles);
+        }
+
+        private void retirer(Long produitId) {
+            ValeursFacettes anciennes = valeurs.remove(produitId);
+            Integer ordinal = ordinaux.get(produitId);
+            if (anciennes == null || ordinal == null) {
+                return;
+            }
+            tous().remove(ordinal);
+            if (anciennes.enStock) {
+                enStock().remove(ordinal);
+            }
+            tranche(anciennes.tranche).remove(ordinal);
+            if (anciennes.categorieId != null) {
+                categorie(anciennes.categorieId).remove(ordinal);
+            }
+        }
+
+        private Etat publier() {
+            return new Etat(tous, enStock, Collections.unmodifiableMap(parCategorie), parTranche, idParOrdinal,
+                    ordinaux);
+        }
+
+        private RoaringBitmap tous() {
+            if (tous == base.tous) {
+                tous = tous.clone();
+            }
+            return tous;
+        }
+
+        private RoaringBitmap enStock() {
+            if (enStock == base.enStock) {
+                enStock = enStock.clone();
+            }
+            return enStock;
+        }
+
+        private RoaringBitmap tranche(TranchePrix tranche) {
+            int i = tranche.ordinal();
+            if (!tranchesCopiees[i]) {
+                parTranche[i] = parTranche[i].clone();
+                tranchesCopiees[i] = true;
+            }
+            return parTranche[i];
+        }
+
+        private RoaringBitmap categorie(Long categorieId) {
+            if (categoriesCopiees.putIfAbsent(categorieId, Boolean.TRUE) == null) {
+                RoaringBitmap existant = parCategorie.get(categorieId);
+                parCategorie.put(categorieId, existant != null ? existant.clone() : new RoaringBitmap());
+            }
+            return parCategorie.get(categorieId);
+        }
+    }
+}
@@ -0,0 +1,290 @@
+package ma.fstt.search;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.context.Initialized;
+import jakarta.enterprise.event.Observes;
+import jakarta.enterprise.event.TransactionPhase;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import ma.fstt.model.Produit;
+import ma.fstt.service.CategorieEvenement;
+import ma.fstt.service.ProduitEvenement;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Index inversé en mémoire sur le nom et la description des produits
+ * Remplace les LIKE '%mot%' (parcours complet de la table) par une recherche
+ * dont le coût dépend du nombre de résultats et non de la taille du catalogue.
+ *
+ * - Construit au démarrage de l'application
+ * - Mis à jour produit par produit après chaque ajout / modification / suppression
+ * - Classement BM25, le nom pèse plus que la description
+ * - Le dernier mot de la requête est traité comme un préfixe ("chaus" trouve "chaussures")
+ */
+@ApplicationScoped
+public class IndexProduits {
+
+    private static final Logger LOGGER = Logger.getLogger(IndexProduits.class.getName());
+
+    private static final float POIDS_NOM = 3.0f;
+    private static final float POIDS_DESCRIPTION = 1.0f;
+    private static final float BM25_K1 = 1.2f;
+    private static final float BM25_B = 0.75f;
+    private static final float REMISE_PREFIXE = 0.8f; // Un terme complété pèse moins qu'un terme exact
+    private static final int MAX_EXPANSIONS_PREFIXE = 50;
+    private static final int TAILLE_LOT_CHARGEMENT = 1000;
+
+    @PersistenceContext(unitName = "mycnx")
+    private EntityManager em;
+
+    // Index publié : remplacé d'un bloc par une reconstruction, mis à jour sur place produit par produit
+    private volatile Contenu contenu = new Contenu();
+
+    /**
+     * Reconstruit l'index au démarrage de l'application
+     */
+    public void demarrer(@Observes @Initialized(ApplicationScoped.class) Object contexte) {
+        reconstruire();
+    }
+
+    /**
+     * Recharge tout l'index depuis la base, par lots pour ne pas charger la table d'un coup
+     * Le nouvel index est construit à côté puis publié d'un bloc : les recherches continuent
+     * sur l'ancien pendant le chargement, et le gardent si le chargement échoue.
+     */
+    public synchronized void reconstruire() {
+        try {
+            Contenu nouveau = new Contenu();
+            long dernierId = 0;
+            List<Object[]> lot;
+            do {
+                lot = em.createQuery(
+                                "SELECT p.id, p.nom, p.description, c.id FROM Produit p LEFT JOIN p.categorie c "
+                                        + "WHERE p.id > :dernierId ORDER BY p.id", Object[].class)
+                        .setParameter("dernierId", dernierId)
+                        .setMaxResults(TAILLE_LOT_CHARGEMENT)
+                        .getResultList();
+                for (Object[] ligne : lot) {
+                    dernierId = (Long) ligne[0];
+                    nouveau.indexer(dernierId, (String) ligne[1], (String) ligne[2], (Long) ligne[3]);
+                }
+            } while (lot.size() == TAILLE_LOT_CHARGEMENT);
+            contenu = nouveau;
+            LOGGER.info("Index de recherche construit : " + nouveau.documents.size() + " produits, "
+                    + nouveau.termes.size() + " termes");
+        } catch (Exception e) {
+            LOGGER.log(Level.SEVERE, "Erreur lors de la construction de l'index de recherche", e);
+        }
+    }
+
+    /**
+     * Mise à jour incrémentale après le commit d'une modification du catalogue
+     */
+    public void surProduitModifie(@Observes(during = TransactionPhase.AFTER_SUCCESS) ProduitEvenement evenement) {
+        if (evenement.getType() == ProduitEvenement.Type.SUPPRESSION) {
+            retirer(evenement.getProduitId());
+        } else {
+            Produit produit = evenement.getProduit();
+            indexer(produit.getId(), produit.getNom(), produit.getDescription(),
+                    produit.getCategorie() != null ? produit.getCategorie().getId() : null);
+        }
+    }
+
+    /**
+     * Une catégorie supprimée emporte ses produits (cascade) : on les retire de l'index
+     */
+    public synchronized void surCategorieModifiee(@Observes(during = TransactionPhase.AFTER_SUCCESS) CategorieEvenement evenement) {
+        if (evenement.estSuppression()) {
+            Contenu courant = contenu;
+            courant.documents.entrySet().stream()
+                    .filter(entree -> evenement.getCategorieId().equals(entree.getValue().categorieId))
+                    .map(Map.Entry::getKey)
+                    .toList()
+                    .forEach(courant::retirer);
+        }
+    }
+
+    /**
+     * Recherche les produits correspondant à tous les mots de la requête
+     * Toutes les correspondances sont retournées, sans tri : le classement n'est fait
+     * que pour la page affichée, une fois les autres filtres appliqués.
+     *
+     * @param categorieId filtre optionnel sur la catégorie
+     * @return produitId -> score de pertinence
+     */
+    public Map<Long, Float> rechercher(String requete, Long categorieId) {
+        List<String> motsRequete = AnalyseurFrancais.analyser(requete);
+        Contenu courant = contenu;
+        if (motsRequete.isEmpty() || courant.documents.isEmpty()) {
+            return Map.of();
+        }
+
+        int nombreDocuments = courant.documents.size();
+        double longueurMoyenne = Math.max(1.0, courant.longueurTotale / nombreDocuments);
+        Map<Long, Float> scores = null;
+
+        for (int i = 0; i < motsRequete.size(); i++) {
+            boolean dernier = i == motsRequete.size() - 1;
+            Map<Long, Float> scoresMot = scorerMot(courant, motsRequete.get(i), dernier,
+                    nombreDocuments, longueurMoyenne);
+
+            // ET logique : on ne garde que les produits qui contiennent aussi ce mot
+            if (scores == null) {
+                scores = scoresMot;
+            } else {
+                Map<Long, Float> intersection = new HashMap<>();
+                for (Map.Entry<Long, Float> entree : scores.entrySet()) {
+                    Float score = scoresMot.get(entree.getKey());
+                    if (score != null) {
+                        intersection.put(entree.getKey(), entree.getValue() + score);
+                    }
+                }
+                scores = intersection;
+            }
+            if (scores.isEmpty()) {
+                return Map.of();
+            }
+        }
+
+        if (categorieId != null) {
+            scores.keySet().removeIf(id -> {
+                DocumentIndexe document = courant.documents.get(id);
+                return document == null || !categorieId.equals(document.categorieId);
+            });
+        }
+        return scores;
+    }
+
+    public int getNombreProduits() {
+        return contenu.documents.size();
+    }
+
+    /**
+     * Score BM25 de chaque produit pour un mot (et ses complétions si c'est le dernier mot)
+     */
+    private Map<Long, Float> scorerMot(Contenu courant, String mot, boolean prefixe,
+                                       int nombreDocuments, double longueurMoyenne) {
+        Map<Long, Float> scores = new HashMap<>();
+        ajouterScores(courant, scores, mot, 1.0f, nombreDocuments, longueurMoyenne);
+
+        if (prefixe) {
+            int expansions = 0;
+            for (String terme : courant.termes.subSet(mot, false, mot + Character.MAX_VALUE, false)) {
+                if (++expansions > MAX_EXPANSIONS_PREFIXE) {
+                    break;
+                }
+                ajouterScores(courant, scores, terme, REMISE_PREFIXE, nombreDocuments, longueurMoyenne);
+            }
+        }
+        return scores;
+    }
+
+    private void ajouterScores(Contenu courant, Map<Long, Float> scores, String terme, float remise,
+                               int nombreDocuments, double longueurMoyenne) {
+        Map<Long, Float> liste = courant.postings.get(terme);
+        if (liste == null || liste.isEmpty()) {
+            return;
+        }
+        double idf = Math.log(1 + (nombreDocuments - liste.size() + 0.5) / (liste.size() + 0.5));
+        for (Map.Entry<Long, Float> posting : liste.entrySet()) {
+            DocumentIndexe document = courant.documents.get(posting.getKey());
+            if (document == null) {
+                continue;
+            }
+            float tf = posting.getValue();
+            double normalisation = BM25_K1 * (1 - BM25_B + BM25_B * document.longueur / longueurMoyenne);
+            float score = (float) (remise * idf * tf * (BM25_K1 + 1) / (tf + normalisation));
+            // Pour un même mot, on garde la meilleure correspondance (exacte ou complétée)
+            scores.merge(posting.getKey(), score, Math::max);
+        }
+    }
+
+    private synchronized void indexer(Long produitId, String nom, String description, Long categorieId) {
+        contenu.indexer(produitId, nom, description, categorieId);
+    }
+
+    private synchronized void retirer(Long produitId) {
+        contenu.retirer(produitId);
+    }
+
+    /**
+     * Structures de l'index ; modifiées sous le verrou de l'index, lues sans verrou
+     */
+    private static final class Contenu {
+        // terme -> (produitId -> fréquence pondérée du terme dans le produit)
+        private final Map<String, Map<Long, Float>> postings = new ConcurrentHashMap<>();
+
+        // Termes triés pour la recherche par préfixe
+        private final NavigableSet<String> termes = new ConcurrentSkipListSet<>();
+
+        // produitId -> document indexé (pour la mise à jour et le filtre par catégorie)
+        private final Map<Long, DocumentIndexe> documents = new ConcurrentHashMap<>();
+
+        private volatile double longueurTotale;
+
+        private void indexer(Long produitId, String nom, String description, Long categorieId) {
+            retirer(produitId);
+
+            Map<String, Float> frequences = new HashMap<>();
+            float longueur = 0;
+            for (String terme : AnalyseurFrancais.analyser(nom)) {
+                frequences.merge(terme, POIDS_NOM, Float::sum);
+                longueur += POIDS_NOM;
+            }
+            for (String terme : AnalyseurFrancais.analyser(description)) {
+                frequences.merge(terme, POIDS_DESCRIPTION, Float::sum);
+                longueur += POIDS_DESCRIPTION;
+            }
+
+            for (Map.Entry<String, Float> entree : frequences.entrySet()) {
+                postings.computeIfAbsent(entree.getKey(), t -> new ConcurrentHashMap<>())
+                        .put(produitId, entree.getValue());
+                termes.add(entree.getKey());
+            }
+            documents.put(produitId,
+                    new DocumentIndexe(frequences.keySet().toArray(new String[0]), longueur, categorieId));
+            longueurTotale += longueur;
+        }
+
+        private void retirer(Long produitId) {
+            DocumentIndexe ancien = documents.remove(produitId);
+            if (ancien == null) {
+                return;
+            }
+            longueurTotale -= ancien.longueur;
+            for (String terme : ancien.termes) {
+                Map<Long, Float> liste = postings.get(terme);
+                if (liste != null) {
+                    liste.remove(produitId);
+                    if (liste.isEmpty()) {
+                        postings.remove(terme);
+                        termes.remove(terme);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Ce que l'index retient d'un produit : ses termes (pour le retirer), sa longueur pondérée et sa catégorie
+     */
+    private static final class DocumentIndexe {
+        private final String[] termes;
+        private final float longueur;
+        private final Long categorieId;
+
+        private DocumentIndexe(String[] termes, float longueur, Long categorieId) {
+            this.termes = termes;
+            this.longueur = longueur;
+            this.categorieId = categorieId;
+        }
+    }
+}
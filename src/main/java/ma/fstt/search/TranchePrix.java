@@ -0,0 +1,36 @@
+package ma.fstt.search;
+
+import lombok.Getter;
+
+/**
+ * Tranches de prix proposées comme facette dans la vitrine (en DH)
+ * Bornes : minimum inclus, maximum exclu.
+ */
+@Getter
+public enum TranchePrix {
+    MOINS_DE_100(0, 100, "Moins de 100 DH"),
+    DE_100_A_500(100, 500, "100 à 500 DH"),
+    DE_500_A_1000(500, 1000, "500 à 1 000 DH"),
+    DE_1000_A_5000(1000, 5000, "1 000 à 5 000 DH"),
+    PLUS_DE_5000(5000, Double.MAX_VALUE, "Plus de 5 000 DH");
+
+    private final double minimum;
+    private final double maximum;
+    private final String libelle;
+
+    TranchePrix(double minimum, double maximum, String libelle) {
+        this.minimum = minimum;
+        this.maximum = maximum;
+        this.libelle = libelle;
+    }
+
+    public static TranchePrix pour(Double prix) {
+        double valeur = prix == null ? 0 : prix;
+        for (TranchePrix tranche : values()) {
+            if (valeur < tranche.maximum) {
+                return tranche;
+            }
+        }
+        return PLUS_DE_5000;
+    }
+}
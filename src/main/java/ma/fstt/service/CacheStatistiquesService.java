@@ -0,0 +1,75 @@
+package ma.fstt.service;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.PersistenceUnit;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Statistiques du cache de second niveau, par région
+ * Succès / échecs / insertions viennent des statistiques Hibernate ;
+ * les évictions viennent des statistiques JCache publiées par Ehcache (JMX).
+ */
+@ApplicationScoped
+public class CacheStatistiquesService {
+
+    private static final Logger LOGGER = Logger.getLogger(CacheStatistiquesService.class.getName());
+
+    @PersistenceUnit(unitName = "mycnx")
+    private EntityManagerFactory emf;
+
+    public List<StatistiquesRegion> getRegions() {
+        Statistics statistiques = emf.unwrap(SessionFactory.class).getStatistics();
+        String[] noms = statistiques.getSecondLevelCacheRegionNames();
+        Arrays.sort(noms);
+
+        List<StatistiquesRegion> regions = new ArrayList<>();
+        for (String nom : noms) {
+            CacheRegionStatistics region = statistiques.getCacheRegionStatistics(nom);
+            if (region != null) {
+                regions.add(new StatistiquesRegion(nom, region.getHitCount(), region.getMissCount(),
+                        region.getPutCount(), evictions(nom), region.getElementCountInMemory()));
+            }
+        }
+        return regions;
+    }
+
+    /**
+     * Vide une région (ou tout le cache si region est null) et remet les compteurs à zéro
+     */
+    public void vider(String region) {
+        SessionFactory sessionFactory = emf.unwrap(SessionFactory.class);
+        if (region == null) {
+            sessionFactory.getCache().evictAllRegions();
+        } else {
+            sessionFactory.getCache().evictRegion(region);
+        }
+        sessionFactory.getStatistics().clear();
+    }
+
+    private long evictions(String region) {
+        try {
+            MBeanServer serveur = ManagementFactory.getPlatformMBeanServer();
+            Set<ObjectName> noms = serveur.queryNames(
+                    new ObjectName("javax.cache:type=CacheStatistics,Cache=" + region + ",*"), null);
+            for (ObjectName nom : noms) {
+                return ((Number) serveur.getAttribute(nom, "CacheEvictions")).longValue();
+            }
+        } catch (Exception e) {
+            LOGGER.log(Level.FINE, "Statistiques JCache indisponibles pour " + region, e);
+        }
+        return -1;
+    }
+}
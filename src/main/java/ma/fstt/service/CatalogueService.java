@@ -0,0 +1,89 @@
+package ma.fstt.service;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.context.Initialized;
+import jakarta.enterprise.event.Observes;
+import jakarta.enterprise.event.TransactionPhase;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import ma.fstt.model.Categorie;
+import ma.fstt.model.Produit;
+import org.hibernate.jpa.HibernateHints;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Catalogue partagé par toutes les sessions
+ * Une seule photographie immuable des produits et catégories est gardée en mémoire.
+ * Les lecteurs ne bloquent jamais (simple lecture d'une référence atomique) ;
+ * les modifications admin publient une nouvelle photographie après leur commit.
+ */
+@ApplicationScoped
+public class CatalogueService {
+
+    private static final Logger LOGGER = Logger.getLogger(CatalogueService.class.getName());
+
+    // Région du cache de requêtes (voir ehcache.xml)
+    public static final String REGION_REQUETES = "requetes-catalogue";
+
+    @PersistenceContext(unitName = "mycnx")
+    private EntityManager em;
+
+    private final AtomicReference<CatalogueSnapshot> snapshot = new AtomicReference<>(CatalogueSnapshot.vide());
+
+    /**
+     * Charge le catalogue au démarrage de l'application
+     */
+    public void demarrer(@Observes @Initialized(ApplicationScoped.class) Object contexte) {
+        recharger();
+    }
+
+    /**
+     * Recharge entièrement le catalogue depuis la base
+     */
+    public synchronized void recharger() {
+        try {
+            // Requêtes cacheables : un rechargement relit le cache de second niveau si rien n'a changé
+            List<Categorie> categories = em.createQuery("SELECT c FROM Categorie c ORDER BY c.nom", Categorie.class)
+                    .setHint(HibernateHints.HINT_CACHEABLE, true)
+                    .setHint(HibernateHints.HINT_CACHE_REGION, REGION_REQUETES)
+                    .getResultList();
+            List<Produit> produits = em.createQuery("SELECT p FROM Produit p LEFT JOIN FETCH p.categorie", Produit.class)
+                    .setHint(HibernateHints.HINT_CACHEABLE, true)
+                    .setHint(HibernateHints.HINT_CACHE_REGION, REGION_REQUETES)
+                    .getResultList();
+            snapshot.set(CatalogueSnapshot.de(produits, categories));
+            LOGGER.info("Catalogue chargé : " + produits.size() + " produits, " + categories.size() + " catégories");
+        } catch (Exception e) {
+            LOGGER.log(Level.SEVERE, "Erreur lors du chargement du catalogue", e);
+        }
+    }
+
+    /**
+     * Photographie courante (ne jamais la modifier)
+     */
+    public CatalogueSnapshot getSnapshot() {
+        return snapshot.get();
+    }
+
+    public synchronized void surProduitModifie(@Observes(during = TransactionPhase.AFTER_SUCCESS) ProduitEvenement evenement) {
+        CatalogueSnapshot courant = snapshot.get();
+        snapshot.set(evenement.getType() == ProduitEvenement.Type.SUPPRESSION
+                ? courant.sansProduit(evenement.getProduitId())
+                : courant.avecProduit(evenement.getProduit()));
+    }
+
+    public synchronized void surStockModifie(@Observes(during = TransactionPhase.AFTER_SUCCESS) StockEvenement evenement) {
+        snapshot.set(snapshot.get().avecStocksRetires(evenement.getQuantitesRetirees()));
+    }
+
+    public synchronized void surCategorieModifiee(@Observes(during = TransactionPhase.AFTER_SUCCESS) CategorieEvenement evenement) {
+        CatalogueSnapshot courant = snapshot.get();
+        snapshot.set(evenement.estSuppression()
+                ? courant.sansCategorie(evenement.getCategorieId())
+                : courant.avecCategorie(evenement.getCategorie()));
+    }
+}
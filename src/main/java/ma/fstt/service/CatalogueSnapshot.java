@@ -0,0 +1,186 @@
+package ma.fstt.service;
+
+import ma.fstt.model.Categorie;
+import ma.fstt.model.Produit;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Photographie immuable du catalogue (produits + catégories)
+ * Une instance n'est jamais modifiée : chaque changement produit une nouvelle
+ * photographie (copie sur écriture) que CatalogueService publie d'un seul coup.
+ * Les entités contenues sont des copies détachées, à traiter en lecture seule.
+ * versionPrix change dès qu'un prix peut avoir changé (produit modifié ou retiré, rechargement) :
+ * les paniers n'ont à recalculer leurs totaux que dans ce cas.
+ */
+public final class CatalogueSnapshot {
+
+    // Ordre d'affichage du catalogue : les produits les plus récents d'abord
+    private static final Comparator<Produit> ORDRE_PRODUITS =
+            Comparator.comparing(Produit::getId, Comparator.reverseOrder());
+    private static final Comparator<Categorie> ORDRE_CATEGORIES =
+            Comparator.comparing(Categorie::getNom, String.CASE_INSENSITIVE_ORDER);
+
+    // Versions des prix, uniques pour toute l'application (même après un rechargement)
+    private static final AtomicLong VERSIONS_PRIX = new AtomicLong();
+
+    private final List<Produit> produits;
+    private final Map<Long, Produit> produitsParId;
+    private final List<Categorie> categories;
+    private final Map<Long, Categorie> categoriesParId;
+    private final long versionPrix;
+
+    private CatalogueSnapshot(List<Produit> produits, List<Categorie> categories, long versionPrix) {
+        this.versionPrix = versionPrix;
+        this.produits = Collections.unmodifiableList(produits);
+        this.categories = Collections.unmodifiableList(categories);
+        Map<Long, Produit> indexProduits = new HashMap<>();
+        produits.forEach(p -> indexProduits.put(p.getId(), p));
+        Map<Long, Categorie> indexCategories = new HashMap<>();
+        categories.forEach(c -> indexCategories.put(c.getId(), c));
+        this.produitsParId = Collections.unmodifiableMap(indexProduits);
+        this.categoriesParId = Collections.unmodifiableMap(indexCategories);
+    }
+
+    public static CatalogueSnapshot vide() {
+        return new CatalogueSnapshot(new ArrayList<>(), new ArrayList<>(), VERSIONS_PRIX.incrementAndGet());
+    }
+
+    /**
+     * Construit une photographie à partir d'entités chargées (elles sont copiées)
+     */
+    public static CatalogueSnapshot de(Collection<Produit> produits, Collection<Categorie> categories) {
+        List<Categorie> copiesCategories = new ArrayList<>();
+        Map<Long, Categorie> parId = new HashMap<>();
+        for (Categorie categorie : categories) {
+            Categorie copie = copier(categorie);
+            copiesCategories.add(copie);
+            parId.put(copie.getId(), copie);
+        }
+        List<Produit> copiesProduits = new ArrayList<>();
+        for (Produit produit : produits) {
+            copiesProduits.add(copier(produit, parId));
+        }
+        copiesProduits.sort(ORDRE_PRODUITS);
+        copiesCategories.sort(ORDRE_CATEGORIES);
+        return new CatalogueSnapshot(copiesProduits, copiesCategories, VERSIONS_PRIX.incrementAndGet());
+    }
+
+    /**
+     * Nouvelle photographie où le produit est ajouté ou remplacé
+     */
+    public CatalogueSnapshot avecProduit(Produit produit) {
+        List<Produit> copie = new ArrayList<>(produits.size() + 1);
+        for (Produit existant : produits) {
+            if (!existant.getId().equals(produit.getId())) {
+                copie.add(existant);
+            }
+        }
+        copie.add(copier(produit, categoriesParId));
+        copie.sort(ORDRE_PRODUITS);
+        Produit ancien = produitsParId.get(produit.getId());
+        boolean prixChange = ancien != null && !Objects.equals(ancien.getPrix(), produit.getPrix());
+        return new CatalogueSnapshot(copie, new ArrayList<>(categories),
+                prixChange ? VERSIONS_PRIX.incrementAndGet() : versionPrix);
+    }
+
+    /**
+     * Nouvelle photographie où les quantités indiquées sont retirées du stock des produits
+     */
+    public CatalogueSnapshot avecStocksRetires(Map<Long, Integer> quantitesRetirees) {
+        List<Produit> copie = new ArrayList<>(produits.size());
+        for (Produit produit : produits) {
+            Integer retiree = quantitesRetirees.get(produit.getId());
+            if (retiree == null) {
+                copie.add(produit);
+            } else {
+                Produit modifie = copier(produit, categoriesParId);
+                modifie.setStock(Math.max(0, produit.getStock() - retiree));
+                copie.add(modifie);
+            }
+        }
+        return new CatalogueSnapshot(copie, new ArrayList<>(categories), versionPrix);
+    }
+
+    /**
+     * Nouvelle photographie sans le produit
+     */
+    public CatalogueSnapshot sansProduit(Long produitId) {
+        List<Produit> copie = new ArrayList<>(produits);
+        copie.removeIf(p -> p.getId().equals(produitId));
+        return new CatalogueSnapshot(copie, new ArrayList<>(categories), VERSIONS_PRIX.incrementAndGet());
+    }
+
+    /**
+     * Nouvelle photographie où la catégorie est ajoutée ou remplacée
+     * Les produits de cette catégorie sont rattachés à la nouvelle copie.
+     */
+    public CatalogueSnapshot avecCategorie(Categorie categorie) {
+        Map<Long, Categorie> parId = new HashMap<>(categoriesParId);
+        parId.put(categorie.getId(), copier(categorie));
+        return reconstruire(parId);
+    }
+
+    /**
+     * Nouvelle photographie sans la catégorie
+     */
+    public CatalogueSnapshot sansCategorie(Long categorieId) {
+        Map<Long, Categorie> parId = new HashMap<>(categoriesParId);
+        parId.remove(categorieId);
+        return reconstruire(parId);
+    }
+
+    public List<Produit> getProduits() {
+        return produits;
+    }
+
+    public List<Categorie> getCategories() {
+        return categories;
+    }
+
+    public long getVersionPrix() {
+        return versionPrix;
+    }
+
+    public Produit getProduit(Long id) {
+        return produitsParId.get(id);
+    }
+
+    public Categorie getCategorie(Long id) {
+        return categoriesParId.get(id);
+    }
+
+    private CatalogueSnapshot reconstruire(Map<Long, Categorie> categoriesParId) {
+        List<Produit> copie = new ArrayList<>(produits.size());
+        for (Produit produit : produits) {
+            Long categorieId = produit.getCategorie() != null ? produit.getCategorie().getId() : null;
+            // Une catégorie retirée de la base emporte ses produits (cascade)
+            if (categorieId == null || categoriesParId.containsKey(categorieId)) {
+                copie.add(copier(produit, categoriesParId));
+            }
+        }
+        List<Categorie> categories = new ArrayList<>(categoriesParId.values());
+        categories.sort(ORDRE_CATEGORIES);
+        // Des produits peuvent avoir disparu avec une catégorie supprimée
+        boolean produitsRetires = copie.size() != produits.size();
+        return new CatalogueSnapshot(copie, categories, produitsRetires ? VERSIONS_PRIX.incrementAndGet() : versionPrix);
+    }
+
+    private static Categorie copier(Categorie categorie) {
+        return new Categorie(categorie.getId(), categorie.getNom(), categorie.getDescription(), List.of());
+    }
+
+    private static Produit copier(Produit produit, Map<Long, Categorie> categories) {
+        Categorie categorie = produit.getCategorie() != null ? categories.get(produit.getCategorie().getId()) : null;
+        return new Produit(produit.getId(), produit.getReference(), produit.getNom(), produit.getDescription(), produit.getPrix(),
+                produit.getStock(), produit.getPhoto(), produit.getImage(), categorie);
+    }
+}
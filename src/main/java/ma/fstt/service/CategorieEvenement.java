@@ -0,0 +1,29 @@
+package ma.fstt.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import ma.fstt.model.Categorie;
+
+/**
+ * Événement CDI émis quand une catégorie est ajoutée, modifiée ou supprimée
+ * (observé après le commit, comme ProduitEvenement)
+ */
+@Getter
+@AllArgsConstructor
+public class CategorieEvenement {
+
+    private final Long categorieId;
+    private final Categorie categorie; // État après modification (null pour une suppression)
+
+    public static CategorieEvenement enregistree(Categorie categorie) {
+        return new CategorieEvenement(categorie.getId(), categorie);
+    }
+
+    public static CategorieEvenement supprimee(Long categorieId) {
+        return new CategorieEvenement(categorieId, null);
+    }
+
+    public boolean estSuppression() {
+        return categorie == null;
+    }
+}
@@ -0,0 +1,29 @@
+package ma.fstt.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import ma.fstt.model.Categorie;
+
+import java.io.Serializable;
+
+/**
+ * Catégorie telle qu'affichée dans les listes et menus, avec ses compteurs
+ * Objet immuable fourni par CategorieService.
+ */
+@Getter
+@AllArgsConstructor
+public class CategorieResume implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final Long id;
+    private final String nom;
+    private final String description;
+    private final int nombreProduits;
+    private final int nombreEnStock; // Produits dont le stock est > 0
+
+    public static CategorieResume de(Categorie categorie, int nombreProduits, int nombreEnStock) {
+        return new CategorieResume(categorie.getId(), categorie.getNom(), categorie.getDescription(),
+                nombreProduits, nombreEnStock);
+    }
+}
@@ -0,0 +1,171 @@
+package ma.fstt.service;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.context.Initialized;
+import jakarta.enterprise.event.Observes;
+import jakarta.enterprise.event.TransactionPhase;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import ma.fstt.model.Categorie;
+import ma.fstt.model.Produit;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Catégories du catalogue avec leurs compteurs de produits
+ * La liste ordonnée vient du catalogue partagé ; les compteurs (produits, produits en stock)
+ * sont tenus à jour à chaque modification du catalogue ou du stock, ce qui évite
+ * un GROUP BY à chaque affichage du menu des catégories.
+ */
+@ApplicationScoped
+public class CategorieService {
+
+    private static final Logger LOGGER = Logger.getLogger(CategorieService.class.getName());
+
+    @PersistenceContext(unitName = "mycnx")
+    private EntityManager em;
+
+    @Inject
+    private CatalogueService catalogueService;
+
+    // produitId -> état connu du produit (catégorie, stock)
+    private final Map<Long, EtatProduit> etats = new HashMap<>();
+
+    // categorieId -> {nombre de produits, nombre en stock}
+    private final Map<Long, int[]> compteurs = new HashMap<>();
+
+    // Liste calculée, invalidée à chaque changement (catalogue ou compteurs)
+    private volatile List<CategorieResume> resumes;
+    private volatile CatalogueSnapshot catalogueDesResumes;
+
+    /**
+     * Initialise les compteurs au démarrage (une seule requête de projection)
+     */
+    public void demarrer(@Observes @Initialized(ApplicationScoped.class) Object contexte) {
+        initialiser();
+    }
+
+    public synchronized void initialiser() {
+        try {
+            // Compteurs vidés seulement une fois les produits lus : une erreur garde les anciens
+            List<Object[]> lignes = em.createQuery(
+                            "SELECT p.id, c.id, p.stock FROM Produit p LEFT JOIN p.categorie c", Object[].class)
+                    .getResultList();
+            etats.clear();
+            compteurs.clear();
+            for (Object[] ligne : lignes) {
+                appliquer((Long) ligne[0], new EtatProduit((Long) ligne[1], (Integer) ligne[2]));
+            }
+        } catch (Exception e) {
+            LOGGER.log(Level.SEVERE, "Erreur lors du calcul des compteurs de catégories", e);
+        }
+        resumes = null;
+    }
+
+    /**
+     * Catégories triées par nom, avec leurs compteurs
+     */
+    public List<CategorieResume> getCategories() {
+        CatalogueSnapshot catalogue = catalogueService.getSnapshot();
+        List<CategorieResume> liste = resumes;
+        if (liste == null || catalogueDesResumes != catalogue) {
+            liste = calculer(catalogue);
+        }
+        return liste;
+    }
+
+    public CategorieResume getCategorie(Long id) {
+        for (CategorieResume resume : getCategories()) {
+            if (resume.getId().equals(id)) {
+                return resume;
+            }
+        }
+        return null;
+    }
+
+    public synchronized void surProduitModifie(@Observes(during = TransactionPhase.AFTER_SUCCESS) ProduitEvenement evenement) {
+        if (evenement.getType() == ProduitEvenement.Type.SUPPRESSION) {
+            appliquer(evenement.getProduitId(), null);
+        } else {
+            Produit produit = evenement.getProduit();
+            Long categorieId = produit.getCategorie() != null ? produit.getCategorie().getId() : null;
+            appliquer(produit.getId(), new EtatProduit(categorieId, produit.getStock()));
+        }
+        resumes = null;
+    }
+
+    public synchronized void surStockModifie(@Observes(during = TransactionPhase.AFTER_SUCCESS) StockEvenement evenement) {
+        evenement.getQuantitesRetirees().forEach((produitId, retiree) -> {
+            EtatProduit ancien = etats.get(produitId);
+            if (ancien != null) {
+                appliquer(produitId, new EtatProduit(ancien.categorieId, Math.max(0, ancien.stock - retiree)));
+            }
+        });
+        resumes = null;
+    }
+
+    public synchronized void surCategorieModifiee(@Observes(during = TransactionPhase.AFTER_SUCCESS) CategorieEvenement evenement) {
+        if (evenement.estSuppression()) {
+            // Les produits de la catégorie sont supprimés en cascade
+            List<Long> produits = new ArrayList<>();
+            etats.forEach((id, etat) -> {
+                if (evenement.getCategorieId().equals(etat.categorieId)) {
+                    produits.add(id);
+                }
+            });
+            produits.forEach(id -> appliquer(id, null));
+        }
+        resumes = null;
+    }
+
+    private synchronized List<CategorieResume> calculer(CatalogueSnapshot catalogue) {
+        List<CategorieResume> liste = new ArrayList<>();
+        for (Categorie categorie : catalogue.getCategories()) {
+            int[] valeurs = compteurs.getOrDefault(categorie.getId(), new int[2]);
+            liste.add(CategorieResume.de(categorie, valeurs[0], valeurs[1]));
+        }
+        liste = List.copyOf(liste);
+        resumes = liste;
+        catalogueDesResumes = catalogue;
+        return liste;
+    }
+
+    /**
+     * Remplace l'état connu d'un produit et ajuste les compteurs (null = produit supprimé)
+     */
+    private void appliquer(Long produitId, EtatProduit nouveau) {
+        EtatProduit ancien = nouveau == null ? etats.remove(produitId) : etats.put(produitId, nouveau);
+        if (ancien != null && ancien.categorieId != null) {
+            int[] valeurs = compteurs.computeIfAbsent(ancien.categorieId, id -> new int[2]);
+            valeurs[0]--;
+            if (ancien.enStock) {
+                valeurs[1]--;
+            }
+        }
+        if (nouveau != null && nouveau.categorieId != null) {
+            int[] valeurs = compteurs.computeIfAbsent(nouveau.categorieId, id -> new int[2]);
+            valeurs[0]++;
+            if (nouveau.enStock) {
+                valeurs[1]++;
+            }
+        }
+    }
+
+    private static final class EtatProduit {
+        private final Long categorieId;
+        private final int stock;
+        private final boolean enStock;
+
+        private EtatProduit(Long categorieId, int stock) {
+            this.categorieId = categorieId;
+            this.stock = stock;
+            this.enStock = stock > 0;
+        }
+    }
+}
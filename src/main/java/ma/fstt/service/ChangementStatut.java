@@ -0,0 +1,23 @@
+package ma.fstt.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import ma.fstt.model.Commande;
+
+import java.time.LocalDateTime;
+
+/**
+ * Changement de statut d'une commande, tel qu'appliqué en base (pour les modèles de lecture :
+ * résumés clients et cumuls de ventes), sans charger l'entité ni ses lignes
+ */
+@Getter
+@AllArgsConstructor
+public class ChangementStatut {
+
+    private final Long commandeId;
+    private final Long internauteId;
+    private final LocalDateTime dateCommande;
+    private final Double montantTotal;
+    private final Commande.StatutCommande ancienStatut;
+    private final Commande.StatutCommande nouveauStatut;
+}
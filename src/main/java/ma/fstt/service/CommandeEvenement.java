@@ -0,0 +1,15 @@
+package ma.fstt.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Événement CDI émis quand une commande vient d'être enregistrée (validation du panier)
+ */
+@Getter
+@AllArgsConstructor
+public class CommandeEvenement {
+
+    private final Long commandeId;
+    private final long montantCentimes;
+}
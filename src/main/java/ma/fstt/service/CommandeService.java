@@ -0,0 +1,281 @@
+package ma.fstt.service;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import jakarta.transaction.Transactional;
+import ma.fstt.model.Commande;
+import ma.fstt.model.LigneCommande;
+import ma.fstt.ventes.CumulsVentes;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Lecture et mise à jour des commandes (écran d'administration et historique client)
+ * Les commandes sont parcourues par pages avec une pagination par clé (keyset) sur
+ * (dateCommande, id) ; les lignes ne sont chargées que pour les commandes affichées.
+ */
+@ApplicationScoped
+public class CommandeService {
+
+    @PersistenceContext(unitName = "mycnx")
+    private EntityManager em;
+
+    @Inject
+    private ResumeClientService resumeClientService;
+
+    @Inject
+    private CumulsVentes cumulsVentes;
+
+    /**
+     * Commandes qui suivent le curseur (la première page si le curseur est nul),
+     * triées de la plus récente à la plus ancienne, avec leur client
+     *
+     * @param taille nombre maximal de commandes retournées
+     */
+    public List<Commande> chercher(CritereCommande critere, CurseurCommande curseur, int taille) {
+        StringBuilder jpql = new StringBuilder("SELECT c FROM Commande c JOIN FETCH c.internaute i WHERE 1 = 1");
+        Map<String, Object> parametres = new HashMap<>();
+        filtrer(critere, jpql, parametres);
+        if (curseur != null) {
+            jpql.append(" AND (c.dateCommande < :dateCurseur"
+                    + " OR (c.dateCommande = :dateCurseur AND c.id < :idCurseur))");
+            parametres.put("dateCurseur", curseur.getDateCommande());
+            parametres.put("idCurseur", curseur.getId());
+        }
+        jpql.append(" ORDER BY c.dateCommande DESC, c.id DESC");
+
+        TypedQuery<Commande> requete = em.createQuery(jpql.toString(), Commande.class);
+        parametres.forEach(requete::setParameter);
+        return requete.setMaxResults(taille).getResultList();
+    }
+
+    /**
+     * Ajoute les filtres du critère à une requête sur "Commande c JOIN c.internaute i"
+     * (partagé avec les exports)
+     */
+    public static void filtrer(CritereCommande critere, StringBuilder jpql, Map<String, Object> parametres) {
+        if (critere.getStatut() != null) {
+            jpql.append(" AND c.statut = :statut");
+            parametres.put("statut", critere.getStatut());
+        }
+        if (critere.aClient()) {
+            // Recherche par préfixe : reste compatible avec les index sur email et nom
+            jpql.append(" AND (i.email LIKE :client OR i.nom LIKE :client)");
+            parametres.put("client", critere.getClient().trim() + "%");
+        }
+        if (critere.getDu() != null) {
+            jpql.append(" AND c.dateCommande >= :du");
+            parametres.put("du", critere.getDu().atStartOfDay());
+        }
+        if (critere.getAu() != null) {
+            jpql.append(" AND c.dateCommande < :au");
+            parametres.put("au", critere.getAu().plusDays(1).atStartOfDay());
+        }
+    }
+
+    /**
+     * Lignes (avec leur produit) des commandes données, en une seule requête
+     *
+     * @return commandeId -> lignes, dans l'ordre de saisie
+     */
+    public Map<Long, List<LigneCommande>> lignes(Collection<Long> commandeIds) {
+        Map<Long, List<LigneCommande>> parCommande = new LinkedHashMap<>();
+        if (commandeIds.isEmpty()) {
+            return parCommande;
+        }
+        List<LigneCommande> lignes = em.createQuery(
+                        "SELECT l FROM LigneCommande l JOIN FETCH l.produit p LEFT JOIN FETCH p.categorie"
+                                + " WHERE l.commande.id IN :ids ORDER BY l.commande.id, l.id", LigneCommande.class)
+                .setParameter("ids", commandeIds)
+                .getResultList();
+        for (LigneCommande ligne : lignes) {
+            parCommande.computeIfAbsent(ligne.getCommande().getId(), id -> new ArrayList<>()).add(ligne);
+        }
+        return parCommande;
+    }
+
+    /**
+     * Nombre de commandes passées par un internaute
+     */
+    public long compterHistorique(Long internauteId) {
+        return em.createQuery("SELECT COUNT(c) FROM Commande c WHERE c.internaute.id = :internauteId", Long.class)
+                .setParameter("internauteId", internauteId)
+                .getSingleResult();
+    }
+
+    /**
+     * Une page de l'historique d'un internaute, de la plus récente à la plus ancienne
+     */
+    public List<ResumeCommande> historique(Long internauteId, int premier, int taille) {
+        return em.createQuery(
+                        "SELECT new ma.fstt.service.ResumeCommande(c.id, c.dateCommande, c.statut, c.montantTotal,"
+                                + " c.adresseLivraison, COUNT(l))"
+                                + " FROM Commande c LEFT JOIN c.lignesCommande l"
+                                + " WHERE c.internaute.id = :internauteId"
+                                + " GROUP BY c.id, c.dateCommande, c.statut, c.montantTotal, c.adresseLivraison"
+                                + " ORDER BY c.dateCommande DESC, c.id DESC", ResumeCommande.class)
+                .setParameter("internauteId", internauteId)
+                .setFirstResult(premier)
+                .setMaxResults(taille)
+                .getResultList();
+    }
+
+    /**
+     * Nombre de commandes d'un internaute, archives comprises
+     */
+    public long compterHistoriqueComplet(Long internauteId) {
+        return compterHistorique(internauteId) + em.createQuery(
+                        "SELECT COUNT(c) FROM CommandeArchivee c WHERE c.internaute.id = :internauteId", Long.class)
+                .setParameter("internauteId", internauteId)
+                .getSingleResult();
+    }
+
+    /**
+     * Une page de l'historique complet d'un internaute (commandes en cours et archivées)
+     * qui suit le curseur (la première page si le curseur est nul)
+     * Chaque table ne fournit que les commandes qui suivent le curseur, au plus une page,
+     * dans le même ordre ; les deux listes sont fusionnées et la page en est le début.
+     *
+     * @param taille nombre maximal de commandes retournées
+     */
+    public List<ResumeCommande> historiqueComplet(Long internauteId, CurseurCommande curseur, int taille) {
+        List<ResumeCommande> fusion = new ArrayList<>(2 * taille);
+        fusion.addAll(resumesApres("Commande c LEFT JOIN c.lignesCommande l",
+                internauteId, curseur, taille));
+        fusion.addAll(resumesApres("CommandeArchivee c LEFT JOIN LigneCommandeArchivee l ON l.commande = c",
+                internauteId, curseur, taille));
+        fusion.sort(Comparator.comparing(ResumeCommande::getDateCommande)
+                .thenComparing(ResumeCommande::getId).reversed());
+        return fusion.size() <= taille ? fusion : new ArrayList<>(fusion.subList(0, taille));
+    }
+
+    /**
+     * Résumés des commandes d'un internaute qui suivent le curseur, lus dans une table
+     * (commandes en cours ou archivées, alias c pour la commande et l pour ses lignes)
+     */
+    private List<ResumeCommande> resumesApres(String tables, Long internauteId, CurseurCommande curseur, int taille) {
+        StringBuilder jpql = new StringBuilder(
+                "SELECT new ma.fstt.service.ResumeCommande(c.id, c.dateCommande, c.statut, c.montantTotal,"
+                        + " c.adresseLivraison, COUNT(l))"
+                        + " FROM " + tables
+                        + " WHERE c.internaute.id = :internauteId");
+        if (curseur != null) {
+            jpql.append(" AND (c.dateCommande < :dateCurseur"
+                    + " OR (c.dateCommande = :dateCurseur AND c.id < :idCurseur))");
+        }
+        jpql.append(" GROUP BY c.id, c.dateCommande, c.statut, c.montantTotal, c.adresseLivraison"
+                + " ORDER BY c.dateCommande DESC, c.id DESC");
+
+        TypedQuery<ResumeCommande> requete = em.createQuery(jpql.toString(), ResumeCommande.class)
+                .setParameter("internauteId", internauteId);
+        if (curseur != null) {
+            requete.setParameter("dateCurseur", curseur.getDateCommande())
+                    .setParameter("idCurseur", curseur.getId());
+        }
+        return requete.setMaxResults(taille).getResultList();
+    }
+
+    /**
+     * Lignes résumées des commandes données, en une seule requête de projection
+     * La condition sur l'internaute empêche de lire les lignes de la commande d'un autre client.
+     *
+     * @return commandeId -> lignes
+     */
+    public Map<Long, List<LigneCommandeResume>> lignesResumees(Long internauteId, Collection<Long> commandeIds) {
+        Map<Long, List<LigneCommandeResume>> parCommande = new HashMap<>();
+        if (commandeIds.isEmpty()) {
+            return parCommande;
+        }
+        List<LigneCommandeResume> lignes = em.createQuery(
+                        "SELECT new ma.fstt.service.LigneCommandeResume(c.id, p.nom, l.quantite, l.prixUnitaire)"
+                                + " FROM LigneCommande l JOIN l.commande c JOIN l.produit p"
+                                + " WHERE c.id IN :ids AND c.internaute.id = :internauteId"
+                                + " ORDER BY l.id", LigneCommandeResume.class)
+                .setParameter("ids", commandeIds)
+                .setParameter("internauteId", internauteId)
+                .getResultList();
+        for (LigneCommandeResume ligne : lignes) {
+            parCommande.computeIfAbsent(ligne.getCommandeId(), id -> new ArrayList<>()).add(ligne);
+        }
+
+        // Commandes absentes des tables courantes : lues dans les archives (historique complet)
+        List<Long> archivees = commandeIds.stream().filter(id -> !parCommande.containsKey(id)).toList();
+        if (!archivees.isEmpty()) {
+            em.createQuery(
+                            "SELECT new ma.fstt.service.LigneCommandeResume(c.id, l.produitNom, l.quantite, l.prixUnitaire)"
+                                    + " FROM LigneCommandeArchivee l JOIN l.commande c"
+                                    + " WHERE c.id IN :ids AND c.internaute.id = :internauteId"
+                                    + " ORDER BY l.id", LigneCommandeResume.class)
+                    .setParameter("ids", archivees)
+                    .setParameter("internauteId", internauteId)
+                    .getResultList()
+                    .forEach(ligne -> parCommande.computeIfAbsent(ligne.getCommandeId(), id -> new ArrayList<>()).add(ligne));
+        }
+        return parCommande;
+    }
+
+    /**
+     * Change le statut d'une commande sans la charger (ni ses lignes)
+     *
+     * @return false si la commande n'existe pas ou si son statut courant n'autorise pas la transition
+     */
+    @Transactional
+    public boolean changerStatut(Long commandeId, Commande.StatutCommande statut) {
+        return !changerStatuts(List.of(commandeId), statut).isEmpty();
+    }
+
+    /**
+     * Passe des commandes au statut demandé en une seule instruction UPDATE ... WHERE id IN (...)
+     * La transition est vérifiée par la base (condition sur le statut courant) : les commandes dont
+     * le statut ne le permet pas sont ignorées. Les commandes concernées sont d'abord verrouillées
+     * et lues en projection (statut, montant, client) pour mettre à jour, dans la même transaction,
+     * les résumés clients et les cumuls de ventes.
+     *
+     * @return identifiants des commandes modifiées
+     */
+    @Transactional
+    public List<Long> changerStatuts(Collection<Long> commandeIds, Commande.StatutCommande statut) {
+        Set<Commande.StatutCommande> precedents = statut.precedents();
+        if (commandeIds.isEmpty() || precedents.isEmpty()) {
+            return List.of();
+        }
+        List<Object[]> lignes = em.createQuery(
+                        "SELECT c.id, c.internaute.id, c.dateCommande, c.montantTotal, c.statut FROM Commande c"
+                                + " WHERE c.id IN :ids AND c.statut IN :precedents ORDER BY c.id", Object[].class)
+                .setParameter("ids", commandeIds)
+                .setParameter("precedents", precedents)
+                .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+                .getResultList();
+        if (lignes.isEmpty()) {
+            return List.of();
+        }
+        em.createQuery("UPDATE Commande c SET c.statut = :statut WHERE c.id IN :ids AND c.statut IN :precedents")
+                .setParameter("statut", statut)
+                .setParameter("ids", commandeIds)
+                .setParameter("precedents", precedents)
+                .executeUpdate();
+
+        List<ChangementStatut> changements = new ArrayList<>(lignes.size());
+        List<Long> modifiees = new ArrayList<>(lignes.size());
+        for (Object[] ligne : lignes) {
+            changements.add(new ChangementStatut((Long) ligne[0], (Long) ligne[1], (LocalDateTime) ligne[2],
+                    (Double) ligne[3], (Commande.StatutCommande) ligne[4], statut));
+            modifiees.add((Long) ligne[0]);
+        }
+        resumeClientService.statutsChanges(changements);
+        cumulsVentes.statutsChanges(changements);
+        return modifiees;
+    }
+}
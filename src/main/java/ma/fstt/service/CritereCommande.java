@@ -0,0 +1,30 @@
+package ma.fstt.service;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import ma.fstt.model.Commande;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+
+/**
+ * Filtres de l'écran admin des commandes
+ * Tous les filtres sont appliqués côté base ; les critères vides sont ignorés.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+public class CritereCommande implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private Commande.StatutCommande statut;
+    private String client;      // Début de l'email ou du nom du client
+    private LocalDate du;       // Date de commande minimale (incluse)
+    private LocalDate au;       // Date de commande maximale (incluse)
+
+    public boolean aClient() {
+        return client != null && !client.isBlank();
+    }
+}
@@ -0,0 +1,49 @@
+package ma.fstt.service;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import ma.fstt.search.TranchePrix;
+
+import java.io.Serializable;
+
+/**
+ * Critères de recherche du catalogue
+ * Regroupe les filtres saisis par l'utilisateur (barre de recherche, catégorie)
+ * et ceux des colonnes du tableau admin. Les critères vides sont ignorés.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+public class CritereProduit implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private String motCle;      // Recherche dans le nom et la description
+    private Long categorieId;   // Filtre par catégorie
+    private String nom;         // Filtre de colonne sur le nom (admin)
+    private TranchePrix tranchePrix;
+    private boolean enStockSeulement;
+
+    /**
+     * Copie des critères, utilisée pour y ajouter les filtres de colonnes
+     * sans modifier les critères de la vue
+     */
+    public CritereProduit copie() {
+        CritereProduit copie = new CritereProduit();
+        copie.motCle = motCle;
+        copie.categorieId = categorieId;
+        copie.nom = nom;
+        copie.tranchePrix = tranchePrix;
+        copie.enStockSeulement = enStockSeulement;
+        return copie;
+    }
+
+    public boolean aMotCle() {
+        return motCle != null && !motCle.isBlank();
+    }
+
+    public boolean aNom() {
+        return nom != null && !nom.isBlank();
+    }
+}
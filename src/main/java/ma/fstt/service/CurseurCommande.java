@@ -0,0 +1,31 @@
+package ma.fstt.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import ma.fstt.model.Commande;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * Position dans la liste des commandes triée par (dateCommande, id) décroissants
+ * La page suivante commence juste après la dernière commande affichée, sans OFFSET :
+ * le coût d'une page ne dépend pas de sa position dans l'historique.
+ */
+@Getter
+@AllArgsConstructor
+public class CurseurCommande implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final LocalDateTime dateCommande;
+    private final Long id;
+
+    public static CurseurCommande apres(Commande commande) {
+        return new CurseurCommande(commande.getDateCommande(), commande.getId());
+    }
+
+    public static CurseurCommande apres(ResumeCommande commande) {
+        return new CurseurCommande(commande.getDateCommande(), commande.getId());
+    }
+}
@@ -0,0 +1,64 @@
+package ma.fstt.service;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.context.Initialized;
+import jakarta.enterprise.event.Observes;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.transaction.Transactional;
+
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Alignement des générateurs d'identifiants sur les tables existantes
+ * Produits, commandes, paniers et leurs lignes étaient en AUTO_INCREMENT ; ils utilisent maintenant
+ * la table generateurs_id, par blocs de 50 : les insertions sont groupées en lots JDBC. Au démarrage, chaque générateur est placé au-delà
+ * du plus grand identifiant existant, pour qu'aucun bloc ne recouvre d'anciennes lignes.
+ * (Même opération que src/main/resources/db/migration-identifiants.sql.)
+ */
+@ApplicationScoped
+public class GenerateursIdentifiants {
+
+    private static final Logger LOGGER = Logger.getLogger(GenerateursIdentifiants.class.getName());
+
+    // Doit correspondre à allocationSize des @TableGenerator
+    private static final int TAILLE_BLOC = 50;
+
+    // Tables dont le nom sert aussi de clé dans generateurs_id
+    private static final List<String> TABLES = List.of("produits", "commandes", "lignes_commande", "paniers", "lignes_panier");
+
+    @PersistenceContext(unitName = "mycnx")
+    private EntityManager em;
+
+    @Transactional
+    public void demarrer(@Observes @Initialized(ApplicationScoped.class) Object contexte) {
+        try {
+            for (String table : TABLES) {
+                aligner(table);
+            }
+        } catch (Exception e) {
+            LOGGER.log(Level.SEVERE, "Erreur lors de l'alignement des générateurs d'identifiants", e);
+        }
+    }
+
+    /**
+     * Optimiseur "pooled" : la valeur stockée est la borne haute du prochain bloc,
+     * qui commence donc à (valeur - TAILLE_BLOC + 1) ; elle doit valoir au moins MAX(id) + TAILLE_BLOC.
+     */
+    private void aligner(String table) {
+        em.createNativeQuery("INSERT INTO generateurs_id (entite, prochain)"
+                        + " SELECT ?1, COALESCE(MAX(id), 0) + ?2 FROM " + table
+                        + " WHERE NOT EXISTS (SELECT 1 FROM generateurs_id WHERE entite = ?1)")
+                .setParameter(1, table)
+                .setParameter(2, TAILLE_BLOC)
+                .executeUpdate();
+        em.createNativeQuery("UPDATE generateurs_id SET prochain ="
+                        + " GREATEST(prochain, (SELECT COALESCE(MAX(id), 0) + ?2 FROM " + table + "))"
+                        + " WHERE entite = ?1")
+                .setParameter(1, table)
+                .setParameter(2, TAILLE_BLOC)
+                .executeUpdate();
+    }
+}
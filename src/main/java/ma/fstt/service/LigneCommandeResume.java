@@ -0,0 +1,25 @@
+package ma.fstt.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.io.Serializable;
+
+/**
+ * Ligne d'une commande telle qu'affichée dans l'historique (projection, pas d'entité)
+ */
+@Getter
+@AllArgsConstructor
+public class LigneCommandeResume implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final Long commandeId;
+    private final String produitNom;
+    private final Integer quantite;
+    private final Double prixUnitaire; // Prix au moment de l'achat
+
+    public Double getSousTotal() {
+        return prixUnitaire * quantite;
+    }
+}
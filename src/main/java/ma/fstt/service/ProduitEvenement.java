@@ -0,0 +1,33 @@
+package ma.fstt.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import ma.fstt.model.Produit;
+
+/**
+ * Événement CDI émis quand un produit du catalogue est ajouté, modifié ou supprimé
+ * Les observateurs (index de recherche, caches...) l'écoutent après le commit
+ * avec {@code @Observes(during = TransactionPhase.AFTER_SUCCESS)}.
+ */
+@Getter
+@AllArgsConstructor
+public class ProduitEvenement {
+
+    public enum Type {
+        AJOUT,
+        MODIFICATION,
+        SUPPRESSION
+    }
+
+    private final Type type;
+    private final Long produitId;
+    private final Produit produit; // État après modification (null pour une suppression)
+
+    public static ProduitEvenement enregistre(Produit produit, boolean nouveau) {
+        return new ProduitEvenement(nouveau ? Type.AJOUT : Type.MODIFICATION, produit.getId(), produit);
+    }
+
+    public static ProduitEvenement supprime(Long produitId) {
+        return new ProduitEvenement(Type.SUPPRESSION, produitId, null);
+    }
+}
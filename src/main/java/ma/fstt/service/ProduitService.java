@@ -0,0 +1,106 @@
+package ma.fstt.service;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import ma.fstt.model.Produit;
+import ma.fstt.search.CompteursFacettes;
+import ma.fstt.search.FacettesProduits;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Service de lecture du catalogue
+ * Les filtres (mot-clé, catégorie, prix, stock) sont résolus par les bitmaps de FacettesProduits,
+ * puis la page est lue dans la photographie partagée du catalogue (CatalogueService) :
+ * aucune requête n'est envoyée à la base pour afficher la vitrine ou le tableau admin.
+ */
+@ApplicationScoped
+public class ProduitService {
+
+    // Champs triables : nom de la colonne PrimeFaces -> comparateur (liste blanche)
+    private static final Map<String, Comparator<Produit>> CHAMPS_TRI = Map.of(
+            "id", Comparator.comparing(Produit::getId),
+            "nom", Comparator.comparing(Produit::getNom, String.CASE_INSENSITIVE_ORDER),
+            "prix", Comparator.comparing(Produit::getPrix),
+            "stock", Comparator.comparing(Produit::getStock),
+            "categorie.nom", Comparator.comparing(
+                    (Produit p) -> p.getCategorie() != null ? p.getCategorie().getNom() : "",
+                    String.CASE_INSENSITIVE_ORDER)
+    );
+
+    @Inject
+    private CatalogueService catalogueService;
+
+    @Inject
+    private FacettesProduits facettesProduits;
+
+    /**
+     * Nombre total de produits correspondant aux critères
+     */
+    public long compter(CritereProduit critere) {
+        if (critere != null && critere.aNom()) {
+            return filtrerSurNom(catalogueService.getSnapshot(), critere).count();
+        }
+        return facettesProduits.selectionner(critere).taille();
+    }
+
+    /**
+     * Charge une page de produits
+     *
+     * @param champTri nom du champ de tri (voir CHAMPS_TRI), null pour le tri par défaut
+     */
+    public List<Produit> charger(CritereProduit critere, int premier, int taille,
+                                 String champTri, boolean croissant) {
+        CatalogueSnapshot catalogue = catalogueService.getSnapshot();
+        Comparator<Produit> tri = CHAMPS_TRI.get(champTri);
+
+        // Cas courant (vitrine) : la page est prise directement dans le bitmap
+        if (tri == null && (critere == null || !critere.aNom())) {
+            return versProduits(catalogue, facettesProduits.selectionner(critere).page(premier, taille));
+        }
+
+        Stream<Produit> selection = filtrerSurNom(catalogue, critere);
+        if (tri != null) {
+            tri = croissant ? tri : tri.reversed();
+            selection = selection.sorted(tri.thenComparing(Produit::getId, Comparator.reverseOrder()));
+        }
+        return selection.skip(premier)
+                .limit(taille)
+                .toList();
+    }
+
+    /**
+     * Nombre de produits par catégorie, tranche de prix et disponibilité pour ces critères
+     */
+    public CompteursFacettes compterFacettes(CritereProduit critere) {
+        return facettesProduits.compter(critere);
+    }
+
+    /**
+     * Tous les produits sélectionnés, avec le filtre de colonne sur le nom (admin)
+     */
+    private Stream<Produit> filtrerSurNom(CatalogueSnapshot catalogue, CritereProduit critere) {
+        Stream<Produit> selection = versProduits(catalogue, facettesProduits.selectionner(critere).tous()).stream();
+        if (critere != null && critere.aNom()) {
+            String nom = critere.getNom().trim().toLowerCase(Locale.ROOT);
+            selection = selection.filter(p -> p.getNom() != null && p.getNom().toLowerCase(Locale.ROOT).contains(nom));
+        }
+        return selection;
+    }
+
+    private List<Produit> versProduits(CatalogueSnapshot catalogue, List<Long> ids) {
+        List<Produit> produits = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            Produit produit = catalogue.getProduit(id);
+            if (produit != null) {
+                produits.add(produit);
+            }
+        }
+        return produits;
+    }
+}
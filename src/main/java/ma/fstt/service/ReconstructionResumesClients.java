@@ -0,0 +1,44 @@
+package ma.fstt.service;
+
+import jakarta.ejb.Schedule;
+import jakarta.ejb.Singleton;
+import jakarta.ejb.TransactionAttribute;
+import jakarta.ejb.TransactionAttributeType;
+import jakarta.inject.Inject;
+import ma.fstt.config.Parametres;
+
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Tâche planifiée : recalcule chaque nuit les résumés clients depuis l'historique
+ * (corrige une éventuelle dérive, par exemple après une modification manuelle en base)
+ * Par tranches de resumes.reconstruction.tranche identifiants d'internautes, une transaction
+ * par tranche : les validations de panier ne sont jamais bloquées plus d'une tranche.
+ */
+@Singleton
+public class ReconstructionResumesClients {
+
+    private static final Logger LOGGER = Logger.getLogger(ReconstructionResumesClients.class.getName());
+
+    @Inject
+    private ResumeClientService resumeClientService;
+
+    @Schedule(hour = "3", minute = "30", persistent = false)
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED) // Chaque tranche a sa transaction
+    public void reconstruire() {
+        long taille = Math.max(1, Parametres.nombre("resumes.reconstruction.tranche", 1000));
+        long total = 0;
+        long depart = System.nanoTime();
+        try {
+            long dernier = resumeClientService.dernierInternaute();
+            for (long debut = 0; debut <= dernier; debut += taille) {
+                total += resumeClientService.reconstruire(debut, debut + taille);
+            }
+            LOGGER.info("Résumés clients reconstruits : " + total + " en "
+                    + (System.nanoTime() - depart) / 1_000_000 + " ms");
+        } catch (Exception e) {
+            LOGGER.log(Level.SEVERE, "Reconstruction des résumés clients interrompue après " + total + " résumés", e);
+        }
+    }
+}
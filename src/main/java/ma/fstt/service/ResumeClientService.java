@@ -0,0 +1,157 @@
+package ma.fstt.service;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.PersistenceContext;
+import jakarta.transaction.Transactional;
+import ma.fstt.model.Commande;
+import ma.fstt.model.ResumeClient;
+import org.hibernate.query.NativeQuery;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Résumés des commandes par client (modèle de lecture dénormalisé)
+ * Les mises à jour sont faites dans la transaction de l'appelant (validation du panier,
+ * changement de statut) : le résumé et les commandes restent cohérents.
+ */
+@ApplicationScoped
+public class ResumeClientService {
+
+    @PersistenceContext(unitName = "mycnx")
+    private EntityManager em;
+
+    /**
+     * Résumé d'un internaute (une lecture par clé primaire)
+     */
+    public ResumeClient resume(Long internauteId) {
+        ResumeClient resume = em.find(ResumeClient.class, internauteId);
+        return resume != null ? resume : ResumeClient.vide(internauteId);
+    }
+
+    /**
+     * Prend en compte une nouvelle commande (déjà persistée)
+     */
+    @Transactional(Transactional.TxType.MANDATORY)
+    public void commandeCreee(Commande commande) {
+        ResumeClient resume = verrouiller(commande.getInternaute().getId());
+        resume.setNombreCommandes(resume.getNombreCommandes() + 1);
+        if (commande.getStatut() != Commande.StatutCommande.ANNULEE) {
+            resume.setMontantDepenseCentimes(resume.getMontantDepenseCentimes() + centimes(commande.getMontantTotal()));
+        }
+        if (resume.getDerniereCommandeId() == null || commande.getId() > resume.getDerniereCommandeId()) {
+            resume.setDerniereCommandeId(commande.getId());
+            resume.setDerniereCommandeDate(commande.getDateCommande());
+            resume.setDernierStatut(commande.getStatut());
+        }
+    }
+
+    /**
+     * Prend en compte des changements de statut appliqués en masse (commandes non chargées)
+     * Le montant dépensé exclut les commandes annulées : une instruction par client concerné
+     * par une annulation, puis une par nouveau statut pour le dernier statut des clients.
+     */
+    @Transactional(Transactional.TxType.MANDATORY)
+    public void statutsChanges(Collection<ChangementStatut> changements) {
+        Map<Long, Long> variations = new TreeMap<>();
+        Map<Commande.StatutCommande, List<Long>> parStatut = new EnumMap<>(Commande.StatutCommande.class);
+        for (ChangementStatut changement : changements) {
+            if (changement.getAncienStatut() == changement.getNouveauStatut()) {
+                continue;
+            }
+            long signe = changement.getNouveauStatut() == Commande.StatutCommande.ANNULEE ? -1
+                    : changement.getAncienStatut() == Commande.StatutCommande.ANNULEE ? 1 : 0;
+            if (signe != 0) {
+                variations.merge(changement.getInternauteId(), signe * centimes(changement.getMontantTotal()), Long::sum);
+            }
+            parStatut.computeIfAbsent(changement.getNouveauStatut(), s -> new ArrayList<>()).add(changement.getCommandeId());
+        }
+        // Clients dans l'ordre des identifiants : pas d'interblocage entre deux mises à jour en masse
+        variations.forEach((internauteId, variation) -> em.createQuery(
+                        "UPDATE ResumeClient r SET r.montantDepenseCentimes = r.montantDepenseCentimes + :variation"
+                                + " WHERE r.internauteId = :internauteId")
+                .setParameter("variation", variation)
+                .setParameter("internauteId", internauteId)
+                .executeUpdate());
+        parStatut.forEach((statut, commandeIds) -> em.createQuery(
+                        "UPDATE ResumeClient r SET r.dernierStatut = :statut WHERE r.derniereCommandeId IN :commandeIds")
+                .setParameter("statut", statut)
+                .setParameter("commandeIds", commandeIds)
+                .executeUpdate());
+    }
+
+    /**
+     * Plus grand identifiant d'internaute (borne de la reconstruction par tranches)
+     */
+    public long dernierInternaute() {
+        Long dernier = em.createQuery("SELECT MAX(i.id) FROM Internaute i", Long.class).getSingleResult();
+        return dernier != null ? dernier : 0;
+    }
+
+    /**
+     * Recalcule les résumés des internautes d'identifiant compris dans [debut, fin[ à partir
+     * de l'historique des commandes (archives comprises), dans sa propre transaction : les verrous
+     * posés sur les commandes ne couvrent que la tranche et ne durent que le temps de la tranche.
+     * Requêtes ensemblistes exécutées par la base (aucune commande n'est chargée en mémoire).
+     *
+     * @return nombre de résumés recalculés
+     */
+    @Transactional(Transactional.TxType.REQUIRES_NEW)
+    public int reconstruire(long debut, long fin) {
+        String tranche = " WHERE internaute_id >= :debut AND internaute_id < :fin";
+        String toutes = "(SELECT id, internaute_id, dateCommande, statut, montantTotal FROM commandes" + tranche
+                + " UNION ALL SELECT id, internaute_id, dateCommande, statut, montantTotal FROM commandes_archive"
+                + tranche + ")";
+        em.createQuery("DELETE FROM ResumeClient r WHERE r.internauteId >= :debut AND r.internauteId < :fin")
+                .setParameter("debut", debut)
+                .setParameter("fin", fin)
+                .executeUpdate();
+        int nombre = em.createNativeQuery(
+                        "INSERT INTO resumes_clients (internaute_id, nombreCommandes, montantDepenseCentimes, derniereCommandeId)"
+                                + " SELECT c.internaute_id, COUNT(*),"
+                                + " SUM(CASE WHEN c.statut <> :annulee THEN ROUND(c.montantTotal * 100) ELSE 0 END), MAX(c.id)"
+                                + " FROM " + toutes + " c GROUP BY c.internaute_id")
+                .setParameter("annulee", Commande.StatutCommande.ANNULEE.name())
+                .setParameter("debut", debut)
+                .setParameter("fin", fin)
+                .unwrap(NativeQuery.class)
+                .addSynchronizedEntityClass(ResumeClient.class)
+                .executeUpdate();
+        em.createNativeQuery(
+                        "UPDATE resumes_clients r JOIN " + toutes + " d ON d.id = r.derniereCommandeId"
+                                + " SET r.derniereCommandeDate = d.dateCommande, r.dernierStatut = d.statut")
+                .setParameter("debut", debut)
+                .setParameter("fin", fin)
+                .unwrap(NativeQuery.class)
+                .addSynchronizedEntityClass(ResumeClient.class)
+                .executeUpdate();
+        return nombre;
+    }
+
+    /**
+     * Résumé verrouillé pour la transaction courante (créé au premier achat)
+     * La ligne est créée ou verrouillée par un seul INSERT ... ON DUPLICATE KEY UPDATE :
+     * deux premières commandes simultanées du même client s'attendent au lieu de se heurter
+     * sur la clé primaire, puis la relecture verrouillée voit la ligne existante.
+     */
+    private ResumeClient verrouiller(Long internauteId) {
+        em.createNativeQuery(
+                        "INSERT INTO resumes_clients (internaute_id, nombreCommandes, montantDepenseCentimes)"
+                                + " VALUES (?1, 0, 0) ON DUPLICATE KEY UPDATE internaute_id = internaute_id")
+                .setParameter(1, internauteId)
+                .unwrap(NativeQuery.class)
+                .addSynchronizedEntityClass(ResumeClient.class)
+                .executeUpdate();
+        return em.find(ResumeClient.class, internauteId, LockModeType.PESSIMISTIC_WRITE);
+    }
+
+    private static long centimes(Double montant) {
+        return montant != null ? Math.round(montant * 100) : 0;
+    }
+}
@@ -0,0 +1,27 @@
+package ma.fstt.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import ma.fstt.model.Commande;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * Vue résumée d'une commande pour l'historique du client
+ * Construite directement par la requête (expression constructeur) : aucune entité
+ * Commande, ligne ou produit n'est chargée pour afficher la liste.
+ */
+@Getter
+@AllArgsConstructor
+public class ResumeCommande implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final Long id;
+    private final LocalDateTime dateCommande;
+    private final Commande.StatutCommande statut;
+    private final Double montantTotal;
+    private final String adresseLivraison;
+    private final long nombreLignes;
+}
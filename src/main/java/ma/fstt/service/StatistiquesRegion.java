@@ -0,0 +1,31 @@
+package ma.fstt.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.io.Serializable;
+
+/**
+ * Statistiques d'une région du cache de second niveau
+ */
+@Getter
+@AllArgsConstructor
+public class StatistiquesRegion implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String region;
+    private final long succes;      // hits
+    private final long echecs;      // misses
+    private final long insertions;  // puts
+    private final long evictions;   // -1 si la statistique JCache n'est pas disponible
+    private final long elementsEnMemoire;
+
+    /**
+     * Taux de succès en pourcentage (0 si la région n'a jamais été lue)
+     */
+    public double getTauxSucces() {
+        long lectures = succes + echecs;
+        return lectures == 0 ? 0 : 100.0 * succes / lectures;
+    }
+}
@@ -0,0 +1,19 @@
+package ma.fstt.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.Map;
+
+/**
+ * Événement CDI émis quand le stock de produits change (commande validée...)
+ * Contient la quantité retirée du stock de chaque produit concerné, et non le stock
+ * obtenu : les observateurs soustraient, ce qui donne le même résultat quel que soit
+ * l'ordre dans lequel les commits concurrents leur parviennent.
+ */
+@Getter
+@AllArgsConstructor
+public class StockEvenement {
+
+    private final Map<Long, Integer> quantitesRetirees; // produitId -> quantité retirée du stock
+}
@@ -0,0 +1,20 @@
+package ma.fstt.stock;
+
+import jakarta.ejb.Schedule;
+import jakarta.ejb.Singleton;
+import jakarta.inject.Inject;
+
+/**
+ * Tâche planifiée : retire régulièrement les retenues de panier expirées
+ */
+@Singleton
+public class PurgeRetenuesStock {
+
+    @Inject
+    private RetenuesStock retenuesStock;
+
+    @Schedule(hour = "*", minute = "*/5", persistent = false)
+    public void purger() {
+        retenuesStock.purger();
+    }
+}
@@ -0,0 +1,171 @@
+package ma.fstt.stock;
+
+import jakarta.annotation.Resource;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.transaction.Transactional;
+import jakarta.transaction.TransactionSynchronizationRegistry;
+import ma.fstt.model.Produit;
+import org.hibernate.action.spi.AfterTransactionCompletionProcess;
+import org.hibernate.cache.spi.access.EntityDataAccess;
+import org.hibernate.cache.spi.access.SoftLock;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.persister.entity.EntityPersister;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Réservation atomique du stock à la validation d'une commande
+ * Chaque ligne est un décrément conditionnel (UPDATE ... WHERE stock >= quantité) : la base
+ * refuse la survente sans lecture préalable ni verrou pessimiste. Les lignes sont traitées
+ * dans l'ordre des identifiants (pas d'interblocage entre deux paniers) et envoyées en un seul lot.
+ * Si une ligne échoue, la transaction entière est annulée : tout ou rien.
+ */
+@ApplicationScoped
+public class ReservationStock {
+
+    private static final String DECREMENTER = "UPDATE produits SET stock = stock - ? WHERE id = ? AND stock >= ?";
+
+    @PersistenceContext(unitName = "mycnx")
+    private EntityManager em;
+
+    @Resource
+    private TransactionSynchronizationRegistry registre;
+
+    /**
+     * Réserve les quantités demandées dans la transaction courante
+     * À appeler en fin de transaction : les verrous de ligne des produits très demandés
+     * ne sont alors tenus que jusqu'au commit.
+     *
+     * @param quantites produitId -> quantité demandée
+     */
+    @Transactional(Transactional.TxType.MANDATORY)
+    public ResultatReservation reserver(Map<Long, Integer> quantites) {
+        TreeMap<Long, Integer> demandes = new TreeMap<>(quantites);
+        SessionImplementor session = em.unwrap(SessionImplementor.class);
+
+        // Les UPDATE passent hors d'Hibernate : comme pour ses propres écritures, les produits sont
+        // verrouillés dans le cache de second niveau avant l'UPDATE (une lecture concurrente ne peut
+        // plus y remettre l'ancien stock) et déverrouillés à la fin de la transaction
+        VerrousCacheProduits verrous = new VerrousCacheProduits(session);
+        session.getActionQueue().registerProcess(verrous);
+        verrous.verrouiller(session, demandes.keySet());
+
+        ResultatReservation resultat = session.doReturningWork(connexion -> decrementer(connexion, demandes));
+        if (resultat.isReussie()) {
+            verrous.retirer(session);
+        } else {
+            registre.setRollbackOnly();
+        }
+        return resultat;
+    }
+
+    private ResultatReservation decrementer(Connection connexion, TreeMap<Long, Integer> demandes) throws SQLException {
+        int[] lignesModifiees;
+        try (PreparedStatement requete = connexion.prepareStatement(DECREMENTER)) {
+            for (Map.Entry<Long, Integer> demande : demandes.entrySet()) {
+                requete.setInt(1, demande.getValue());
+                requete.setLong(2, demande.getKey());
+                requete.setInt(3, demande.getValue());
+                requete.addBatch();
+            }
+            lignesModifiees = requete.executeBatch();
+        }
+
+        List<Long> refuses = new ArrayList<>();
+        int i = 0;
+        for (Long produitId : demandes.keySet()) {
+            int modifiees = lignesModifiees[i++];
+            if (modifiees == 0 || modifiees == Statement.EXECUTE_FAILED) {
+                refuses.add(produitId);
+            }
+        }
+        if (refuses.isEmpty()) {
+            return ResultatReservation.reussie();
+        }
+
+        Map<Long, Integer> stocks = lireStocks(connexion, refuses);
+        List<ResultatReservation.Rupture> ruptures = new ArrayList<>();
+        for (Long produitId : refuses) {
+            ruptures.add(new ResultatReservation.Rupture(produitId, demandes.get(produitId),
+                    stocks.getOrDefault(produitId, 0)));
+        }
+        return ResultatReservation.echec(ruptures);
+    }
+
+    /**
+     * Stock disponible des produits refusés, lu dans la transaction (pour le message au client)
+     */
+    private Map<Long, Integer> lireStocks(Connection connexion, Collection<Long> produitIds) throws SQLException {
+        StringBuilder sql = new StringBuilder("SELECT id, stock FROM produits WHERE id IN (");
+        for (int i = 0; i < produitIds.size(); i++) {
+            sql.append(i == 0 ? "?" : ", ?");
+        }
+        sql.append(')');
+
+        Map<Long, Integer> stocks = new HashMap<>();
+        try (PreparedStatement requete = connexion.prepareStatement(sql.toString())) {
+            int position = 1;
+            for (Long id : produitIds) {
+                requete.setLong(position++, id);
+            }
+            try (ResultSet resultats = requete.executeQuery()) {
+                while (resultats.next()) {
+                    stocks.put(resultats.getLong(1), resultats.getInt(2));
+                }
+            }
+        }
+        return stocks;
+    }
+
+    /**
+     * Verrous du cache de second niveau sur les produits réservés
+     * (un UPDATE JPQL aurait verrouillé toute la région "produits")
+     */
+    private static final class VerrousCacheProduits implements AfterTransactionCompletionProcess {
+
+        private final EntityPersister persister;
+        private final EntityDataAccess cache; // null si les produits ne sont pas en cache
+        private final Map<Object, SoftLock> verrous = new LinkedHashMap<>();
+
+        VerrousCacheProduits(SessionImplementor session) {
+            persister = session.getFactory().getMappingMetamodel().getEntityDescriptor(Produit.class);
+            cache = persister.canWriteToCache() ? persister.getCacheAccessStrategy() : null;
+        }
+
+        void verrouiller(SessionImplementor session, Collection<Long> produitIds) {
+            if (cache == null) {
+                return;
+            }
+            for (Long id : produitIds) {
+                Object cle = cache.generateCacheKey(id, persister, session.getFactory(), session.getTenantIdentifier());
+                verrous.put(cle, cache.lockItem(session, cle, null));
+            }
+        }
+
+        /**
+         * Retire les entrées une fois les lignes modifiées (comme une suppression Hibernate)
+         */
+        void retirer(SessionImplementor session) {
+            verrous.keySet().forEach(cle -> cache.remove(session, cle));
+        }
+
+        @Override
+        public void doAfterTransactionCompletion(boolean reussie, SharedSessionContractImplementor session) {
+            verrous.forEach((cle, verrou) -> cache.unlockItem(session, cle, verrou));
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package ma.fstt.stock;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Résultat d'une réservation de stock (tout ou rien)
+ * En cas d'échec, la transaction est marquée pour annulation et les ruptures
+ * indiquent, pour chaque produit insuffisant, la quantité demandée et celle disponible.
+ */
+@Getter
+@AllArgsConstructor
+public class ResultatReservation {
+
+    private final boolean reussie;
+    private final List<Rupture> ruptures;
+
+    public static ResultatReservation reussie() {
+        return new ResultatReservation(true, Collections.emptyList());
+    }
+
+    public static ResultatReservation echec(List<Rupture> ruptures) {
+        return new ResultatReservation(false, ruptures);
+    }
+
+    /**
+     * Produit dont le stock ne couvre pas la quantité demandée
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class Rupture {
+
+        private final Long produitId;
+        private final int demande;
+        private final int disponible;
+    }
+}
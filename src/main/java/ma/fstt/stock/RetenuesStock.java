@@ -0,0 +1,129 @@
+package ma.fstt.stock;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import ma.fstt.config.Parametres;
+import ma.fstt.model.Produit;
+import ma.fstt.service.CatalogueService;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Retenues temporaires de stock pour les paniers
+ * Quand un client met un produit dans son panier, la quantité lui est retenue pendant
+ * quelques minutes : les autres clients ne voient que le stock non retenu. Le registre
+ * est en mémoire, découpé par produit (ConcurrentHashMap.compute verrouille une seule entrée),
+ * si bien que deux produits très demandés ne se ralentissent pas l'un l'autre.
+ * La base reste l'autorité au moment de la validation (ReservationStock).
+ */
+@ApplicationScoped
+public class RetenuesStock {
+
+    private static final Duration DUREE = Duration.ofMinutes(Parametres.nombre("stock.retenue.minutes", 15));
+
+    @Inject
+    private CatalogueService catalogueService;
+
+    // produitId -> (internauteId -> retenue)
+    private final ConcurrentHashMap<Long, Map<Long, Retenue>> retenues = new ConcurrentHashMap<>();
+
+    /**
+     * Retient une quantité d'un produit pour un client (remplace sa retenue précédente)
+     *
+     * @return false si le stock non retenu par les autres clients est insuffisant
+     */
+    public boolean tenir(Long internauteId, Long produitId, int quantite) {
+        if (quantite <= 0) {
+            liberer(internauteId, produitId);
+            return true;
+        }
+        Produit produit = catalogueService.getSnapshot().getProduit(produitId);
+        if (produit == null) {
+            return false;
+        }
+        Instant maintenant = Instant.now();
+        boolean[] accordee = {false};
+        retenues.compute(produitId, (id, parClient) -> {
+            Map<Long, Retenue> courantes = parClient != null ? parClient : new HashMap<>();
+            courantes.values().removeIf(retenue -> retenue.expireAvant(maintenant));
+            if (produit.getStock() - retenuParAutres(courantes, internauteId) >= quantite) {
+                courantes.put(internauteId, new Retenue(quantite, maintenant.plus(DUREE)));
+                accordee[0] = true;
+            }
+            return courantes.isEmpty() ? null : courantes;
+        });
+        return accordee[0];
+    }
+
+    /**
+     * Stock qu'un client peut encore mettre dans son panier (stock moins les retenues des autres)
+     */
+    public int disponible(Long internauteId, Long produitId) {
+        Produit produit = catalogueService.getSnapshot().getProduit(produitId);
+        if (produit == null) {
+            return 0;
+        }
+        int[] retenu = {0};
+        Instant maintenant = Instant.now();
+        retenues.computeIfPresent(produitId, (id, courantes) -> {
+            courantes.values().removeIf(retenue -> retenue.expireAvant(maintenant));
+            retenu[0] = retenuParAutres(courantes, internauteId);
+            return courantes.isEmpty() ? null : courantes;
+        });
+        return Math.max(0, produit.getStock() - retenu[0]);
+    }
+
+    public void liberer(Long internauteId, Long produitId) {
+        retenues.computeIfPresent(produitId, (id, courantes) -> {
+            courantes.remove(internauteId);
+            return courantes.isEmpty() ? null : courantes;
+        });
+    }
+
+    public void libererTout(Long internauteId, Iterable<Long> produitIds) {
+        for (Long produitId : produitIds) {
+            liberer(internauteId, produitId);
+        }
+    }
+
+    /**
+     * Supprime les retenues expirées des produits qui ne sont plus consultés
+     */
+    public void purger() {
+        Instant maintenant = Instant.now();
+        for (Long produitId : retenues.keySet()) {
+            retenues.computeIfPresent(produitId, (id, courantes) -> {
+                courantes.values().removeIf(retenue -> retenue.expireAvant(maintenant));
+                return courantes.isEmpty() ? null : courantes;
+            });
+        }
+    }
+
+    private static int retenuParAutres(Map<Long, Retenue> courantes, Long internauteId) {
+        int total = 0;
+        for (Map.Entry<Long, Retenue> entree : courantes.entrySet()) {
+            if (!entree.getKey().equals(internauteId)) {
+                total += entree.getValue().quantite;
+            }
+        }
+        return total;
+    }
+
+    private static final class Retenue {
+        private final int quantite;
+        private final Instant expiration;
+
+        private Retenue(int quantite, Instant expiration) {
+            this.quantite = quantite;
+            this.expiration = expiration;
+        }
+
+        private boolean expireAvant(Instant instant) {
+            return expiration.isBefore(instant);
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package ma.fstt.stock;
+
+import java.util.List;
+
+/**
+ * Réservation refusée à la validation d'un panier ; la transaction de validation est annulée
+ */
+public class StockInsuffisantException extends Exception {
+
+    private static final long serialVersionUID = 1L;
+
+    private final transient List<ResultatReservation.Rupture> ruptures;
+
+    public StockInsuffisantException(List<ResultatReservation.Rupture> ruptures) {
+        super("Stock insuffisant pour " + ruptures.size() + " produit(s)");
+        this.ruptures = ruptures;
+    }
+
+    public List<ResultatReservation.Rupture> getRuptures() {
+        return ruptures;
+    }
+}
@@ -0,0 +1,21 @@
+package ma.fstt.ventes;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Une ligne du tableau de bord des ventes (un jour, une catégorie, un produit ou un statut)
+ */
+@Getter
+@AllArgsConstructor
+public class CumulVentes {
+
+    private final String libelle;
+    private final long nombreCommandes;
+    private final long quantite;
+    private final long montantCentimes;
+
+    public double getMontant() {
+        return montantCentimes / 100.0;
+    }
+}
@@ -0,0 +1,326 @@
+package ma.fstt.ventes;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.transaction.Transactional;
+import ma.fstt.model.Categorie;
+import ma.fstt.model.Commande;
+import ma.fstt.model.LigneCommande;
+import ma.fstt.model.Produit;
+import ma.fstt.service.CatalogueService;
+import ma.fstt.service.CatalogueSnapshot;
+import ma.fstt.service.ChangementStatut;
+import org.hibernate.Session;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Cumuls des ventes par jour (× catégorie, × produit, × statut) pour le tableau de bord
+ *
+ * Mises à jour incrémentales dans la transaction de l'appelant (validation du panier, changement
+ * de statut) : quelques INSERT ... ON DUPLICATE KEY UPDATE envoyés en lots, dans l'ordre des clés
+ * (pas d'interblocage entre deux commandes). Le chiffre d'affaires par catégorie et par produit
+ * exclut les commandes annulées ; les cumuls par statut les comptent toutes.
+ * Le tableau de bord ne lit que ces tables (quelques lignes par jour), jamais lignes_commande.
+ */
+@ApplicationScoped
+public class CumulsVentes {
+
+    // Catégorie des produits qui n'en ont pas (la clé des cumuls ne peut pas être nulle)
+    public static final long SANS_CATEGORIE = 0L;
+
+    private static final String CUMULER_STATUT = "INSERT INTO ventes_jour_statut"
+            + " (jour, statut, nombre_commandes, montant_centimes) VALUES (?, ?, ?, ?)"
+            + " ON DUPLICATE KEY UPDATE nombre_commandes = nombre_commandes + VALUES(nombre_commandes),"
+            + " montant_centimes = montant_centimes + VALUES(montant_centimes)";
+    private static final String CUMULER_CATEGORIE = "INSERT INTO ventes_jour_categorie"
+            + " (jour, categorie_id, nombre_commandes, quantite, montant_centimes) VALUES (?, ?, ?, ?, ?)"
+            + " ON DUPLICATE KEY UPDATE nombre_commandes = nombre_commandes + VALUES(nombre_commandes),"
+            + " quantite = quantite + VALUES(quantite), montant_centimes = montant_centimes + VALUES(montant_centimes)";
+    private static final String CUMULER_PRODUIT = "INSERT INTO ventes_jour_produit"
+            + " (jour, produit_id, nombre_commandes, quantite, montant_centimes) VALUES (?, ?, ?, ?, ?)"
+            + " ON DUPLICATE KEY UPDATE nombre_commandes = nombre_commandes + VALUES(nombre_commandes),"
+            + " quantite = quantite + VALUES(quantite), montant_centimes = montant_centimes + VALUES(montant_centimes)";
+
+    @PersistenceContext(unitName = "mycnx")
+    private EntityManager em;
+
+    @Inject
+    private CatalogueService catalogueService;
+
+    /**
+     * Prend en compte une nouvelle commande (déjà persistée, lignes en mémoire)
+     * À appeler en fin de transaction : la ligne du jour est partagée par toutes les commandes
+     * et reste verrouillée jusqu'au commit.
+     */
+    @Transactional(Transactional.TxType.MANDATORY)
+    public void commandeCreee(Commande commande) {
+        LocalDate jour = commande.getDateCommande().toLocalDate();
+        Variations variations = new Variations();
+        variations.statut(jour, commande.getStatut(), 1, centimes(commande.getMontantTotal()));
+        if (commande.getStatut() != Commande.StatutCommande.ANNULEE) {
+            for (LigneCommande ligne : commande.getLignesCommande()) {
+                Categorie categorie = ligne.getProduit().getCategorie();
+                variations.ligne(jour, commande.getId(), ligne.getProduit().getId(),
+                        categorie != null ? categorie.getId() : null, ligne.getQuantite(), ligne.getPrixUnitaire(), 1);
+            }
+        }
+        appliquer(variations);
+    }
+
+    /**
+     * Prend en compte des changements de statut (commandes non chargées) : chaque commande change
+     * de statut dans les cumuls et, si elle est annulée (ou rétablie), ses lignes sont retirées
+     * (ou remises) des ventes ; les lignes de toutes ces commandes sont lues en une requête
+     */
+    @Transactional(Transactional.TxType.MANDATORY)
+    public void statutsChanges(Collection<ChangementStatut> changements) {
+        Variations variations = new Variations();
+        Map<Long, ChangementStatut> annulations = new HashMap<>();
+        for (ChangementStatut changement : changements) {
+            Commande.StatutCommande ancienStatut = changement.getAncienStatut();
+            Commande.StatutCommande nouveauStatut = changement.getNouveauStatut();
+            if (ancienStatut == nouveauStatut) {
+                continue;
+            }
+            LocalDate jour = changement.getDateCommande().toLocalDate();
+            long montant = centimes(changement.getMontantTotal());
+            variations.statut(jour, ancienStatut, -1, -montant);
+            variations.statut(jour, nouveauStatut, 1, montant);
+            if (nouveauStatut == Commande.StatutCommande.ANNULEE || ancienStatut == Commande.StatutCommande.ANNULEE) {
+                annulations.put(changement.getCommandeId(), changement);
+            }
+        }
+
+        if (!annulations.isEmpty()) {
+            List<Object[]> lignes = em.createQuery(
+                            "SELECT l.commande.id, p.id, cat.id, l.quantite, l.prixUnitaire FROM LigneCommande l"
+                                    + " JOIN l.produit p LEFT JOIN p.categorie cat WHERE l.commande.id IN :commandeIds",
+                            Object[].class)
+                    .setParameter("commandeIds", annulations.keySet())
+                    .getResultList();
+            for (Object[] ligne : lignes) {
+                ChangementStatut changement = annulations.get((Long) ligne[0]);
+                int signe = changement.getNouveauStatut() == Commande.StatutCommande.ANNULEE ? -1 : 1;
+                variations.ligne(changement.getDateCommande().toLocalDate(), changement.getCommandeId(),
+                        (Long) ligne[1], (Long) ligne[2], (Integer) ligne[3], (Double) ligne[4], signe);
+            }
+        }
+        appliquer(variations);
+    }
+
+    /**
+     * Ventes par jour (commandes annulées exclues), du plus ancien au plus récent
+     */
+    public List<CumulVentes> parJour(LocalDate du, LocalDate au) {
+        Map<LocalDate, long[]> jours = new TreeMap<>();
+        em.createQuery("SELECT v.jour, SUM(v.nombreCommandes), SUM(v.montantCentimes) FROM VenteJourStatut v"
+                        + " WHERE v.jour BETWEEN :du AND :au AND v.statut <> :annulee GROUP BY v.jour", Object[].class)
+                .setParameter("du", du)
+                .setParameter("au", au)
+                .setParameter("annulee", Commande.StatutCommande.ANNULEE)
+                .getResultList()
+                .forEach(r -> {
+                    long[] cumul = jours.computeIfAbsent((LocalDate) r[0], j -> new long[3]);
+                    cumul[0] = (Long) r[1];
+                    cumul[2] = (Long) r[2];
+                });
+        em.createQuery("SELECT v.jour, SUM(v.quantite) FROM VenteJourCategorie v"
+                        + " WHERE v.jour BETWEEN :du AND :au GROUP BY v.jour", Object[].class)
+                .setParameter("du", du)
+                .setParameter("au", au)
+                .getResultList()
+                .forEach(r -> jours.computeIfAbsent((LocalDate) r[0], j -> new long[3])[1] = (Long) r[1]);
+
+        List<CumulVentes> resultat = new ArrayList<>(jours.size());
+        jours.forEach((jour, c) -> resultat.add(new CumulVentes(jour.toString(), c[0], c[1], c[2])));
+        return resultat;
+    }
+
+    /**
+     * Ventes par catégorie, de la plus rentable à la moins rentable
+     */
+    public List<CumulVentes> parCategorie(LocalDate du, LocalDate au) {
+        CatalogueSnapshot catalogue = catalogueService.getSnapshot();
+        List<CumulVentes> resultat = new ArrayList<>();
+        for (Object[] r : cumuls("VenteJourCategorie", "categorieId", du, au, Integer.MAX_VALUE)) {
+            Long id = (Long) r[0];
+            Categorie categorie = catalogue.getCategorie(id);
+            String libelle = id == SANS_CATEGORIE ? "Sans catégorie"
+                    : categorie != null ? categorie.getNom() : "Catégorie #" + id;
+            resultat.add(new CumulVentes(libelle, (Long) r[1], (Long) r[2], (Long) r[3]));
+        }
+        return resultat;
+    }
+
+    /**
+     * Produits les plus vendus (en montant)
+     */
+    public List<CumulVentes> parProduit(LocalDate du, LocalDate au, int limite) {
+        CatalogueSnapshot catalogue = catalogueService.getSnapshot();
+        List<CumulVentes> resultat = new ArrayList<>();
+        for (Object[] r : cumuls("VenteJourProduit", "produitId", du, au, limite)) {
+            Produit produit = catalogue.getProduit((Long) r[0]);
+            String libelle = produit != null ? produit.getNom() : "Produit #" + r[0] + " (supprimé)";
+            resultat.add(new CumulVentes(libelle, (Long) r[1], (Long) r[2], (Long) r[3]));
+        }
+        return resultat;
+    }
+
+    /**
+     * Commandes par statut (annulées comprises), dans l'ordre du cycle de vie
+     */
+    public List<CumulVentes> parStatut(LocalDate du, LocalDate au) {
+        Map<Commande.StatutCommande, long[]> statuts = new EnumMap<>(Commande.StatutCommande.class);
+        em.createQuery("SELECT v.statut, SUM(v.nombreCommandes), SUM(v.montantCentimes) FROM VenteJourStatut v"
+                        + " WHERE v.jour BETWEEN :du AND :au GROUP BY v.statut", Object[].class)
+                .setParameter("du", du)
+                .setParameter("au", au)
+                .getResultList()
+                .forEach(r -> statuts.put((Commande.StatutCommande) r[0], new long[]{(Long) r[1], (Long) r[2]}));
+        List<CumulVentes> resultat = new ArrayList<>(statuts.size());
+        statuts.forEach((statut, c) -> resultat.add(new CumulVentes(statut.name(), c[0], 0, c[1])));
+        return resultat;
+    }
+
+    private List<Object[]> cumuls(String entite, String cle, LocalDate du, LocalDate au, int limite) {
+        return em.createQuery("SELECT v." + cle + ", SUM(v.nombreCommandes), SUM(v.quantite), SUM(v.montantCentimes)"
+                        + " FROM " + entite + " v WHERE v.jour BETWEEN :du AND :au"
+                        + " GROUP BY v." + cle + " ORDER BY SUM(v.montantCentimes) DESC", Object[].class)
+                .setParameter("du", du)
+                .setParameter("au", au)
+                .setMaxResults(limite)
+                .getResultList();
+    }
+
+    private void appliquer(Variations variations) {
+        em.unwrap(Session.class).doWork(connexion -> variations.ecrire(connexion));
+    }
+
+    static long centimes(Double montant) {
+        return montant != null ? Math.round(montant * 100) : 0;
+    }
+
+    /**
+     * Variations à appliquer, regroupées par clé et triées par (jour, clé) : ordre de verrouillage stable
+     */
+    private static final class Variations {
+
+        private final Map<CleStatut, long[]> statuts = new TreeMap<>();
+        private final Map<Cle, long[]> categories = new TreeMap<>();
+        private final Map<Cle, long[]> produits = new TreeMap<>();
+        private final Map<Cle, Set<Long>> commandesParCategorie = new TreeMap<>();
+        private final Map<Cle, Set<Long>> commandesParProduit = new TreeMap<>();
+
+        private void statut(LocalDate jour, Commande.StatutCommande statut, long commandes, long montant) {
+            long[] cumul = statuts.computeIfAbsent(new CleStatut(jour, statut), c -> new long[2]);
+            cumul[0] += commandes;
+            cumul[1] += montant;
+        }
+
+        private void ligne(LocalDate jour, Long commandeId, Long produitId, Long categorieId,
+                           int quantite, double prixUnitaire, int signe) {
+            long montant = centimes(prixUnitaire) * quantite;
+            ajouter(categories, commandesParCategorie, new Cle(jour, categorieId != null ? categorieId : SANS_CATEGORIE),
+                    commandeId, quantite, montant, signe);
+            ajouter(produits, commandesParProduit, new Cle(jour, produitId), commandeId, quantite, montant, signe);
+        }
+
+        /**
+         * Une commande compte une fois par clé, même avec plusieurs lignes (produits d'une même catégorie)
+         */
+        private static void ajouter(Map<Cle, long[]> cumuls, Map<Cle, Set<Long>> commandes, Cle cle, Long commandeId,
+                                    int quantite, long montant, int signe) {
+            long[] cumul = cumuls.computeIfAbsent(cle, c -> new long[3]);
+            if (commandes.computeIfAbsent(cle, c -> new HashSet<>()).add(commandeId)) {
+                cumul[0] += signe;
+            }
+            cumul[1] += (long) signe * quantite;
+            cumul[2] += signe * montant;
+        }
+
+        private void ecrire(Connection connexion) throws SQLException {
+            try (PreparedStatement requete = connexion.prepareStatement(CUMULER_STATUT)) {
+                for (Map.Entry<CleStatut, long[]> statut : statuts.entrySet()) {
+                    if (statut.getValue()[0] == 0 && statut.getValue()[1] == 0) {
+                        continue; // Commandes passées d'un statut à l'autre et revenues
+                    }
+                    requete.setDate(1, Date.valueOf(statut.getKey().jour));
+                    requete.setString(2, statut.getKey().statut.name());
+                    requete.setLong(3, statut.getValue()[0]);
+                    requete.setLong(4, statut.getValue()[1]);
+                    requete.addBatch();
+                }
+                requete.executeBatch();
+            }
+            ecrire(connexion, CUMULER_CATEGORIE, categories);
+            ecrire(connexion, CUMULER_PRODUIT, produits);
+        }
+
+        private static void ecrire(Connection connexion, String sql, Map<Cle, long[]> cumuls) throws SQLException {
+            if (cumuls.isEmpty()) {
+                return;
+            }
+            try (PreparedStatement requete = connexion.prepareStatement(sql)) {
+                for (Map.Entry<Cle, long[]> cumul : cumuls.entrySet()) {
+                    requete.setDate(1, Date.valueOf(cumul.getKey().jour));
+                    requete.setLong(2, cumul.getKey().id);
+                    requete.setLong(3, cumul.getValue()[0]);
+                    requete.setLong(4, cumul.getValue()[1]);
+                    requete.setLong(5, cumul.getValue()[2]);
+                    requete.addBatch();
+                }
+                requete.executeBatch();
+            }
+        }
+    }
+
+    private static final class Cle implements Comparable<Cle> {
+
+        private final LocalDate jour;
+        private final long id;
+
+        private Cle(LocalDate jour, long id) {
+            this.jour = jour;
+            this.id = id;
+        }
+
+        @Override
+        public int compareTo(Cle autre) {
+            int parJour = jour.compareTo(autre.jour);
+            return parJour != 0 ? parJour : Long.compare(id, autre.id);
+        }
+    }
+
+    private static final class CleStatut implements Comparable<CleStatut> {
+
+        private final LocalDate jour;
+        private final Commande.StatutCommande statut;
+
+        private CleStatut(LocalDate jour, Commande.StatutCommande statut) {
+            this.jour = jour;
+            this.statut = statut;
+        }
+
+        @Override
+        public int compareTo(CleStatut autre) {
+            int parJour = jour.compareTo(autre.jour);
+            return parJour != 0 ? parJour : statut.compareTo(autre.statut);
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package ma.fstt.ventes;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.transaction.Transactional;
+import ma.fstt.model.Commande;
+import org.hibernate.query.NativeQuery;
+
+import java.time.LocalDate;
+
+/**
+ * Recalcul des cumuls de ventes d'une période [debut, fin[, dans sa propre transaction
+ * Requêtes ensemblistes exécutées par la base (aucune commande chargée en mémoire) :
+ * les cumuls de la période sont supprimés puis recalculés depuis les commandes et leurs lignes,
+ * en cours ou archivées (le produit d'une ligne archivée a pu disparaître : sans catégorie).
+ */
+@ApplicationScoped
+public class RecalculPeriodeVentes {
+
+    // Commandes de la période, en cours et archivées (filtre dans chaque branche : index sur dateCommande)
+    private static final String COMMANDES =
+            "(SELECT dateCommande, statut, montantTotal FROM commandes WHERE dateCommande >= ?1 AND dateCommande < ?2"
+                    + " UNION ALL SELECT dateCommande, statut, montantTotal FROM commandes_archive"
+                    + " WHERE dateCommande >= ?1 AND dateCommande < ?2)";
+
+    // Lignes des commandes non annulées de la période, en cours et archivées
+    private static final String LIGNES =
+            "(SELECT c.id AS commande_id, c.dateCommande, l.produit_id, l.quantite, l.prixUnitaire"
+                    + " FROM commandes c JOIN lignes_commande l ON l.commande_id = c.id"
+                    + " WHERE c.dateCommande >= ?1 AND c.dateCommande < ?2 AND c.statut <> ?3"
+                    + " UNION ALL SELECT c.id, c.dateCommande, l.produit_id, l.quantite, l.prixUnitaire"
+                    + " FROM commandes_archive c JOIN lignes_commande_archive l ON l.commande_id = c.id"
+                    + " WHERE c.dateCommande >= ?1 AND c.dateCommande < ?2 AND c.statut <> ?3)";
+
+    @PersistenceContext(unitName = "mycnx")
+    private EntityManager em;
+
+    @Transactional(Transactional.TxType.REQUIRES_NEW)
+    public void recalculer(LocalDate debut, LocalDate fin) {
+        for (String table : new String[]{"ventes_jour_statut", "ventes_jour_categorie", "ventes_jour_produit"}) {
+            requete("DELETE FROM " + table + " WHERE jour >= ?1 AND jour < ?2", table)
+                    .setParameter(1, debut)
+                    .setParameter(2, fin)
+                    .executeUpdate();
+        }
+
+        requete("INSERT INTO ventes_jour_statut (jour, statut, nombre_commandes, montant_centimes)"
+                        + " SELECT DATE(c.dateCommande), c.statut, COUNT(*), SUM(ROUND(c.montantTotal * 100))"
+                        + " FROM " + COMMANDES + " c GROUP BY DATE(c.dateCommande), c.statut", "ventes_jour_statut")
+                .setParameter(1, debut.atStartOfDay())
+                .setParameter(2, fin.atStartOfDay())
+                .executeUpdate();
+        requete("INSERT INTO ventes_jour_categorie (jour, categorie_id, nombre_commandes, quantite, montant_centimes)"
+                        + " SELECT DATE(l.dateCommande), COALESCE(p.categorie_id, " + CumulsVentes.SANS_CATEGORIE + "),"
+                        + " COUNT(DISTINCT l.commande_id), SUM(l.quantite), SUM(ROUND(l.prixUnitaire * 100) * l.quantite)"
+                        + " FROM " + LIGNES + " l LEFT JOIN produits p ON p.id = l.produit_id"
+                        + " GROUP BY DATE(l.dateCommande), COALESCE(p.categorie_id, " + CumulsVentes.SANS_CATEGORIE + ")",
+                "ventes_jour_categorie")
+                .setParameter(1, debut.atStartOfDay())
+                .setParameter(2, fin.atStartOfDay())
+                .setParameter(3, Commande.StatutCommande.ANNULEE.name())
+                .executeUpdate();
+        requete("INSERT INTO ventes_jour_produit (jour, produit_id, nombre_commandes, quantite, montant_centimes)"
+                        + " SELECT DATE(l.dateCommande), l.produit_id,"
+                        + " COUNT(DISTINCT l.commande_id), SUM(l.quantite), SUM(ROUND(l.prixUnitaire * 100) * l.quantite)"
+                        + " FROM " + LIGNES + " l GROUP BY DATE(l.dateCommande), l.produit_id", "ventes_jour_produit")
+                .setParameter(1, debut.atStartOfDay())
+                .setParameter(2, fin.atStartOfDay())
+                .setParameter(3, Commande.StatutCommande.ANNULEE.name())
+                .executeUpdate();
+    }
+
+    /**
+     * Requête native qui ne touche que "table" : sans cette déclaration, Hibernate viderait
+     * tout le cache de second niveau et le cache de requêtes à chaque exécution
+     */
+    private NativeQuery<?> requete(String sql, String table) {
+        return em.createNativeQuery(sql).unwrap(NativeQuery.class).addSynchronizedQuerySpace(table);
+    }
+}
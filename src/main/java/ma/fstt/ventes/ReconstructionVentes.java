@@ -0,0 +1,142 @@
+package ma.fstt.ventes;
+
+import jakarta.annotation.Resource;
+import jakarta.enterprise.concurrent.ManagedExecutorService;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import ma.fstt.config.Parametres;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Reconstruction des cumuls de ventes depuis l'historique des commandes
+ * La période est découpée en tranches de ventes.partition.jours jours, recalculées en parallèle
+ * (ventes.reconstruction.executants tâches sur les threads gérés du serveur), chacune dans sa
+ * transaction : une tranche en erreur n'empêche pas les autres et peut être relancée seule.
+ * Une seule reconstruction à la fois.
+ */
+@ApplicationScoped
+public class ReconstructionVentes {
+
+    private static final Logger LOGGER = Logger.getLogger(ReconstructionVentes.class.getName());
+
+    @Resource
+    private ManagedExecutorService executeur;
+
+    @PersistenceContext(unitName = "mycnx")
+    private EntityManager em;
+
+    @Inject
+    private RecalculPeriodeVentes recalcul;
+
+    private final AtomicBoolean enCours = new AtomicBoolean();
+    private final AtomicInteger tranchesFaites = new AtomicInteger();
+    private final AtomicInteger tranchesEnErreur = new AtomicInteger();
+    private volatile int tranches;
+    private volatile String etat = "Aucune reconstruction depuis le démarrage";
+
+    /**
+     * Reconstruit tout l'historique, de la première commande (archives comprises) à aujourd'hui
+     *
+     * @return false si une reconstruction est déjà en cours
+     */
+    public boolean lancerTout() {
+        LocalDate aujourdhui = LocalDate.now();
+        LocalDate premiere = aujourdhui;
+        for (String entite : new String[]{"Commande", "CommandeArchivee"}) {
+            LocalDateTime date = em.createQuery("SELECT MIN(c.dateCommande) FROM " + entite + " c", LocalDateTime.class)
+                    .getSingleResult();
+            if (date != null && date.toLocalDate().isBefore(premiere)) {
+                premiere = date.toLocalDate();
+            }
+        }
+        return lancer(premiere, aujourdhui);
+    }
+
+    /**
+     * Lance la reconstruction des jours du au au (inclus) en tâche de fond
+     *
+     * @return false si une reconstruction est déjà en cours
+     */
+    public boolean lancer(LocalDate du, LocalDate au) {
+        if (!enCours.compareAndSet(false, true)) {
+            return false;
+        }
+        int joursParTranche = (int) Math.max(1, Parametres.nombre("ventes.partition.jours", 30));
+        Queue<LocalDate> debuts = new ConcurrentLinkedQueue<>();
+        for (LocalDate debut = du; !debut.isAfter(au); debut = debut.plusDays(joursParTranche)) {
+            debuts.add(debut);
+        }
+        tranches = debuts.size();
+        tranchesFaites.set(0);
+        tranchesEnErreur.set(0);
+        etat = "Reconstruction du " + du + " au " + au;
+        LOGGER.info(etat + " : " + tranches + " tranches");
+
+        int executants = (int) Math.min(tranches, Math.max(1, Parametres.nombre("ventes.reconstruction.executants", 4)));
+        AtomicInteger actifs = new AtomicInteger(executants);
+        LocalDate finPeriode = au.plusDays(1);
+        long depart = System.nanoTime();
+        for (int i = 0; i < executants; i++) {
+            executeur.execute(() -> {
+                try {
+                    LocalDate debut;
+                    while ((debut = debuts.poll()) != null) {
+                        LocalDate fin = debut.plusDays(joursParTranche);
+                        recalculerTranche(debut, fin.isAfter(finPeriode) ? finPeriode : fin);
+                    }
+                } finally {
+                    if (actifs.decrementAndGet() == 0) {
+                        terminer(du, au, depart);
+                    }
+                }
+            });
+        }
+        return true;
+    }
+
+    public boolean isEnCours() {
+        return enCours.get();
+    }
+
+    public int getTranches() {
+        return tranches;
+    }
+
+    public int getTranchesFaites() {
+        return tranchesFaites.get();
+    }
+
+    public String getEtat() {
+        return etat;
+    }
+
+    private void recalculerTranche(LocalDate debut, LocalDate fin) {
+        try {
+            recalcul.recalculer(debut, fin);
+        } catch (Exception e) {
+            tranchesEnErreur.incrementAndGet();
+            LOGGER.log(Level.SEVERE, "Erreur lors du recalcul des ventes du " + debut + " au " + fin.minusDays(1), e);
+        } finally {
+            tranchesFaites.incrementAndGet();
+        }
+    }
+
+    private void terminer(LocalDate du, LocalDate au, long depart) {
+        long millis = (System.nanoTime() - depart) / 1_000_000;
+        int erreurs = tranchesEnErreur.get();
+        etat = "Reconstruction du " + du + " au " + au + (erreurs == 0 ? " terminée" : " terminée avec " + erreurs
+                + " tranche(s) en erreur (voir le journal)") + " en " + millis + " ms";
+        LOGGER.info(etat);
+        enCours.set(false);
+    }
+}
@@ -0,0 +1,40 @@
+package ma.fstt.ventes;
+
+import jakarta.ejb.Schedule;
+import jakarta.ejb.Singleton;
+import jakarta.ejb.TransactionAttribute;
+import jakarta.ejb.TransactionAttributeType;
+import jakarta.inject.Inject;
+import ma.fstt.config.Parametres;
+
+import java.time.LocalDate;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Tâche planifiée : recalcule chaque nuit les cumuls de ventes des derniers jours
+ * (ventes.reconstruction.jours, jusqu'à la veille) pour corriger une éventuelle dérive,
+ * par exemple après une suppression de produit ou une modification manuelle en base
+ */
+@Singleton
+public class ReconstructionVentesNocturne {
+
+    private static final Logger LOGGER = Logger.getLogger(ReconstructionVentesNocturne.class.getName());
+
+    @Inject
+    private ReconstructionVentes reconstructionVentes;
+
+    @Schedule(hour = "4", minute = "0", persistent = false)
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED) // Chaque tranche a sa transaction
+    public void reconstruire() {
+        try {
+            LocalDate hier = LocalDate.now().minusDays(1);
+            long jours = Math.max(1, Parametres.nombre("ventes.reconstruction.jours", 35));
+            if (!reconstructionVentes.lancer(hier.minusDays(jours - 1), hier)) {
+                LOGGER.warning("Reconstruction des ventes déjà en cours : tâche nocturne ignorée");
+            }
+        } catch (Exception e) {
+            LOGGER.log(Level.SEVERE, "Erreur lors de la reconstruction des cumuls de ventes", e);
+        }
+    }
+}
@@ -0,0 +1,38 @@
+-- Passage des produits, commandes, paniers et de leurs lignes de AUTO_INCREMENT à des identifiants
+-- réservés par blocs de 50 (table generateurs_id, optimiseur "pooled" d'Hibernate).
+-- L'application fait le même alignement à chaque démarrage (GenerateursIdentifiants) ;
+-- ce script sert pour une migration manuelle, application arrêtée.
+
+CREATE TABLE IF NOT EXISTS generateurs_id (
+    entite   VARCHAR(255) NOT NULL PRIMARY KEY,
+    prochain BIGINT
+) ENGINE = InnoDB;
+
+-- La valeur stockée est la borne haute du prochain bloc : MAX(id) + 50
+INSERT INTO generateurs_id (entite, prochain)
+SELECT 'produits', COALESCE(MAX(id), 0) + 50 FROM produits
+ON DUPLICATE KEY UPDATE prochain = GREATEST(prochain, VALUES(prochain));
+
+INSERT INTO generateurs_id (entite, prochain)
+SELECT 'commandes', COALESCE(MAX(id), 0) + 50 FROM commandes
+ON DUPLICATE KEY UPDATE prochain = GREATEST(prochain, VALUES(prochain));
+
+INSERT INTO generateurs_id (entite, prochain)
+SELECT 'lignes_commande', COALESCE(MAX(id), 0) + 50 FROM lignes_commande
+ON DUPLICATE KEY UPDATE prochain = GREATEST(prochain, VALUES(prochain));
+
+INSERT INTO generateurs_id (entite, prochain)
+SELECT 'paniers', COALESCE(MAX(id), 0) + 50 FROM paniers
+ON DUPLICATE KEY UPDATE prochain = GREATEST(prochain, VALUES(prochain));
+
+INSERT INTO generateurs_id (entite, prochain)
+SELECT 'lignes_panier', COALESCE(MAX(id), 0) + 50 FROM lignes_panier
+ON DUPLICATE KEY UPDATE prochain = GREATEST(prochain, VALUES(prochain));
+
+-- Les colonnes id peuvent garder AUTO_INCREMENT (Hibernate fournit désormais la valeur) ;
+-- pour le retirer explicitement :
+-- ALTER TABLE produits MODIFY id BIGINT NOT NULL;
+-- ALTER TABLE lignes_commande MODIFY id BIGINT NOT NULL;
+-- ALTER TABLE lignes_panier MODIFY id BIGINT NOT NULL;
+-- ALTER TABLE commandes MODIFY id BIGINT NOT NULL;
+-- ALTER TABLE paniers MODIFY id BIGINT NOT NULL;
@@ -0,0 +1,58 @@
+package ma.fstt.mesures;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.http.HttpServletRequest;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Mode strict du budget SQL : un dépassement fait échouer la requête,
+ * même quand l'action JSF intercepte l'exception de l'instruction
+ */
+class FiltreBudgetSqlTest {
+
+    private static final String VUE = "/test-budget.xhtml";
+
+    static {
+        // Lus à l'initialisation de BudgetSql
+        System.setProperty("sql.budget.strict", "true");
+        System.setProperty("sql.budget." + VUE, "2");
+    }
+
+    private final FiltreBudgetSql filtre = new FiltreBudgetSql();
+
+    @Test
+    void depassementIntercepteParUneActionFaitEchouerLaRequete() {
+        FilterChain action = (request, response) -> {
+            try {
+                for (int i = 0; i < 3; i++) {
+                    BudgetSql.courant().instruction("select * from produits where id = ?");
+                }
+            } catch (Exception e) {
+                // Comme les actions des beans : l'erreur est avalée
+            }
+        };
+
+        assertThrows(BudgetSqlDepasseException.class, () -> filtre.doFilter(requete(), null, action));
+        assertNull(BudgetSql.courant());
+    }
+
+    @Test
+    void requeteDansLeBudgetPasse() {
+        FilterChain action = (request, response) -> BudgetSql.courant().instruction("select * from produits");
+
+        assertDoesNotThrow(() -> filtre.doFilter(requete(), null, action));
+        assertNull(BudgetSql.courant());
+    }
+
+    private static HttpServletRequest requete() {
+        return (HttpServletRequest) Proxy.newProxyInstance(FiltreBudgetSqlTest.class.getClassLoader(),
+                new Class<?>[]{HttpServletRequest.class},
+                (proxy, methode, arguments) -> "getServletPath".equals(methode.getName()) ? VUE : null);
+    }
+}